@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+
+/**
+ * AppClasses.java <br>
+ * The classes of IR1_Maven are in the default package, which can not be imported from a named package,
+ * and JMH does not accept benchmarks in the default package. <br>
+ * So the benchmarks call the classes of IR1_Maven through method handles, which are looked up once,
+ * in the setup of each benchmark, and cost about as much as a direct call. <br>
+ */
+final class AppClasses {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private AppClasses() {
+    }
+
+    /**
+     * This method returns a class of IR1_Maven.
+     * @param name The name of the class (e.g. "Songs")
+     * @return The Class object
+     */
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The class " + name + " of IR1_Maven was not found", e);
+        }
+    }
+
+    /**
+     * This method returns the array type of a class of IR1_Maven.
+     * @param name The name of the class (e.g. "Songs" for Songs[])
+     * @return The Class object of the array
+     */
+    static Class<?> arrayType(String name) {
+        return Array.newInstance(type(name), 0).getClass();
+    }
+
+    static MethodHandle staticMethod(String className, String methodName, Class<?> returnType,
+                                     Class<?>... parameterTypes) {
+        try {
+            return LOOKUP.findStatic(type(className), methodName, MethodType.methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The method " + className + "." + methodName + " was not found", e);
+        }
+    }
+
+    static MethodHandle virtualMethod(String className, String methodName, Class<?> returnType,
+                                      Class<?>... parameterTypes) {
+        try {
+            return LOOKUP.findVirtual(type(className), methodName, MethodType.methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The method " + className + "." + methodName + " was not found", e);
+        }
+    }
+
+    /**
+     * This method returns a method handle of a method that is not public (e.g. package-private).
+     */
+    static MethodHandle hiddenMethod(String className, String methodName, Class<?>... parameterTypes) {
+        try {
+            Method method = type(className).getDeclaredMethod(methodName, parameterTypes);
+            method.setAccessible(true);
+            return LOOKUP.unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The method " + className + "." + methodName + " was not found", e);
+        }
+    }
+
+    static MethodHandle constructor(String className, Class<?>... parameterTypes) {
+        try {
+            return LOOKUP.findConstructor(type(className), MethodType.methodType(void.class, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The constructor of " + className + " was not found", e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * CSVDifferentialCheck.java <br>
+ * This class checks that the MappedCSVSource returns exactly the same lines as the CSVRecordSource (OpenCSV),
+ * for the csv files of the benchmarks, and for a file with the difficult cases of the csv format (quoted line
+ * breaks with \n, \r\n and \r, doubled quotes, backslashes, quotes in the middle of a field, multi-byte
+ * characters), with many chunk sizes and numbers of threads. <br>
+ * Usage: java -cp target/benchmarks.jar benchmarks.CSVDifferentialCheck [csv files...] <br>
+ * It exits with status 1 at the first difference. <br>
+ */
+public class CSVDifferentialCheck {
+    private static final String[] FRAGMENTS = {"a", "bc", "\u00e9", "\u039b", "\ud83d\ude00", ",", " ", "\t", "\"",
+            "\"\"", "\\", "\\\"", "\\\\", "\n", "\r\n", "\r", "x\"y", "\"q\"", "Lyrics"};
+    private static final long[] CHUNK_SIZES = {1, 64, 4096, 8L * 1024 * 1024};
+    private static final int[] THREADS = {1, 4};
+
+    public static void main(String[] args) throws Throwable {
+        MethodHandle newRecordSource = AppClasses.constructor("CSVRecordSource", String.class, Function.class);
+        MethodHandle newMappedSource = AppClasses.constructor("MappedCSVSource", String.class, Function.class,
+                int.class, long.class);
+        Path fixture = Fixture.create(2000);
+        Path difficult = Files.createTempFile("ir1-difficult-", ".csv");
+        try {
+            writeDifficultFile(difficult, 5000);
+            String[] files = args.length > 0 ? args : new String[]{fixture.resolve(Fixture.SONGS_CSV).toString(),
+                    fixture.resolve(Fixture.ALBUMS_CSV).toString(), fixture.resolve(Fixture.LYRICS_CSV).toString(),
+                    difficult.toString()};
+            Function<String[], String[]> identity = line -> line;
+            for (String file : files) {
+                for (long chunkSize : CHUNK_SIZES) {
+                    for (int threads : THREADS) {
+                        long lines = compare(file, newRecordSource.invoke(file, identity),
+                                newMappedSource.invoke(file, identity, threads, chunkSize));
+                        System.out.println(file + " (chunk size " + chunkSize + ", " + threads + " threads) : " +
+                                lines + " identical lines");
+                    }
+                }
+            }
+        } finally {
+            Fixture.delete(fixture);
+            Files.delete(difficult);
+        }
+    }
+
+    private static long compare(String file, Object expectedSource, Object actualSource) throws IOException {
+        try (Closeable expectedCloseable = (Closeable) expectedSource;
+             Closeable actualCloseable = (Closeable) actualSource) {
+            Iterator<?> expected = (Iterator<?>) expectedCloseable;
+            Iterator<?> actual = (Iterator<?>) actualCloseable;
+            long lines = 0;
+            while (expected.hasNext() && actual.hasNext()) {
+                String[] expectedLine = (String[]) expected.next();
+                String[] actualLine = (String[]) actual.next();
+                lines++;
+                if (!Arrays.equals(expectedLine, actualLine)) {
+                    fail(file, "line " + lines + " differs :\n  OpenCSV : " + Arrays.toString(expectedLine) +
+                            "\n  mapped  : " + Arrays.toString(actualLine));
+                }
+            }
+            if (expected.hasNext() || actual.hasNext()) {
+                fail(file, (expected.hasNext() ? "OpenCSV" : "the mapped parser") + " has more than " + lines +
+                        " lines");
+            }
+            return lines;
+        }
+    }
+
+    private static void fail(String file, String message) {
+        System.out.println(file + " : " + message);
+        System.exit(1);
+    }
+
+    /**
+     * This method writes a csv file of random fragments, from a fixed seed.
+     */
+    private static void writeDifficultFile(Path file, int lineCount) throws IOException {
+        Random random = new Random(42);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("id,a,b,c\n");
+            for (int i = 0; i < lineCount; i++) {
+                writer.write(String.valueOf(i));
+                int fragments = random.nextInt(12);
+                for (int f = 0; f < fragments; f++) {
+                    writer.write(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                }
+                // Close the quoted fields most of the time, so that the file has many lines
+                writer.write(random.nextInt(4) == 0 ? "\n" : ",\"closed\"\n");
+            }
+        }
+    }
+}
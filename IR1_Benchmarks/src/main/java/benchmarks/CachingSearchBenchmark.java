@@ -0,0 +1,112 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CachingSearchBenchmark.java <br>
+ * This class measures the latency of the CachingSearcher in front of a Searcher on an index of the fixture
+ * dataset, when the results of the query are cached (a hot query) and when they are not. <br>
+ * The misses go through a cache that keeps no results, so they measure the search and the cost of the cache. <br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CachingSearchBenchmark {
+    private static final int QUERY_COUNT = 64;
+    private static final int TOP_K = 10;
+
+    @Param({"25000"})
+    public int songCount;
+
+    private Path indexDir;
+    private Object searcher;
+    private Object hotCache;
+    private Object coldCache;
+    private MethodHandle search;
+    private String[] queries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Path fixture = Fixture.create(songCount);
+        indexDir = Files.createTempDirectory("ir1-cache-");
+        try {
+            String songsFile = fixture.resolve(Fixture.SONGS_CSV).toString();
+            String lyricsFile = fixture.resolve(Fixture.LYRICS_CSV).toString();
+            Object indexer = AppClasses.constructor("SongLyricsIndexer", String.class).invoke(indexDir.toString());
+            try (Closeable songs = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openSongs",
+                    AppClasses.type("CSVRecordSource"), String.class).invoke(songsFile);
+                 Closeable lyrics = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openLyrics",
+                         AppClasses.type("CSVRecordSource"), String.class).invoke(lyricsFile)) {
+                AppClasses.virtualMethod("SongLyricsIndexer", "indexSongLyrics", AppClasses.type("JoinReport"),
+                        Iterator.class, Iterator.class).invoke(indexer, songs, lyrics);
+            }
+            AppClasses.virtualMethod("MyIndexer", "close", void.class).invoke(indexer);
+        } finally {
+            Fixture.delete(fixture);
+        }
+        searcher = AppClasses.constructor("Searcher", String.class).invoke(indexDir.toString());
+        MethodHandle newCache = AppClasses.constructor("CachingSearcher", AppClasses.type("Searcher"),
+                int.class, long.class);
+        hotCache = newCache.invoke(searcher, QUERY_COUNT, Long.MAX_VALUE);
+        coldCache = newCache.invoke(searcher, 0, 0L);
+        search = AppClasses.virtualMethod("CachingSearcher", "search", AppClasses.type("SearchResults"),
+                String.class, String.class, int.class);
+        queries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            // Spread the queries over the vocabulary, from the most frequent words to the rare ones
+            queries[i] = Fixture.word(i * i / 2);
+            // All the queries are hot in the cache of the hits
+            search.invoke(hotCache, queries[i], "songsLyrics", TOP_K);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ((Closeable) searcher).close();
+        Fixture.delete(indexDir);
+    }
+
+    private String nextQuery() {
+        nextQuery = (nextQuery + 1) % QUERY_COUNT;
+        return queries[nextQuery];
+    }
+
+    /**
+     * The top 10 hits of a query in the lyrics, from the cache.
+     */
+    @Benchmark
+    public Object cacheHit() throws Throwable {
+        return search.invoke(hotCache, nextQuery(), "songsLyrics", TOP_K);
+    }
+
+    /**
+     * The top 10 hits of a query in the lyrics, searched in the index.
+     */
+    @Benchmark
+    public Object cacheMiss() throws Throwable {
+        return search.invoke(coldCache, nextQuery(), "songsLyrics", TOP_K);
+    }
+}
@@ -0,0 +1,179 @@
+package benchmarks;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.ScoreDoc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CrossIndexJoinBenchmark.java <br>
+ * This class compares the two ways to find the songs whose lyrics mention a word, by the singers with an album
+ * of a decade : <br>
+ * - joinQuery : one query, joined on the singer key of the two indexes (Searcher.searchJoin) <br>
+ * - twoStep : all the albums of the decade are searched and their singers are collected, then the songs of the
+ * word are searched and filtered by these singers, until the top 10 are found <br>
+ * The queries are words of the fixture vocabulary, from the most frequent to the rare ones. <br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CrossIndexJoinBenchmark {
+    private static final int QUERY_COUNT = 64;
+    private static final int TOP_K = 10;
+    // The fields of LuceneConstants
+    private static final String LYRICS_FIELD = "songsLyrics";
+    private static final String SONGS_SINGER_NAME = "songsSingerName";
+    private static final String ALBUMS_SINGER_NAME = "albumsSingerName";
+    private static final String ALBUMS_ALBUM_NAME = "albumsAlbumName";
+    private static final String ALBUMS_QUERY = "albumsAlbumYear:[1990 TO 1999]";
+
+    @Param({"25000"})
+    public int songCount;
+
+    private Path songsIndexDir;
+    private Path albumsIndexDir;
+    private Object songsSearcher;
+    private Object albumsSearcher;
+    private MethodHandle searchJoin;
+    private MethodHandle search;
+    private MethodHandle singerKey;
+    private MethodHandle getDocuments;
+    private Object canonicalNames;
+    private Set<String> songFields;
+    private Set<String> albumFields;
+    private int albumCount;
+    private String[] queries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Path fixture = Fixture.create(songCount);
+        songsIndexDir = Files.createTempDirectory("ir1-join-songs-");
+        albumsIndexDir = Files.createTempDirectory("ir1-join-albums-");
+        try {
+            String songsFile = fixture.resolve(Fixture.SONGS_CSV).toString();
+            String lyricsFile = fixture.resolve(Fixture.LYRICS_CSV).toString();
+            String albumsFile = fixture.resolve(Fixture.ALBUMS_CSV).toString();
+            Object songsIndexer = AppClasses.constructor("SongLyricsIndexer", String.class)
+                    .invoke(songsIndexDir.toString());
+            try (Closeable songs = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openSongs",
+                    AppClasses.type("CSVRecordSource"), String.class).invoke(songsFile);
+                 Closeable lyrics = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openLyrics",
+                         AppClasses.type("CSVRecordSource"), String.class).invoke(lyricsFile)) {
+                AppClasses.virtualMethod("SongLyricsIndexer", "indexSongLyrics", AppClasses.type("JoinReport"),
+                        Iterator.class, Iterator.class).invoke(songsIndexer, songs, lyrics);
+            }
+            AppClasses.virtualMethod("MyIndexer", "close", void.class).invoke(songsIndexer);
+            Object albumsIndexer = AppClasses.constructor("AlbumsIndexer", String.class)
+                    .invoke(albumsIndexDir.toString());
+            try (Closeable albums = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openAlbums",
+                    AppClasses.type("CSVRecordSource"), String.class).invoke(albumsFile)) {
+                AppClasses.virtualMethod("AlbumsIndexer", "indexAlbums", void.class, Iterator.class)
+                        .invoke(albumsIndexer, albums);
+            }
+            AppClasses.virtualMethod("MyIndexer", "close", void.class).invoke(albumsIndexer);
+        } finally {
+            Fixture.delete(fixture);
+        }
+        MethodHandle newSearcher = AppClasses.constructor("Searcher", String.class);
+        songsSearcher = newSearcher.invoke(songsIndexDir.toString());
+        albumsSearcher = newSearcher.invoke(albumsIndexDir.toString());
+        albumCount = (int) AppClasses.virtualMethod("Searcher", "getTotalNumberOfDocuments", int.class)
+                .invoke(albumsSearcher);
+        Class<?> searcherType = AppClasses.type("Searcher");
+        searchJoin = AppClasses.virtualMethod("Searcher", "searchJoin", AppClasses.type("SearchResults"),
+                String.class, String.class, searcherType, String.class, String.class, ScoreDoc.class, int.class,
+                Set.class);
+        search = AppClasses.virtualMethod("Searcher", "search", AppClasses.type("SearchResults"),
+                String.class, String.class, int.class, Set.class);
+        canonicalNames = AppClasses.staticMethod("CanonicalNames", "getDefault", AppClasses.type("CanonicalNames"))
+                .invoke();
+        singerKey = AppClasses.virtualMethod("CanonicalNames", "singerKey", String.class, String.class);
+        getDocuments = AppClasses.virtualMethod("SearchResults", "getDocuments", Document[].class);
+        songFields = new HashSet<>(Collections.singletonList(SONGS_SINGER_NAME));
+        albumFields = new HashSet<>(Collections.singletonList(ALBUMS_SINGER_NAME));
+        queries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i] = Fixture.word(i * i / 2);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ((Closeable) songsSearcher).close();
+        ((Closeable) albumsSearcher).close();
+        Fixture.delete(songsIndexDir);
+        Fixture.delete(albumsIndexDir);
+    }
+
+    private String nextQuery() {
+        nextQuery = (nextQuery + 1) % QUERY_COUNT;
+        return queries[nextQuery];
+    }
+
+    /**
+     * The top 10 songs of a word, by the singers with an album in the 1990s, with one joined query.
+     */
+    @Benchmark
+    public Object joinQuery() throws Throwable {
+        return searchJoin.invoke(songsSearcher, nextQuery(), LYRICS_FIELD, albumsSearcher, ALBUMS_QUERY,
+                ALBUMS_ALBUM_NAME, null, TOP_K, songFields);
+    }
+
+    /**
+     * The same top 10 songs, with a search of the albums, a search of the songs, and a join of their
+     * stored singer names in memory.
+     */
+    @Benchmark
+    public Object twoStep() throws Throwable {
+        // All the albums of the decade, for their singers
+        Object albums = search.invoke(albumsSearcher, ALBUMS_QUERY, ALBUMS_ALBUM_NAME, Math.max(1, albumCount),
+                albumFields);
+        Set<String> singerKeys = new HashSet<>();
+        for (Document album : documents(albums)) {
+            singerKeys.add((String) singerKey.invoke(canonicalNames, album.get(ALBUMS_SINGER_NAME)));
+        }
+        // The songs of the word, filtered by the singers, in the order of their scores
+        Object songs = search.invoke(songsSearcher, nextQuery(), LYRICS_FIELD, songCount, songFields);
+        List<Document> hits = new ArrayList<>(TOP_K);
+        for (Document song : documents(songs)) {
+            if (singerKeys.contains((String) singerKey.invoke(canonicalNames, song.get(SONGS_SINGER_NAME)))) {
+                hits.add(song);
+                if (hits.size() == TOP_K) {
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private Document[] documents(Object searchResults) throws Throwable {
+        return (Document[]) getDocuments.invoke(searchResults);
+    }
+}
@@ -0,0 +1,175 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Fixture.java <br>
+ * This class writes a fixed dataset of songs.csv, albums.csv and lyrics.csv files, with the same columns as the
+ * files of the Data directory. <br>
+ * The dataset is generated from a fixed seed, so every run of the benchmarks uses exactly the same records. <br>
+ * About 98% of the songs have lyrics, and about 1% of the lyrics have no song, like the real files. <br>
+ */
+final class Fixture {
+    static final String SONGS_CSV = "songs.csv";
+    static final String ALBUMS_CSV = "albums.csv";
+    static final String LYRICS_CSV = "lyrics.csv";
+
+    private static final long SEED = 42;
+    private static final String[] SYLLABLES = {"la", "ro", "mi", "ka", "te", "su", "no", "vi", "de", "ma",
+            "ri", "zo", "pe", "lu", "na", "go", "shi", "ba", "ye", "to"};
+    private static final int VOCABULARY_SIZE = 2000;
+    private static final int LINES_PER_SONG = 40;
+    private static final int WORDS_PER_LINE = 6;
+    private static final String[] ALBUM_TYPES = {"album", "EP", "compilation", "other"};
+
+    private final String[] vocabulary;
+    private final Random random = new Random(SEED);
+
+    private Fixture() {
+        vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 1 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            vocabulary[i] = word.toString() + i;
+        }
+    }
+
+    /**
+     * This method writes the dataset into a new temporary directory.
+     * @param songCount The number of the songs
+     * @return The directory of the csv files
+     * @throws IOException
+     */
+    static Path create(int songCount) throws IOException {
+        Path directory = Files.createTempDirectory("ir1-fixture-");
+        new Fixture().write(directory, songCount);
+        return directory;
+    }
+
+    /**
+     * This method returns a word of the vocabulary of the dataset, for the queries of the benchmarks.
+     * @param rank The rank of the word (0 for the most frequent word)
+     * @return The word
+     */
+    static String word(int rank) {
+        return new Fixture().vocabulary[rank % VOCABULARY_SIZE];
+    }
+
+    /**
+     * This method deletes a directory and its files.
+     * @param directory The directory
+     * @throws IOException
+     */
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private void write(Path directory, int songCount) throws IOException {
+        int singerCount = Math.max(1, songCount / 10);
+        String[] singers = new String[singerCount];
+        for (int i = 0; i < singerCount; i++) {
+            singers[i] = capitalize(randomWord()) + " " + capitalize(randomWord());
+        }
+        List<String[]> lyricsRows = new ArrayList<>();
+        try (Writer songs = Files.newBufferedWriter(directory.resolve(SONGS_CSV), StandardCharsets.UTF_8)) {
+            writeRow(songs, "id", "artist_id", "singer_name", "song_name", "song_href");
+            for (int i = 0; i < songCount; i++) {
+                int singer = random.nextInt(singerCount);
+                String songName = capitalize(randomWord()) + " " + randomWord();
+                String songHref = "/lyrics/" + singer + "/" + i + ".html";
+                writeRow(songs, String.valueOf(i), String.valueOf(singer), singers[singer] + " Lyrics",
+                        songName, songHref);
+                // About 98% of the songs have lyrics
+                if (random.nextInt(100) < 98) {
+                    lyricsRows.add(new String[]{songHref, singers[singer] + " Lyrics", songName, randomLyrics()});
+                }
+                // About 1% of the lyrics have no song
+                if (random.nextInt(100) < 1) {
+                    lyricsRows.add(new String[]{"/lyrics/orphan/" + i + ".html", singers[singer] + " Lyrics",
+                            "Orphan " + randomWord(), randomLyrics()});
+                }
+            }
+        }
+        // The lyrics.csv file is not in the order of the songs.csv file
+        Collections.shuffle(lyricsRows, random);
+        try (Writer lyrics = Files.newBufferedWriter(directory.resolve(LYRICS_CSV), StandardCharsets.UTF_8)) {
+            writeRow(lyrics, "id", "song_href", "singer_name", "song_name", "lyrics");
+            for (int i = 0; i < lyricsRows.size(); i++) {
+                String[] row = lyricsRows.get(i);
+                writeRow(lyrics, String.valueOf(i), row[0], row[1], row[2], row[3]);
+            }
+        }
+        try (Writer albums = Files.newBufferedWriter(directory.resolve(ALBUMS_CSV), StandardCharsets.UTF_8)) {
+            writeRow(albums, "id", "artist_id", "singer_name", "album_name", "album_type", "album_year");
+            int albumCount = Math.max(1, songCount / 5);
+            for (int i = 0; i < albumCount; i++) {
+                int singer = random.nextInt(singerCount);
+                writeRow(albums, String.valueOf(i), String.valueOf(singer), singers[singer] + " Lyrics",
+                        capitalize(randomWord()) + " " + randomWord(), ALBUM_TYPES[random.nextInt(ALBUM_TYPES.length)],
+                        String.valueOf(1960 + random.nextInt(64)));
+            }
+        }
+    }
+
+    /**
+     * This method returns a random word, where the first words of the vocabulary are much more frequent.
+     */
+    private String randomWord() {
+        double r = random.nextDouble();
+        return vocabulary[(int) (VOCABULARY_SIZE * r * r * r)];
+    }
+
+    private String randomLyrics() {
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < LINES_PER_SONG; line++) {
+            for (int word = 0; word < WORDS_PER_LINE; word++) {
+                if (word > 0) {
+                    text.append(' ');
+                }
+                text.append(randomWord());
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static void writeRow(Writer writer, String... columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String column = columns[i];
+            // Quote only the columns that need it (the lyrics contain new lines),
+            // because CSVFileFilter.getNumberOfRecords reads the id of the last line without a csv parser
+            if (column.indexOf(',') >= 0 || column.indexOf('"') >= 0 || column.indexOf('\n') >= 0) {
+                writer.write('"');
+                writer.write(column.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(column);
+            }
+        }
+        writer.write('\n');
+    }
+}
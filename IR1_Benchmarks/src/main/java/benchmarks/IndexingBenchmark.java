@@ -0,0 +1,140 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IndexingBenchmark.java <br>
+ * This class measures the building of the documents, and the complete build of the albums index and of the
+ * songs-lyrics index (document building and addDocument through the indexing pipeline), for a number of
+ * worker threads. <br>
+ * Each build writes to a new, empty index directory. <br>
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class IndexingBenchmark {
+    @Param({"25000"})
+    public int songCount;
+
+    @Param({"1", "4"})
+    public int workerThreads;
+
+    private Object[] songs;
+    private Object[] lyrics;
+    private Object[] albums;
+    private Object settings;
+    private Path indexDir;
+    private Path documentsIndexDir;
+    private Object documentsIndexer;
+
+    private MethodHandle newAlbumsIndexer;
+    private MethodHandle newSongLyricsIndexer;
+    private MethodHandle indexAlbumsFile;
+    private MethodHandle indexSongLyricsFile;
+    private MethodHandle getAlbumsDocument;
+    private MethodHandle close;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Path fixture = Fixture.create(songCount);
+        try {
+            songs = load(fixture, Fixture.SONGS_CSV, "Songs", "createSongsObjects", "getNumberOfRecords");
+            lyrics = load(fixture, Fixture.LYRICS_CSV, "Lyrics", "createLyricsObjects", "getNumberOfLyricRecords");
+            albums = load(fixture, Fixture.ALBUMS_CSV, "Albums", "createAlbumsObjects", "getNumberOfRecords");
+        } finally {
+            Fixture.delete(fixture);
+        }
+        Class<?> settingsType = AppClasses.type("IndexerSettings");
+        settings = AppClasses.constructor("IndexerSettings", int.class, int.class, double.class, int.class)
+                .invoke(workerThreads, 1000, 16.0, -1);
+        newAlbumsIndexer = AppClasses.constructor("AlbumsIndexer", String.class, settingsType);
+        newSongLyricsIndexer = AppClasses.constructor("SongLyricsIndexer", String.class, settingsType);
+        indexAlbumsFile = AppClasses.virtualMethod("AlbumsIndexer", "indexAlbumsFile",
+                void.class, AppClasses.arrayType("Albums"));
+        indexSongLyricsFile = AppClasses.virtualMethod("SongLyricsIndexer", "indexSongLyricsFile",
+                AppClasses.type("JoinReport"), AppClasses.arrayType("Songs"), AppClasses.arrayType("Lyrics"));
+        getAlbumsDocument = AppClasses.virtualMethod("AlbumsIndexer", "getAlbumsDocument",
+                org.apache.lucene.document.Document.class, AppClasses.type("Albums"));
+        close = AppClasses.virtualMethod("MyIndexer", "close", void.class);
+        // An indexer whose writer is never used, for the building of the documents alone
+        documentsIndexDir = Files.createTempDirectory("ir1-documents-");
+        documentsIndexer = newAlbumsIndexer.invoke(documentsIndexDir.toString(), settings);
+    }
+
+    private static Object[] load(Path fixture, String file, String type, String loader, String counter)
+            throws Throwable {
+        String fileName = fixture.resolve(file).toString();
+        int numberOfRecords = (int) AppClasses.staticMethod("CSVFileFilter", counter, int.class, String.class)
+                .invoke(fileName);
+        return (Object[]) AppClasses.staticMethod("CSVFileFilter", loader, AppClasses.arrayType(type),
+                String.class, int.class).invoke(fileName, numberOfRecords);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        close.invoke(documentsIndexer);
+        Fixture.delete(documentsIndexDir);
+    }
+
+    @Setup(Level.Iteration)
+    public void createIndexDir() throws Exception {
+        indexDir = Files.createTempDirectory("ir1-index-");
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteIndexDir() throws Exception {
+        Fixture.delete(indexDir);
+    }
+
+    /**
+     * The building of the album documents alone, without addDocument.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public void buildAlbumDocuments(Blackhole blackhole) throws Throwable {
+        for (Object album : albums) {
+            blackhole.consume(getAlbumsDocument.invoke(documentsIndexer, album));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void indexAlbums() throws Throwable {
+        Object indexer = newAlbumsIndexer.invoke(indexDir.toString(), settings);
+        indexAlbumsFile.invoke(indexer, albums);
+        close.invoke(indexer);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public Object indexSongLyrics() throws Throwable {
+        Object indexer = newSongLyricsIndexer.invoke(indexDir.toString(), settings);
+        Object joinReport = indexSongLyricsFile.invoke(indexer, songs, lyrics);
+        close.invoke(indexer);
+        return joinReport;
+    }
+}
@@ -0,0 +1,125 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IngestBenchmark.java <br>
+ * This class measures the parsing of the csv files into Songs, Lyrics and Albums objects,
+ * with the array loaders of CSVFileFilter, with the streaming CSVRecordSource, and with the memory-mapped,
+ * parallel MappedCSVSource. <br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngestBenchmark {
+    @Param({"25000", "250000"})
+    public int songCount;
+
+    private Path fixture;
+    private String songsFile;
+    private String lyricsFile;
+    private String albumsFile;
+    private int numberOfSongs;
+    private int numberOfLyrics;
+    private int numberOfAlbums;
+
+    private MethodHandle createSongsObjects;
+    private MethodHandle createLyricsObjects;
+    private MethodHandle createAlbumsObjects;
+    private MethodHandle openLyrics;
+    private MethodHandle mapLyrics;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        fixture = Fixture.create(songCount);
+        songsFile = fixture.resolve(Fixture.SONGS_CSV).toString();
+        lyricsFile = fixture.resolve(Fixture.LYRICS_CSV).toString();
+        albumsFile = fixture.resolve(Fixture.ALBUMS_CSV).toString();
+        MethodHandle getNumberOfRecords = AppClasses.staticMethod("CSVFileFilter", "getNumberOfRecords",
+                int.class, String.class);
+        MethodHandle getNumberOfLyricRecords = AppClasses.staticMethod("CSVFileFilter", "getNumberOfLyricRecords",
+                int.class, String.class);
+        numberOfSongs = (int) getNumberOfRecords.invoke(songsFile);
+        numberOfAlbums = (int) getNumberOfRecords.invoke(albumsFile);
+        numberOfLyrics = (int) getNumberOfLyricRecords.invoke(lyricsFile);
+        createSongsObjects = AppClasses.staticMethod("CSVFileFilter", "createSongsObjects",
+                AppClasses.arrayType("Songs"), String.class, int.class);
+        createLyricsObjects = AppClasses.staticMethod("CSVFileFilter", "createLyricsObjects",
+                AppClasses.arrayType("Lyrics"), String.class, int.class);
+        createAlbumsObjects = AppClasses.staticMethod("CSVFileFilter", "createAlbumsObjects",
+                AppClasses.arrayType("Albums"), String.class, int.class);
+        openLyrics = AppClasses.staticMethod("CSVFileFilter", "openLyrics",
+                AppClasses.type("CSVRecordSource"), String.class);
+        mapLyrics = AppClasses.staticMethod("CSVFileFilter", "mapLyrics",
+                AppClasses.type("MappedCSVSource"), String.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Fixture.delete(fixture);
+    }
+
+    @Benchmark
+    public Object createSongsObjects() throws Throwable {
+        return createSongsObjects.invoke(songsFile, numberOfSongs);
+    }
+
+    @Benchmark
+    public Object createLyricsObjects() throws Throwable {
+        return createLyricsObjects.invoke(lyricsFile, numberOfLyrics);
+    }
+
+    @Benchmark
+    public Object createAlbumsObjects() throws Throwable {
+        return createAlbumsObjects.invoke(albumsFile, numberOfAlbums);
+    }
+
+    /**
+     * The lyrics.csv file through the streaming CSVRecordSource, for the comparison with createLyricsObjects.
+     */
+    @Benchmark
+    public int streamLyrics() throws Throwable {
+        return count(openLyrics.invoke(lyricsFile));
+    }
+
+    /**
+     * The lyrics.csv file through the MappedCSVSource, with one parser thread per core.
+     */
+    @Benchmark
+    public int mapLyrics() throws Throwable {
+        return count(mapLyrics.invoke(lyricsFile));
+    }
+
+    private static int count(Object source) throws Exception {
+        int records = 0;
+        try (Closeable closeable = (Closeable) source) {
+            Iterator<?> lyrics = (Iterator<?>) closeable;
+            while (lyrics.hasNext()) {
+                lyrics.next();
+                records++;
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JoinBenchmark.java <br>
+ * This class measures the matching of the songs with their lyrics (SongLyricsJoin.join), without the indexing. <br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JoinBenchmark {
+    @Param({"25000"})
+    public int songCount;
+
+    private Object[] songs;
+    private Object[] lyrics;
+    private MethodHandle join;
+    private Object matchHandler;
+    private long matches;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Path fixture = Fixture.create(songCount);
+        try {
+            String songsFile = fixture.resolve(Fixture.SONGS_CSV).toString();
+            String lyricsFile = fixture.resolve(Fixture.LYRICS_CSV).toString();
+            int numberOfSongs = (int) AppClasses.staticMethod("CSVFileFilter", "getNumberOfRecords",
+                    int.class, String.class).invoke(songsFile);
+            int numberOfLyrics = (int) AppClasses.staticMethod("CSVFileFilter", "getNumberOfLyricRecords",
+                    int.class, String.class).invoke(lyricsFile);
+            songs = (Object[]) AppClasses.staticMethod("CSVFileFilter", "createSongsObjects",
+                    AppClasses.arrayType("Songs"), String.class, int.class).invoke(songsFile, numberOfSongs);
+            lyrics = (Object[]) AppClasses.staticMethod("CSVFileFilter", "createLyricsObjects",
+                    AppClasses.arrayType("Lyrics"), String.class, int.class).invoke(lyricsFile, numberOfLyrics);
+        } finally {
+            Fixture.delete(fixture);
+        }
+        Class<?> matchHandlerType = AppClasses.type("SongLyricsJoin$MatchHandler");
+        join = AppClasses.staticMethod("SongLyricsJoin", "join", AppClasses.type("JoinReport"),
+                Iterator.class, Iterator.class, matchHandlerType);
+        // The handler only counts the matches, so that the benchmark measures the join itself
+        matchHandler = Proxy.newProxyInstance(matchHandlerType.getClassLoader(), new Class<?>[]{matchHandlerType},
+                (proxy, method, args) -> {
+                    matches++;
+                    return null;
+                });
+    }
+
+    @Benchmark
+    public Object join() throws Throwable {
+        return join.invoke(Arrays.asList(songs).iterator(), Arrays.asList(lyrics).iterator(), matchHandler);
+    }
+}
@@ -0,0 +1,115 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LinesSearchBenchmark.java <br>
+ * This class measures the search of the lyrics lines (Searcher.searchLines), which returns the top songs with
+ * their best line, on an index of the fixture dataset with the lines as child documents of their songs. <br>
+ * It is compared with the search of the same words in the lyrics of the songs, which only finds the songs. <br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LinesSearchBenchmark {
+    private static final int QUERY_COUNT = 64;
+    private static final int TOP_K = 10;
+
+    @Param({"25000"})
+    public int songCount;
+
+    private Path indexDir;
+    private Object searcher;
+    private MethodHandle searchLines;
+    private MethodHandle search;
+    private Set<String> songFields;
+    private String[] queries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Path fixture = Fixture.create(songCount);
+        indexDir = Files.createTempDirectory("ir1-lines-");
+        try {
+            String songsFile = fixture.resolve(Fixture.SONGS_CSV).toString();
+            String lyricsFile = fixture.resolve(Fixture.LYRICS_CSV).toString();
+            Object indexer = AppClasses.constructor("SongLyricsIndexer", String.class).invoke(indexDir.toString());
+            AppClasses.virtualMethod("SongLyricsIndexer", "setIndexLines", void.class, boolean.class)
+                    .invoke(indexer, true);
+            try (Closeable songs = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openSongs",
+                    AppClasses.type("CSVRecordSource"), String.class).invoke(songsFile);
+                 Closeable lyrics = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openLyrics",
+                         AppClasses.type("CSVRecordSource"), String.class).invoke(lyricsFile)) {
+                AppClasses.virtualMethod("SongLyricsIndexer", "indexSongLyrics", AppClasses.type("JoinReport"),
+                        Iterator.class, Iterator.class).invoke(indexer, songs, lyrics);
+            }
+            AppClasses.virtualMethod("MyIndexer", "close", void.class).invoke(indexer);
+        } finally {
+            Fixture.delete(fixture);
+        }
+        searcher = AppClasses.constructor("Searcher", String.class).invoke(indexDir.toString());
+        searchLines = AppClasses.virtualMethod("Searcher", "searchLines", List.class, String.class, int.class);
+        search = AppClasses.virtualMethod("Searcher", "search", AppClasses.type("SearchResults"),
+                String.class, String.class, int.class, Set.class);
+        // The fields of a line hit of a song (LuceneConstants)
+        songFields = new HashSet<>(Arrays.asList("songsSongName", "songsSingerName", "songsSongHref"));
+        queries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            // Two words of the vocabulary, from the most frequent words to the rare ones
+            queries[i] = Fixture.word(i * i / 2) + " " + Fixture.word(i * 7);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ((Closeable) searcher).close();
+        Fixture.delete(indexDir);
+    }
+
+    private String nextQuery() {
+        nextQuery = (nextQuery + 1) % QUERY_COUNT;
+        return queries[nextQuery];
+    }
+
+    /**
+     * The top 10 songs of a query in the lines, with their best line.
+     */
+    @Benchmark
+    public Object searchLines() throws Throwable {
+        return searchLines.invoke(searcher, nextQuery(), TOP_K);
+    }
+
+    /**
+     * The top 10 songs of the same query in the lyrics, without their lines.
+     */
+    @Benchmark
+    public Object searchLyrics() throws Throwable {
+        return search.invoke(searcher, nextQuery(), "songsLyrics", TOP_K, songFields);
+    }
+}
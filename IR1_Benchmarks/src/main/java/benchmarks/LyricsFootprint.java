@@ -0,0 +1,92 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * LyricsFootprint.java <br>
+ * This class measures the heap that the lyrics of the songs take, with the old representation
+ * (one LinkedList node and one String per row) and with the compact representation of the Lyrics class
+ * (one String per song and an int array with the offsets of the rows). <br>
+ * The lyrics are generated with a fixed seed, with about as many rows and words per row as the lyrics.csv file. <br>
+ * Usage: java -cp target/benchmarks.jar benchmarks.LyricsFootprint [number of songs...] (default: 25000 1000000) <br>
+ * The measurement of 1M songs needs a large heap (e.g. -Xmx8g) for the old representation. <br>
+ */
+public class LyricsFootprint {
+    private static final String[] WORDS = {"love", "baby", "night", "heart", "you", "me", "know", "never",
+            "time", "feel", "like", "world", "tonight", "yeah", "dance", "fire", "rain", "home", "away", "dream"};
+    private static final int LINES_PER_SONG = 40;
+    private static final int WORDS_PER_LINE = 6;
+
+    public static void main(String[] args) throws Throwable {
+        int[] songCounts = args.length == 0 ? new int[]{25000, 1000000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        MethodHandle newLyrics = AppClasses.constructor("Lyrics", String.class, String.class, String.class,
+                String.class);
+        for (int songCount : songCounts) {
+            long linkedListBytes = measure(songCount, null);
+            long compactBytes = measure(songCount, newLyrics);
+            System.out.println(songCount + " songs :");
+            System.out.println("  LinkedList<String> per row : " + linkedListBytes / (1024 * 1024) + " MB (" +
+                    linkedListBytes / songCount + " bytes per song)");
+            System.out.println("  Compact Lyrics             : " + compactBytes / (1024 * 1024) + " MB (" +
+                    compactBytes / songCount + " bytes per song)");
+        }
+    }
+
+    /**
+     * This method creates the lyrics of the songs, and returns the heap that they take.
+     * @param songCount The number of the songs
+     * @param newLyrics The constructor of the Lyrics class for the compact representation, or null for the old one
+     * @return The heap that the lyrics take, in bytes
+     */
+    private static long measure(int songCount, MethodHandle newLyrics) throws Throwable {
+        Random random = new Random(42);
+        long before = usedHeap();
+        Object[] songs = new Object[songCount];
+        for (int i = 0; i < songCount; i++) {
+            String text = generateLyrics(random);
+            if (newLyrics == null) {
+                // The old representation, which was filled with line[4].split("\n")
+                LinkedList<String> lyricsList = new LinkedList<>();
+                for (String lyricsRow : text.split("\n")) {
+                    lyricsList.add(lyricsRow);
+                }
+                songs[i] = lyricsList;
+            } else {
+                songs[i] = newLyrics.invoke("", "", "", text);
+            }
+        }
+        long after = usedHeap();
+        // Keep the lyrics reachable until the measurement is over
+        if (songs[songCount - 1] == null) {
+            System.out.println();
+        }
+        return after - before;
+    }
+
+    private static String generateLyrics(Random random) {
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < LINES_PER_SONG; line++) {
+            for (int word = 0; word < WORDS_PER_LINE; word++) {
+                if (word > 0) {
+                    text.append(' ');
+                }
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        // Run the garbage collector a few times, so that only the reachable objects are counted
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,112 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NormalizationBenchmark.java <br>
+ * This class measures the normalization of the singer and song names, in rows per second : the join key and the
+ * URL of CanonicalNames, and the regular expressions that the csv loaders and WebScrapping.prepareURL used before. <br>
+ * The names are generated from a fixed seed, with the variants of the csv files (" Lyrics", featured singers,
+ * parentheses, accents). <br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NormalizationBenchmark {
+    private static final int ROWS = 10000;
+    private static final String[] FIRST = {"Taylor", "Beyonc\u00e9", "The", "Lil", "Sigur", "Mr.", "DJ", "Ed"};
+    private static final String[] LAST = {"Swift", "Weeknd", "Wayne", "R\u00f3s", "Big", "Khaled", "Sheeran", "Knowles"};
+    private static final String[] SUFFIXES = {"", " Lyrics", " (feat. Drake)", " & Friends", ", Jay-Z", " ft. Sia Lyrics"};
+    private static final String[] SONG_WORDS = {"Love", "Don't", "Stop", "Night", "(Remix)", "Baby", "Fire!", "Home"};
+
+    private final String[] singerNames = new String[ROWS];
+    private final String[] songNames = new String[ROWS];
+    private Object canonicalNames;
+    private MethodHandle joinKey;
+    private MethodHandle urlSlug;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < ROWS; i++) {
+            singerNames[i] = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)] +
+                    SUFFIXES[random.nextInt(SUFFIXES.length)];
+            songNames[i] = SONG_WORDS[random.nextInt(SONG_WORDS.length)] + " " +
+                    SONG_WORDS[random.nextInt(SONG_WORDS.length)];
+        }
+        try {
+            canonicalNames = AppClasses.staticMethod("CanonicalNames", "getDefault",
+                    AppClasses.type("CanonicalNames")).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        joinKey = AppClasses.virtualMethod("CanonicalNames", "joinKey", String.class, String.class, String.class);
+        urlSlug = AppClasses.staticMethod("CanonicalNames", "urlSlug", String.class, String.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void canonicalJoinKey(Blackhole blackhole) throws Throwable {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume((String) joinKey.invoke(canonicalNames, singerNames[i], songNames[i]));
+        }
+    }
+
+    /**
+     * The cleaning of the singer names of the lyrics.csv file with four regular expressions, and the plain key.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void regexJoinKey(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            String singerName = singerNames[i].replace(" Lyrics", "");
+            singerName = singerName.replaceAll("\\(.*?\\) ?", "");
+            singerName = singerName.replaceAll(" &.*", "");
+            singerName = singerName.replaceAll(",.*", "");
+            singerName = singerName.trim();
+            blackhole.consume(singerName + '\u0000' + songNames[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void canonicalUrl(Blackhole blackhole) throws Throwable {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume((String) urlSlug.invoke(singerNames[i]));
+            blackhole.consume((String) urlSlug.invoke(songNames[i]));
+        }
+    }
+
+    /**
+     * The two regular expressions of the old WebScrapping.prepareURL.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void regexUrl(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(singerNames[i].replaceAll("[^\\w\\s-]", "").replaceAll("\\s+", "").trim()
+                    .toLowerCase());
+            blackhole.consume(songNames[i].replaceAll("[^\\w\\s-]", "").replaceAll("\\s+", "").trim()
+                    .toLowerCase());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScrapeBenchmark.java <br>
+ * This class measures the LyricsScraper against a StubLyricsServer with a fixed latency per page,
+ * for a number of threads, with an empty page cache (every page is fetched) and with a full page cache
+ * (a repeated run, where no page is fetched). <br>
+ * About 5% of the songs have no page, so the 404 responses are measured too. <br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScrapeBenchmark {
+    private static final int ARTIST_COUNT = 20;
+
+    @Param({"200"})
+    public int songCount;
+
+    @Param({"20"})
+    public long latencyMs;
+
+    @Param({"1", "4", "16"})
+    public int concurrency;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private Path pagesDir;
+    private StubLyricsServer server;
+    private List<Object> songs;
+    private Object settings;
+    private MethodHandle newPageCache;
+    private MethodHandle newScraper;
+    private MethodHandle scrape;
+    private Path cacheDir;
+    private Object scraper;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        pagesDir = Files.createTempDirectory("ir1-pages-");
+        MethodHandle newSongs = AppClasses.constructor("Songs", String.class, String.class, String.class);
+        songs = new ArrayList<>(songCount);
+        for (int i = 0; i < songCount; i++) {
+            String artist = "artist" + (i % ARTIST_COUNT);
+            String song = "song" + i;
+            if (i % 20 != 0) {
+                StubLyricsServer.writePage(pagesDir, artist, song, "first row of " + song, "second row", "last row");
+            }
+            songs.add(newSongs.invoke(artist, song, ""));
+        }
+        server = new StubLyricsServer(pagesDir, 0, latencyMs);
+        // No rate limit and no retries, so that the benchmark measures the concurrency and the cache
+        settings = AppClasses.constructor("ScraperSettings", String.class, int.class, double.class, int.class,
+                int.class, long.class, int.class)
+                .invoke(server.getBaseUrl(), concurrency, 1e9, 1000, 0, 0L, 10000);
+        newPageCache = AppClasses.constructor("PageCache", String.class);
+        newScraper = AppClasses.constructor("LyricsScraper", AppClasses.type("ScraperSettings"),
+                AppClasses.type("PageCache"));
+        scrape = AppClasses.virtualMethod("LyricsScraper", "scrape", List.class, List.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.close();
+        Fixture.delete(pagesDir);
+    }
+
+    @Setup(Level.Iteration)
+    public void createCache() throws Throwable {
+        cacheDir = Files.createTempDirectory("ir1-page-cache-");
+        scraper = newScraper.invoke(settings, newPageCache.invoke(cacheDir.toString()));
+        if (cached) {
+            // A first run fills the cache, and the measured run is the repeated one
+            scrape.invoke(scraper, songs);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCache() throws Exception {
+        Fixture.delete(cacheDir);
+    }
+
+    @Benchmark
+    public Object scrape() throws Throwable {
+        return scrape.invoke(scraper, songs);
+    }
+}
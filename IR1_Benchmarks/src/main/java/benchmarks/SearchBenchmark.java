@@ -0,0 +1,196 @@
+package benchmarks;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchBenchmark.java <br>
+ * This class measures the latency of Searcher.search on an index of the fixture dataset, for each field of the
+ * songs-lyrics index, and the retrieval of the stored documents of the hits. <br>
+ * The queries are single words of the fixture vocabulary, from the most frequent to the rare ones. <br>
+ * The overhead of the facet counts is the difference between searchFacets and searchResultList. <br>
+ * The saving of the early termination is the difference between searchExactCount and searchBM25, which counts
+ * the hits only as far as needed (block-max WAND). The ranking models are compared with the same early
+ * termination. <br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmark {
+    private static final int QUERY_COUNT = 64;
+
+    @Param({"25000"})
+    public int songCount;
+
+    // The fields of LuceneConstants that are indexed in the songs-lyrics index
+    @Param({"songsSongName", "songsSingerName", "songsLyrics"})
+    public String field;
+
+    private Path indexDir;
+    private Object searcher;
+    private MethodHandle search;
+    private MethodHandle searchFields;
+    private MethodHandle searchFacets;
+    private MethodHandle searchModel;
+    private Object bm25;
+    private Object vectorSpace;
+    private Object booleanModel;
+    private Set<String> resultListFields;
+    private String[] queries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Path fixture = Fixture.create(songCount);
+        indexDir = Files.createTempDirectory("ir1-search-");
+        try {
+            String songsFile = fixture.resolve(Fixture.SONGS_CSV).toString();
+            String lyricsFile = fixture.resolve(Fixture.LYRICS_CSV).toString();
+            Object indexer = AppClasses.constructor("SongLyricsIndexer", String.class).invoke(indexDir.toString());
+            try (Closeable songs = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openSongs",
+                    AppClasses.type("CSVRecordSource"), String.class).invoke(songsFile);
+                 Closeable lyrics = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openLyrics",
+                         AppClasses.type("CSVRecordSource"), String.class).invoke(lyricsFile)) {
+                AppClasses.virtualMethod("SongLyricsIndexer", "indexSongLyrics", AppClasses.type("JoinReport"),
+                        java.util.Iterator.class, java.util.Iterator.class).invoke(indexer, songs, lyrics);
+            }
+            AppClasses.virtualMethod("MyIndexer", "close", void.class).invoke(indexer);
+        } finally {
+            Fixture.delete(fixture);
+        }
+        searcher = AppClasses.constructor("Searcher", String.class).invoke(indexDir.toString());
+        search = AppClasses.virtualMethod("Searcher", "search", AppClasses.type("SearchResults"),
+                String.class, String.class, int.class);
+        searchFields = AppClasses.virtualMethod("Searcher", "search", AppClasses.type("SearchResults"),
+                String.class, String.class, int.class, Set.class);
+        searchFacets = AppClasses.virtualMethod("Searcher", "searchFacets", AppClasses.type("SearchResults"),
+                String.class, String.class, Map.class, ScoreDoc.class,
+                int.class, Set.class);
+        Class<?> rankingModel = AppClasses.type("RankingModel");
+        searchModel = AppClasses.virtualMethod("Searcher", "searchAfter", AppClasses.type("SearchResults"),
+                String.class, String.class, ScoreDoc.class, int.class, Set.class, rankingModel, boolean.class);
+        bm25 = rankingModel.getField("BM25").get(null);
+        vectorSpace = rankingModel.getField("VECTOR_SPACE").get(null);
+        booleanModel = rankingModel.getField("BOOLEAN").get(null);
+        // The fields of a result list: the song name and the singer name (LuceneConstants)
+        resultListFields = new HashSet<>(Arrays.asList("songsSongName", "songsSingerName"));
+        queries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            // Spread the queries over the vocabulary, from the most frequent words to the rare ones
+            queries[i] = Fixture.word(i * i / 2);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ((Closeable) searcher).close();
+        Fixture.delete(indexDir);
+    }
+
+    private String nextQuery() {
+        nextQuery = (nextQuery + 1) % QUERY_COUNT;
+        return queries[nextQuery];
+    }
+
+    /**
+     * The top 10 hits of a query, with their documents.
+     */
+    @Benchmark
+    public Object search() throws Throwable {
+        return search.invoke(searcher, nextQuery(), field, 10);
+    }
+
+    /**
+     * The top 100 hits of a query, with their documents, where most of the time is spent
+     * in the retrieval of the stored documents.
+     */
+    @Benchmark
+    public Object retrieveDocuments() throws Throwable {
+        return search.invoke(searcher, nextQuery(), field, 100);
+    }
+
+    /**
+     * The top 100 hits of a query, with only the fields of a result list (song name and singer name)
+     * loaded, for the comparison with retrieveDocuments.
+     */
+    @Benchmark
+    public Object retrieveResultList() throws Throwable {
+        return searchFields.invoke(searcher, nextQuery(), field, 100, resultListFields);
+    }
+
+    /**
+     * The top 10 hits of a query, with only the fields of a result list, as the baseline of searchFacets.
+     */
+    @Benchmark
+    public Object searchResultList() throws Throwable {
+        return searchFields.invoke(searcher, nextQuery(), field, 10, resultListFields);
+    }
+
+    /**
+     * The top 10 hits of a query ranked by BM25, with the exact count of all the hits, so every match is scored.
+     */
+    @Benchmark
+    public Object searchExactCount() throws Throwable {
+        return searchModel.invoke(searcher, nextQuery(), field, null, 10, resultListFields, bm25, true);
+    }
+
+    /**
+     * The top 10 hits of a query ranked by BM25, counted only as far as needed.
+     */
+    @Benchmark
+    public Object searchBM25() throws Throwable {
+        return searchModel.invoke(searcher, nextQuery(), field, null, 10, resultListFields, bm25, false);
+    }
+
+    /**
+     * The top 10 hits of a query ranked by the classic TF-IDF vector space model, counted only as far as needed.
+     */
+    @Benchmark
+    public Object searchVectorSpace() throws Throwable {
+        return searchModel.invoke(searcher, nextQuery(), field, null, 10, resultListFields, vectorSpace, false);
+    }
+
+    /**
+     * The first 10 matches of a query in the order of the documents (Boolean model), without scores.
+     */
+    @Benchmark
+    public Object searchBoolean() throws Throwable {
+        return searchModel.invoke(searcher, nextQuery(), field, null, 10, resultListFields, booleanModel, false);
+    }
+
+    /**
+     * The top 10 hits of a query, with only the fields of a result list, and the singer facet counts
+     * of all the hits, computed in the same pass.
+     */
+    @Benchmark
+    public Object searchFacets() throws Throwable {
+        return searchFacets.invoke(searcher, nextQuery(), field, Collections.emptyMap(), null, 10,
+                resultListFields);
+    }
+}
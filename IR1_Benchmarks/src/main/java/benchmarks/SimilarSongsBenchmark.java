@@ -0,0 +1,112 @@
+package benchmarks;
+
+import org.apache.lucene.document.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SimilarSongsBenchmark.java <br>
+ * This class measures the lookup of the similar songs of a song (Searcher.similarSongs), from the table that the
+ * SimilarSongsJob computes on an index of the fixture dataset with the term vectors of the lyrics. <br>
+ * The time of the job itself is printed once, in the setup. <br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimilarSongsBenchmark {
+    private static final int SONG_COUNT = 64;
+    private static final int TOP_N = 10;
+
+    @Param({"25000"})
+    public int songCount;
+
+    private Path indexDir;
+    private Object searcher;
+    private Object similarSongs;
+    private MethodHandle similar;
+    private Set<String> resultListFields;
+    private String[] songHrefs;
+    private int nextSong;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Path fixture = Fixture.create(songCount);
+        indexDir = Files.createTempDirectory("ir1-similar-");
+        try {
+            String songsFile = fixture.resolve(Fixture.SONGS_CSV).toString();
+            String lyricsFile = fixture.resolve(Fixture.LYRICS_CSV).toString();
+            Object indexer = AppClasses.constructor("SongLyricsIndexer", String.class).invoke(indexDir.toString());
+            AppClasses.virtualMethod("SongLyricsIndexer", "setStoreTermVectors", void.class, boolean.class)
+                    .invoke(indexer, true);
+            try (Closeable songs = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openSongs",
+                    AppClasses.type("CSVRecordSource"), String.class).invoke(songsFile);
+                 Closeable lyrics = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openLyrics",
+                         AppClasses.type("CSVRecordSource"), String.class).invoke(lyricsFile)) {
+                AppClasses.virtualMethod("SongLyricsIndexer", "indexSongLyrics", AppClasses.type("JoinReport"),
+                        Iterator.class, Iterator.class).invoke(indexer, songs, lyrics);
+            }
+            AppClasses.virtualMethod("MyIndexer", "close", void.class).invoke(indexer);
+        } finally {
+            Fixture.delete(fixture);
+        }
+        System.out.println(AppClasses.staticMethod("SimilarSongsJob", "run", String.class, String.class,
+                int.class, int.class).invoke(indexDir.toString(), TOP_N, Runtime.getRuntime().availableProcessors()));
+        searcher = AppClasses.constructor("Searcher", String.class).invoke(indexDir.toString());
+        similarSongs = AppClasses.staticMethod("SimilarSongs", "open", AppClasses.type("SimilarSongs"), String.class)
+                .invoke(indexDir.toString());
+        similar = AppClasses.virtualMethod("Searcher", "similarSongs", Document[].class, String.class,
+                AppClasses.type("SimilarSongs"), Set.class);
+        // The fields of a result list: the song name and the singer name (LuceneConstants)
+        resultListFields = new HashSet<>(Arrays.asList("songsSongName", "songsSingerName"));
+        // The songs of the lookups are the top hits of words of the fixture vocabulary
+        MethodHandle search = AppClasses.virtualMethod("Searcher", "search", AppClasses.type("SearchResults"),
+                String.class, String.class, int.class, Set.class);
+        MethodHandle getDocuments = AppClasses.virtualMethod("SearchResults", "getDocuments", Document[].class);
+        songHrefs = new String[SONG_COUNT];
+        for (int i = 0; i < SONG_COUNT; i++) {
+            Document[] hits = (Document[]) getDocuments.invoke(search.invoke(searcher, Fixture.word(i * i / 2),
+                    "songsLyrics", 1, Collections.singleton("songsSongHref")));
+            songHrefs[i] = hits[0].get("songsSongHref");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ((Closeable) searcher).close();
+        Fixture.delete(indexDir);
+    }
+
+    /**
+     * The 10 similar songs of a song, with the fields of a result list.
+     */
+    @Benchmark
+    public Object similarSongs() throws Throwable {
+        nextSong = (nextSong + 1) % SONG_COUNT;
+        return similar.invoke(searcher, songHrefs[nextSong], similarSongs, resultListFields);
+    }
+}
@@ -0,0 +1,118 @@
+package benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * StubLyricsServer.java <br>
+ * This class is a local HTTP server that serves saved lyrics pages, with the same paths and the same HTML
+ * structure as the lyrics site, so that the LyricsScraper can be run offline. <br>
+ * Each response waits for a fixed latency, like a remote server, and the missing pages get a 404 response. <br>
+ * Usage: java -cp target/benchmarks.jar benchmarks.StubLyricsServer pagesDir [port] [latency ms] <br>
+ * and then run the scraper with -Dscraper.baseUrl=http://127.0.0.1:port/lyrics/ <br>
+ */
+final class StubLyricsServer implements AutoCloseable {
+    static final String CONTEXT = "/lyrics/";
+
+    private final Path pagesDir;
+    private final long latencyMs;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor of the class. <br>
+     * It starts the server on the loopback address. <br>
+     * @param pagesDir The directory of the pages, with one directory per artist and one file per song
+     * @param port The port of the server, or 0 for any free port
+     * @param latencyMs The wait before each response
+     * @throws IOException
+     */
+    StubLyricsServer(Path pagesDir, int port, long latencyMs) throws IOException {
+        this.pagesDir = pagesDir;
+        this.latencyMs = latencyMs;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(CONTEXT, this::handle);
+        // The waiting responses must not block the others, so that the server is not the bottleneck
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path pagesDir = Paths.get(args[0]);
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        long latencyMs = args.length > 2 ? Long.parseLong(args[2]) : 50;
+        StubLyricsServer server = new StubLyricsServer(pagesDir, port, latencyMs);
+        System.out.println("Serving " + pagesDir + " at " + server.getBaseUrl());
+    }
+
+    /**
+     * This method returns the URL of the pages, for the scraper.baseUrl setting of the scraper.
+     */
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + CONTEXT;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String path = exchange.getRequestURI().getPath().substring(CONTEXT.length());
+        Path page = pagesDir.resolve(path).normalize();
+        byte[] body;
+        int status;
+        if (page.startsWith(pagesDir) && Files.isRegularFile(page)) {
+            body = Files.readAllBytes(page);
+            status = 200;
+        } else {
+            body = "<html><body>Not found</body></html>".getBytes(StandardCharsets.UTF_8);
+            status = 404;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * This method writes a lyrics page, with the HTML structure that WebScrapping.parseLyrics expects.
+     * @param pagesDir The directory of the pages
+     * @param artist The artist name, as prepared by WebScrapping.prepareURL
+     * @param song The song name, as prepared by WebScrapping.prepareURL
+     * @param lyrics The rows of the lyrics
+     * @throws IOException
+     */
+    static void writePage(Path pagesDir, String artist, String song, String... lyrics) throws IOException {
+        StringBuilder html = new StringBuilder("<html><body><div class=\"container main-page\">")
+                .append("<div class=\"col-xs-12 col-lg-8 text-center\"><div class=\"ringtone\"></div>")
+                .append("<b>\"").append(song).append("\"</b><br><br><div>\n")
+                .append("<!-- Usage of azlyrics.com content by any third-party lyrics provider is prohibited. -->\n");
+        for (String row : lyrics) {
+            html.append(row).append("<br>\n");
+        }
+        html.append("</div></div></div></body></html>");
+        Path page = pagesDir.resolve(artist).resolve(song + ".html");
+        Files.createDirectories(page.getParent());
+        Files.write(page, html.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,94 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SuggestBenchmark.java <br>
+ * This class measures the latency of the autocomplete (Suggestions.lookup) of the song names and the singer
+ * names of an index of the fixture dataset, for prefixes of 2 to 4 characters. <br>
+ * It is measured in the SampleTime mode, so the result has the p99 of the lookups. <br>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SuggestBenchmark {
+    private static final int PREFIX_COUNT = 64;
+    private static final int SUGGESTIONS = 8;
+
+    @Param({"25000"})
+    public int songCount;
+
+    private Path indexDir;
+    private Object suggestions;
+    private MethodHandle lookup;
+    private String[] prefixes;
+    private int nextPrefix;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Path fixture = Fixture.create(songCount);
+        indexDir = Files.createTempDirectory("ir1-suggest-");
+        try {
+            String songsFile = fixture.resolve(Fixture.SONGS_CSV).toString();
+            String lyricsFile = fixture.resolve(Fixture.LYRICS_CSV).toString();
+            Object indexer = AppClasses.constructor("SongLyricsIndexer", String.class).invoke(indexDir.toString());
+            try (Closeable songs = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openSongs",
+                    AppClasses.type("CSVRecordSource"), String.class).invoke(songsFile);
+                 Closeable lyrics = (Closeable) AppClasses.staticMethod("CSVFileFilter", "openLyrics",
+                         AppClasses.type("CSVRecordSource"), String.class).invoke(lyricsFile)) {
+                AppClasses.virtualMethod("SongLyricsIndexer", "indexSongLyrics", AppClasses.type("JoinReport"),
+                        Iterator.class, Iterator.class).invoke(indexer, songs, lyrics);
+            }
+            // The suggestions are stored when the indexer is closed
+            AppClasses.virtualMethod("MyIndexer", "close", void.class).invoke(indexer);
+        } finally {
+            Fixture.delete(fixture);
+        }
+        suggestions = AppClasses.staticMethod("Suggestions", "load", AppClasses.type("Suggestions"), String.class)
+                .invoke(indexDir.toString());
+        lookup = AppClasses.virtualMethod("Suggestions", "lookup", List.class, String.class, int.class);
+        prefixes = new String[PREFIX_COUNT];
+        for (int i = 0; i < PREFIX_COUNT; i++) {
+            // The names of the fixture start with the words of its vocabulary
+            String word = Fixture.word(i * i / 2);
+            prefixes[i] = word.substring(0, Math.min(word.length(), 2 + i % 3));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Fixture.delete(indexDir);
+    }
+
+    /**
+     * The 8 most popular names that start with a prefix.
+     */
+    @Benchmark
+    public Object lookup() throws Throwable {
+        nextPrefix = (nextPrefix + 1) % PREFIX_COUNT;
+        return lookup.invoke(suggestions, prefixes[nextPrefix], SUGGESTIONS);
+    }
+}
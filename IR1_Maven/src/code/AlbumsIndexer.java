@@ -1,16 +1,26 @@
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
 
 /**
  * This class contains the code for the creation of the index of the albiums. <br>
@@ -21,12 +31,18 @@ public class AlbumsIndexer extends MyIndexer{
     // The information in the albums.csv file is cut off
     // from the lyrics.csv and songs.csv files, so we will
     // index the albums.csv file, in a separate index.
+    // The two indexes are joined on the SINGER_KEY field (see Searcher.searchJoin)
 
     public AlbumsIndexer(String indexDir)
     {
         super(indexDir);
     }
 
+    public AlbumsIndexer(String indexDir, IndexerSettings settings)
+    {
+        super(indexDir, settings);
+    }
+
 
     /**
      * This method creates the index of the albums. <br>
@@ -38,11 +54,101 @@ public class AlbumsIndexer extends MyIndexer{
      * @see CSVFileFilter#createAlbumsObjects(String fileName, int numberOfAlbums)
      */
     public void indexAlbumsFile(Albums[] albums) throws IOException {
-        // For each album stored in the albums, create a document and add it to the index
-        for (Albums album : albums) {
-            Document albumsDocument = getAlbumsDocument(album);
-            writer.addDocument(albumsDocument);
+        indexAlbums(Arrays.asList(albums).iterator());
+    }
+
+    /**
+     * This method creates the index of the albums, from the stream of the albums. <br>
+     * Each album is added to the index as soon as it is read, so the albums are never kept in memory. <br>
+     * Like in updateAlbums, only the first album with a key is indexed, so both modes build the same index. <br>
+     * @param albums The stream of the albums
+     * @throws IOException
+     * @see CSVFileFilter#openAlbums(String fileName)
+     */
+    public void indexAlbums(Iterator<Albums> albums) throws IOException {
+        // For each album of the stream, create a document and submit it to the indexing pipeline
+        IndexingPipeline pipeline = startPipeline();
+        Iterator<Albums> timedAlbums = Metrics.get().timeParse(albums);
+        Set<String> albumKeys = new HashSet<>();
+        int duplicates = 0;
+        try {
+            while (timedAlbums.hasNext()) {
+                Albums album = timedAlbums.next();
+                addSuggestion(album.getAlbumName());
+                if (!albumKeys.add(albumKey(album))) {
+                    duplicates++;
+                    continue;
+                }
+                Document albumsDocument = buildDocument(() -> getAlbumsDocument(album));
+                pipeline.submit(albumsDocument);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Stop the workers, e.g. when the indexing was cancelled
+            pipeline.abort();
+            throw e;
+        }
+        pipeline.finish();
+        System.out.println("Albums index : " + duplicates + " duplicate keys skipped");
+    }
+
+    /**
+     * This method updates an existing index of the albums, from the stream of the albums. <br>
+     * Only the albums that were added, changed or removed since the last update are written to the index. <br>
+     * The albums are identified by the synthetic key of the singer name, the album name and the album year. <br>
+     * @param albums The stream of the albums
+     * @return The IncrementalUpdate, with the number of the added, changed, unchanged and deleted albums
+     * @throws IOException
+     * @see IncrementalUpdate
+     */
+    public IncrementalUpdate updateAlbums(Iterator<Albums> albums) throws IOException {
+        IncrementalUpdate update = startIncrementalUpdate(LuceneConstants.ALBUMS_ALBUM_KEY);
+        Iterator<Albums> timedAlbums = Metrics.get().timeParse(albums);
+        try {
+            while (timedAlbums.hasNext()) {
+                Albums album = timedAlbums.next();
+                addSuggestion(album.getAlbumName());
+                update.apply(albumKey(album), albumHash(album), () -> buildDocument(() -> getAlbumsDocument(album)));
+            }
+        } catch (IOException | RuntimeException e) {
+            update.abort();
+            throw e;
         }
+        update.finish();
+        return update;
+    }
+
+    /**
+     * This method creates the unique key of an album, from the singer name, the album name and the album year. <br>
+     * @param album The Albums object
+     * @return The key of the album
+     */
+    static String albumKey(Albums album) {
+        return album.getSingerName() + '\u0000' + album.getAlbumName() + '\u0000' + album.getAlbumYear();
+    }
+
+    /**
+     * This method returns the year of an album as a number. <br>
+     * The year is the first 4 digits of the album year of the csv file (e.g. "2019" or "2019.0"). <br>
+     * @param albumYear The album year of the csv file
+     * @return The year, or null if the album year has no year
+     */
+    static Integer parseYear(String albumYear) {
+        int digits = 0;
+        for (int i = 0; i < albumYear.length(); i++) {
+            if (Character.isDigit(albumYear.charAt(i))) {
+                digits++;
+                if (digits == 4) {
+                    return Integer.parseInt(albumYear.substring(i - 3, i + 1));
+                }
+            } else {
+                digits = 0;
+            }
+        }
+        return null;
+    }
+
+    private static String albumHash(Albums album) {
+        return contentHash(album.getSingerName(), album.getAlbumName(), album.getAlbumType(), album.getAlbumYear());
     }
 
     /**
@@ -59,6 +165,26 @@ public class AlbumsIndexer extends MyIndexer{
         document.add(new TextField(LuceneConstants.ALBUMS_ALBUM_NAME, albumsObj.getAlbumName(), Field.Store.YES));
         document.add(new TextField(LuceneConstants.ALBUMS_ALBUM_TYPE, albumsObj.getAlbumType(), Field.Store.YES));
         document.add(new TextField(LuceneConstants.ALBUMS_ALBUM_YEAR, albumsObj.getAlbumYear(), Field.Store.YES));
-        return document;
+        // Add the year as a number, for the range queries (BKD tree) and the sorting by year (doc values)
+        // The stored text of the year is kept for the display
+        Integer year = parseYear(albumsObj.getAlbumYear());
+        if (year != null) {
+            document.add(new IntPoint(LuceneConstants.ALBUMS_ALBUM_YEAR_VALUE, year));
+            document.add(new NumericDocValuesField(LuceneConstants.ALBUMS_ALBUM_YEAR_VALUE, year));
+        }
+        // Add the normalized singer name, for the join with the songs-lyrics index
+        addSingerKey(document, albumsObj.getSingerName());
+        // Add the facets, for the counts of the hits by singer, album type and decade
+        FacetFields.addFacet(document, FacetFields.SINGER, albumsObj.getSingerName());
+        FacetFields.addFacet(document, FacetFields.ALBUM_TYPE, albumsObj.getAlbumType());
+        if (year != null) {
+            FacetFields.addFacet(document, FacetFields.DECADE, FacetFields.decade(year));
+        }
+        // Add the unique key and the content hash, for the incremental update
+        String key = albumKey(albumsObj);
+        document.add(new StringField(LuceneConstants.ALBUMS_ALBUM_KEY, key, Field.Store.NO));
+        document.add(new SortedDocValuesField(LuceneConstants.ALBUMS_ALBUM_KEY, new BytesRef(key)));
+        document.add(new BinaryDocValuesField(LuceneConstants.CONTENT_HASH, new BytesRef(albumHash(albumsObj))));
+        return FacetFields.build(document);
     }
 }
@@ -1,18 +1,35 @@
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Task;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopDocs;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.InputMismatchException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.layout.HBox;
@@ -32,6 +49,10 @@ public class App extends Application {
     // Specify the path of the Index directory(String)
     static final String indexDir = currentPath + "\\Index";
     static final String albumsIndexDir = currentPath + "\\AlbumsIndex";
+    // The source csv files of the indexes
+    static final String songsCsv = currentPath + "\\Data\\songs.csv";
+    static final String albumsCsv = currentPath + "\\Data\\albums.csv";
+    static final String lyricsCsv = currentPath + "\\Data\\lyrics.csv";
 
     static final String LYRICS = "lyrics";
     static final String SONGS = "songs";
@@ -39,10 +60,59 @@ public class App extends Application {
     static final String[] SongLyricsFields = {LuceneConstants.SONGS_SONG_NAME,
             LuceneConstants.SONGS_SINGER_NAME,
             LuceneConstants.LYRICS_LYRICS_TEXT};
+    // The boosts of the fields, for the search in all the song-lyrics fields with one query
+    // A match in the song name or the singer name is worth more than a match somewhere in the lyrics
+    static final Map<String, Float> SongLyricsFieldBoosts = new LinkedHashMap<>();
+    static {
+        SongLyricsFieldBoosts.put(LuceneConstants.SONGS_SONG_NAME, 3.0f);
+        SongLyricsFieldBoosts.put(LuceneConstants.SONGS_SINGER_NAME, 2.0f);
+        SongLyricsFieldBoosts.put(LuceneConstants.LYRICS_LYRICS_TEXT, 1.0f);
+    }
     static final String[] AlbumsFields = {LuceneConstants.ALBUMS_ALBUM_NAME,
             LuceneConstants.ALBUMS_SINGER_NAME,
             LuceneConstants.ALBUMS_ALBUM_TYPE,
             LuceneConstants.ALBUMS_ALBUM_YEAR};
+    // The columns of the tables of the hits, and the only stored fields that are loaded for them
+    // (the lyrics are large, so they are not loaded for the list of the hits)
+    static final String[] SongsTableFields = {LuceneConstants.SONGS_SONG_NAME, LuceneConstants.SONGS_SINGER_NAME};
+    static final String[] AlbumsTableFields = AlbumsFields;
+    // The href of the songs is also loaded, for the lookup of the similar songs of a hit
+    static final Set<String> SongsTableFieldSet = new HashSet<>(Arrays.asList(LuceneConstants.SONGS_SONG_NAME,
+            LuceneConstants.SONGS_SINGER_NAME, LuceneConstants.SONGS_SONG_HREF));
+    static final Set<String> AlbumsTableFieldSet = new HashSet<>(Arrays.asList(AlbumsTableFields));
+    // The maximum number of the hits of a search in the GUI
+    static final int TOP_K = 1000;
+    // The number of the names of the autocomplete of a query
+    static final int SUGGESTIONS = 8;
+    // The shortest prefix that is completed
+    static final int MIN_SUGGESTION_PREFIX = 2;
+    // The bounds of the cache of the first pages of the searches of each index
+    static final int CACHE_ENTRIES = 256;
+    static final long CACHE_BYTES = 16L * 1024 * 1024;
+
+    // The live indexer of the songs-lyrics index, which adds the scraped lyrics while the application runs,
+    // and whose near-real-time searcher the GUI searches
+    private static LiveSongLyricsIndexer liveIndexer;
+    // Whether the indexes are being built or updated, when the live indexer can not be opened
+    private static boolean indexing;
+    // The Searcher objects of the GUI, which are opened on the first search
+    private static Searcher songLyricsSearcher;
+    private static Searcher albumsSearcher;
+    // The caches of the first pages of the searches, which are emptied when their index changes
+    private static CachingSearcher songLyricsCache;
+    private static CachingSearcher albumsCache;
+    // The suggestions of the names of the indexes, which are loaded in the background on the first lookup
+    private static volatile List<Suggestions> suggestions;
+    private static boolean loadingSuggestions;
+    // The table of the similar songs of the songs-lyrics index, which is opened on the first lookup
+    private static SimilarSongs similarSongs;
+    // The background threads of the searches and the lookups of the dialogs, which are shared by all the dialogs
+    // (an idle thread ends after a minute), so that the disk is never read in the JavaFX thread
+    private static final ExecutorService backgroundExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "background-search");
+        thread.setDaemon(true);
+        return thread;
+    });
 
 
     int leftParenthCount=0;
@@ -87,42 +157,535 @@ public class App extends Application {
     }
 
     /**
-     * This is a generic method, which retrieves the records from the
-     * specified file, and returns them as an array of objects, depending
-     * on the type of the T variable.
-     * @param fileName The name of the file to be read
-     * @param type The type of the objects to be returned(Songs, Albums or Lyrics)
-     * @return An array of objects, depending on the type of the T variable
-     * @param <T>
+     * What is done to an index, so that it matches its csv files.
+     */
+    private enum IndexAction {
+        // The index was built from the same csv files, with the same schema and options
+        REUSE,
+        // Only the csv files changed, so only the records that were added, changed or removed are written
+        UPDATE,
+        // There is no index, or its schema or options changed, so it is built from scratch
+        REBUILD
+    }
+
+    /**
+     * This method chooses what is done to an index, from its fingerprint, and prints the reason.
+     * @param name The name of the index, for the message
+     * @param fingerprint The fingerprint of the current csv files and options
+     * @param index The directory of the index
+     * @return The IndexAction of the index
+     */
+    private static IndexAction chooseAction(String name, IndexFingerprint fingerprint, String index) {
+        String change = fingerprint.findChange(index);
+        if (change == null) {
+            System.out.println(name + " index : reused");
+            return IndexAction.REUSE;
+        }
+        if (fingerprint.canUpdate(index)) {
+            System.out.println(name + " index : updated, because " + change);
+            return IndexAction.UPDATE;
+        }
+        System.out.println(name + " index : rebuilt, because " + change);
+        return IndexAction.REBUILD;
+    }
+
+    /**
+     * This method creates the songs-lyrics and the albums indexes. <br>
+     * Each csv file is memory-mapped and parsed in parallel chunks, and its records are fed straight into
+     * the indexers, so the songs, albums and lyrics are never kept in memory as arrays. <br>
+     * The two indexes are independent, so they are built at the same time. <br>
+     * An updated index is kept, and only the records that were added, changed or removed since the last
+     * update are written to it. <br>
+     * @param albums What is done to the albums index
+     * @param songLyrics What is done to the songs-lyrics index
      */
-    private static <T> T getRecords(String fileName, String type) {
-        int numberOfRecords = 0;
+    private static void createIndexes(IndexAction albums, IndexAction songLyrics) {
+        // Get the current time, for the calculation of the indexing time
+        long startTime = System.currentTimeMillis();
+
         try {
-            switch (type) {
-                case LYRICS:
-                    numberOfRecords = CSVFileFilter.getNumberOfLyricRecords(fileName);
-                    break;
-                case SONGS:
-                    numberOfRecords = CSVFileFilter.getNumberOfRecords(fileName);
-                    break;
-                case ALBUMS:
-                    numberOfRecords = CSVFileFilter.getNumberOfRecords(fileName);
-                    break;
+            if (!runIndexers(albums, songLyrics, () -> false, () -> { })) {
+                System.err.println("The indexing was interrupted");
+                System.exit(1);
+            }
+        } catch (Exception e) {
+            System.err.println("Error creating the indexes : " + e);
+            e.printStackTrace();
+            System.exit(1);
+        }
+        didIndexesCreated = "Indexes created successfully";
+
+        long endTime = System.currentTimeMillis();
+
+        indexingTime = "Indexing completed in : " + (endTime - startTime) + " ms";
+    }
+
+    /**
+     * This method builds or updates the two indexes at the same time, with one thread for each index,
+     * and waits for them. <br>
+     * The files of a rebuilt index are deleted first. <br>
+     * @param albums What is done to the albums index
+     * @param songLyrics What is done to the songs-lyrics index
+     * @param cancelled Whether the indexing was cancelled, which is checked while waiting
+     * @param progress Called while waiting, about every 100 ms
+     * @return True if the indexes were built, false if the indexing was cancelled or interrupted
+     * @throws Exception The exception of the indexing of an index
+     */
+    private static boolean runIndexers(IndexAction albums, IndexAction songLyrics, BooleanSupplier cancelled,
+                                       Runnable progress) throws Exception {
+        // Delete all files in the Index directory, if any.
+        if (songLyrics == IndexAction.REBUILD) {
+            deleteFiles(indexDir);
+        }
+        // Delete all files in the AlbumsIndex directory, if any.
+        if (albums == IndexAction.REBUILD) {
+            deleteFiles(albumsIndexDir);
+        }
+        IndexerSettings settings = IndexerSettings.defaults();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> albumsIndex = executor.submit(() -> {
+            if (albums != IndexAction.REUSE) {
+                createAlbumsIndex(settings, albums == IndexAction.UPDATE);
+            }
+            return null;
+        });
+        Future<?> songLyricsIndex = executor.submit(() -> {
+            if (songLyrics != IndexAction.REUSE) {
+                createSongLyricsIndex(settings, songLyrics == IndexAction.UPDATE);
+            }
+            return null;
+        });
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+                if (cancelled.getAsBoolean()) {
+                    // Interrupt the readers of the csv files, the indexing workers are not interrupted
+                    executor.shutdownNow();
+                }
+                progress.run();
             }
+        } catch (InterruptedException e) {
+            // The thread was interrupted while it was waiting (e.g. the task was cancelled)
+            executor.shutdownNow();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            return false;
+        }
+        if (cancelled.getAsBoolean()) {
+            return false;
+        }
+        try {
+            albumsIndex.get();
+            songLyricsIndex.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        return true;
+    }
+
+    /**
+     * This method prepares the indexes at startup. <br>
+     * An existing index is reused if it was built from the same csv files (same size and modification time)
+     * with the same schema version, which only reads the user data of its last commit. <br>
+     * If only the csv files of an index changed, the index is updated incrementally, otherwise (no index,
+     * or another schema or options) it is rebuilt. <br>
+     * It prints which of the paths was taken for each index, and why.
+     * @see IndexFingerprint
+     */
+    private static void openOrCreateIndexes() {
+        long startTime = System.currentTimeMillis();
+        IndexAction albums;
+        IndexAction songLyrics;
+        try {
+            albums = chooseAction("Albums", albumsFingerprint(), albumsIndexDir);
+            songLyrics = chooseAction("Songs-Lyrics", songLyricsFingerprint(), indexDir);
         } catch (IOException e) {
-            System.out.println("Error finding out the number of records in the " + fileName + " file");
+            System.err.println("Error reading the csv files");
             System.exit(1);
+            return;
+        }
+        if (albums == IndexAction.REUSE && songLyrics == IndexAction.REUSE) {
+            didIndexesCreated = "Reused the existing indexes (the csv files and the schema are unchanged)";
+            indexingTime = "Indexes checked in : " + (System.currentTimeMillis() - startTime) + " ms";
+            System.out.println(didIndexesCreated);
+            System.out.println(indexingTime);
+            return;
+        }
+        createIndexes(albums, songLyrics);
+        didIndexesCreated = "Albums index " + albums.name().toLowerCase(Locale.ROOT) + ", songs-lyrics index "
+                + songLyrics.name().toLowerCase(Locale.ROOT);
+        System.out.println(didIndexesCreated);
+        System.out.println(indexingTime);
+    }
+
+    /**
+     * This method returns the fingerprint of the sources of the albums index.
+     * @return The IndexFingerprint object
+     * @throws IOException If the csv file can not be read
+     */
+    private static IndexFingerprint albumsFingerprint() throws IOException {
+        return IndexFingerprint.of(albumsCsv);
+    }
+
+    /**
+     * This method returns the fingerprint of the sources and the options of the songs-lyrics index.
+     * @return The IndexFingerprint object
+     * @throws IOException If a csv file can not be read
+     */
+    private static IndexFingerprint songLyricsFingerprint() throws IOException {
+        return IndexFingerprint.of(songsCsv, lyricsCsv)
+                .withOption("allText", Boolean.toString(Boolean.getBoolean("indexer.allText")))
+                .withOption("lines", Boolean.toString(Boolean.getBoolean("indexer.lines")))
+                .withOption("dedup", Boolean.getBoolean("indexer.dedup")
+                        ? System.getProperty("indexer.dedupThreshold", "0.8") : "false")
+                .withOption("termVectors", Boolean.toString(Boolean.getBoolean("indexer.termVectors")));
+    }
+
+    /**
+     * This method returns a Task that creates the songs-lyrics and the albums indexes in the background,
+     * like createIndexes, for the GUI. <br>
+     * The message of the task is the number of the documents indexed so far. <br>
+     * When the task is cancelled, the indexing stops after the documents that are being added, and the
+     * changes of the indexes since their last commit are discarded. <br>
+     * @param rebuild True to rebuild both indexes, false to update only the indexes whose csv files changed
+     * (or to rebuild them, if their schema or options changed), like openOrCreateIndexes
+     * @return The Task object, which is not started yet
+     * @see #createIndexes(IndexAction, IndexAction)
+     */
+    private static Task<Void> createIndexesTask(boolean rebuild) {
+        return new Task<Void>() {
+            @Override
+            protected Void call() throws Exception {
+                IndexAction albums = rebuild ? IndexAction.REBUILD
+                        : chooseAction("Albums", albumsFingerprint(), albumsIndexDir);
+                IndexAction songLyrics = rebuild ? IndexAction.REBUILD
+                        : chooseAction("Songs-Lyrics", songLyricsFingerprint(), indexDir);
+                if (albums == IndexAction.REBUILD || songLyrics != IndexAction.REUSE) {
+                    // Release the files of the indexes before they are deleted, and the IndexWriter of the live
+                    // indexer, since only one IndexWriter can be open on the songs-lyrics index
+                    setIndexing(true);
+                    closeSearchers();
+                }
+                try {
+                    buildIndexes(albums, songLyrics);
+                } finally {
+                    setIndexing(false);
+                }
+                return null;
+            }
+
+            private void buildIndexes(IndexAction albums, IndexAction songLyrics) throws Exception {
+                long startTime = System.currentTimeMillis();
+                long startDocs = Metrics.get().getDocumentsIndexed();
+                updateProgress(-1, 1);
+                if (!runIndexers(albums, songLyrics, () -> isCancelled(), () -> updateMessage(
+                        (Metrics.get().getDocumentsIndexed() - startDocs) + " documents indexed"))) {
+                    return;
+                }
+                long docs = Metrics.get().getDocumentsIndexed() - startDocs;
+                // The suggestions and the similar songs were rebuilt with the indexes
+                resetSuggestions();
+                resetSimilarSongs();
+                didIndexesCreated = "Albums index " + albums.name().toLowerCase(Locale.ROOT)
+                        + ", songs-lyrics index " + songLyrics.name().toLowerCase(Locale.ROOT);
+                indexingTime = "Indexing completed in : " + (System.currentTimeMillis() - startTime) + " ms";
+                updateMessage(indexingTime + " (" + docs + " documents)");
+                updateProgress(1, 1);
+            }
+        };
+    }
+
+    /**
+     * This method creates the albums index, from the albums.csv file.
+     * @param settings The settings of the indexing pipeline
+     * @param incremental True to update the existing index, false to build it from scratch
+     */
+    private static void createAlbumsIndex(IndexerSettings settings, boolean incremental) throws IOException {
+        // The fingerprint is taken before the file is read, so a change during the indexing is seen at the next startup
+        IndexFingerprint fingerprint = albumsFingerprint();
+        AlbumsIndexer albumsIndexer = new AlbumsIndexer(albumsIndexDir, settings);
+        albumsIndexer.setCommitUserData(fingerprint.toUserData());
+        try (MappedCSVSource<Albums> albums = CSVFileFilter.mapAlbums(albumsCsv)) {
+            if (incremental) {
+                System.out.println("Albums index update : " + albumsIndexer.updateAlbums(albums));
+            } else {
+                albumsIndexer.indexAlbums(albums);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error indexing the albums.csv file");
+            // Discard the half-built index
+            albumsIndexer.rollback();
+            throw e;
+        }
+        albumsIndexer.close();
+    }
+
+    /**
+     * This method creates the songs-lyrics index, from the songs.csv and the lyrics.csv files.
+     * @param settings The settings of the indexing pipeline
+     * @param incremental True to update the existing index, false to build it from scratch
+     */
+    private static void createSongLyricsIndex(IndexerSettings settings, boolean incremental) throws IOException {
+        IndexFingerprint fingerprint = songLyricsFingerprint();
+        SongLyricsIndexer songAndLyricsIndexer = new SongLyricsIndexer(indexDir, settings);
+        // The catch-all field is optional, because the multi-field search does not need it
+        songAndLyricsIndexer.setIndexAllText(Boolean.getBoolean("indexer.allText"));
+        // The lines are optional, because they add a document for each line of the lyrics
+        songAndLyricsIndexer.setIndexLines(Boolean.getBoolean("indexer.lines"));
+        // The near-duplicate lyrics are optional, because they keep the signatures of all the songs in memory
+        songAndLyricsIndexer.setNearDuplicates(NearDuplicates.fromSystemProperties());
+        // The term vectors are optional, because they are only read by the job of the similar songs
+        boolean storeTermVectors = Boolean.getBoolean("indexer.termVectors");
+        songAndLyricsIndexer.setStoreTermVectors(storeTermVectors);
+        songAndLyricsIndexer.setCommitUserData(fingerprint.toUserData());
+        try (MappedCSVSource<Songs> songs = CSVFileFilter.mapSongs(songsCsv);
+             MappedCSVSource<Lyrics> lyrics = CSVFileFilter.mapLyrics(lyricsCsv)) {
+            if (incremental) {
+                System.out.println("Songs-Lyrics index update : " + songAndLyricsIndexer.updateSongLyrics(songs, lyrics));
+            } else {
+                JoinReport joinReport = songAndLyricsIndexer.indexSongLyrics(songs, lyrics);
+                System.out.println(joinReport);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error indexing the songs.csv and lyrics.csv files");
+            // Discard the half-built index
+            songAndLyricsIndexer.rollback();
+            throw e;
+        }
+        songAndLyricsIndexer.close();
+        if (storeTermVectors) {
+            // The document ids of the table change with every commit, so it is computed again after the indexing
+            System.out.println(SimilarSongsJob.run(indexDir, Integer.getInteger("similar.topN",
+                    SimilarSongsJob.DEFAULT_TOP_N), settings.getWorkerThreads()));
+        }
+    }
+
+    /**
+     * This method returns the Searcher of the songs-lyrics index, and opens it on the first call. <br>
+     * It is called from the background threads of the searches, because the opening reads the index.
+     * @return The Searcher object
+     * @throws IOException If the index does not exist
+     */
+    private static synchronized Searcher getSongLyricsSearcher() throws IOException {
+        if (songLyricsSearcher == null) {
+            // The searches see the scraped lyrics through the near-real-time searcher of the live indexer
+            songLyricsSearcher = getLiveIndexer().newSearcher();
+        }
+        return songLyricsSearcher;
+    }
+
+    /**
+     * This method returns the live indexer of the songs-lyrics index, and opens it on the first call. <br>
+     * It stays open until the index is built or updated, or the application stops.
+     * @return The LiveSongLyricsIndexer object
+     * @throws IOException If the indexes are being built
+     */
+    private static synchronized LiveSongLyricsIndexer getLiveIndexer() throws IOException {
+        if (indexing) {
+            throw new IOException("The indexes are being built");
+        }
+        if (liveIndexer == null) {
+            liveIndexer = new LiveSongLyricsIndexer(indexDir);
+        }
+        return liveIndexer;
+    }
+
+    private static synchronized void setIndexing(boolean indexing) {
+        App.indexing = indexing;
+    }
+
+    /**
+     * This method returns the Searcher of the albums index, and opens it on the first call.
+     * @return The Searcher object
+     * @throws IOException If the index does not exist
+     */
+    private static synchronized Searcher getAlbumsSearcher() throws IOException {
+        if (albumsSearcher == null) {
+            albumsSearcher = new Searcher(albumsIndexDir);
+        }
+        return albumsSearcher;
+    }
+
+    /**
+     * This method returns the cache of the searches of the songs-lyrics index, and opens the index on the first call.
+     * @return The CachingSearcher object
+     * @throws IOException If the index does not exist
+     */
+    private static synchronized CachingSearcher getSongLyricsCache() throws IOException {
+        if (songLyricsCache == null) {
+            songLyricsCache = new CachingSearcher(getSongLyricsSearcher(), CACHE_ENTRIES, CACHE_BYTES);
+        }
+        return songLyricsCache;
+    }
+
+    /**
+     * This method returns the cache of the searches of the albums index, and opens the index on the first call.
+     * @return The CachingSearcher object
+     * @throws IOException If the index does not exist
+     */
+    private static synchronized CachingSearcher getAlbumsCache() throws IOException {
+        if (albumsCache == null) {
+            albumsCache = new CachingSearcher(getAlbumsSearcher(), CACHE_ENTRIES, CACHE_BYTES);
+        }
+        return albumsCache;
+    }
+
+    /**
+     * This method searches a page of the hits, and caches the first page, so that a repeated search paints its
+     * first hits without a search of the index. <br>
+     * The next pages are always searched, from the cursor of the first page. <br>
+     * @param cache The cache of the Searcher of the search
+     * @param parameters The parameters of the search, with the filters and the page size
+     * @param after The cursor of the previous page, or null for the first page
+     * @param search The search of the page
+     * @return The hits of the page
+     * @throws IOException
+     * @throws ParseException
+     */
+    private static SearchResults cacheFirstPage(CachingSearcher cache, List<?> parameters, ScoreDoc after,
+                                                CachingSearcher.Search search) throws IOException, ParseException {
+        return after == null ? cache.search(parameters, search) : search.search();
+    }
+
+    /**
+     * This method returns the suggestions of the song names, the singer names and the album names,
+     * and loads them on the first call. <br>
+     * An index without suggestions (e.g. built before the autocomplete) is skipped.
+     * @return The Suggestions objects of the indexes
+     */
+    private static synchronized List<Suggestions> getSuggestions() {
+        if (suggestions == null) {
+            suggestions = new ArrayList<>();
+            for (String index : new String[]{indexDir, albumsIndexDir}) {
+                try {
+                    suggestions.add(Suggestions.load(index));
+                } catch (IOException e) {
+                    System.err.println("No suggestions for the index " + index + " : " + e);
+                }
+            }
         }
+        return suggestions;
+    }
 
-        switch (type) {
-            case LYRICS:
-                return (T) CSVFileFilter.createLyricsObjects(fileName, numberOfRecords);
-            case SONGS:
-                return (T) CSVFileFilter.createSongsObjects(fileName, numberOfRecords);
-            case ALBUMS:
-                return (T) CSVFileFilter.createAlbumsObjects(fileName, numberOfRecords);
+    private static synchronized void resetSuggestions() {
+        suggestions = null;
+    }
+
+    /**
+     * This method returns the suggestions if they are loaded, without waiting, so it can be called in the
+     * JavaFX thread. <br>
+     * If they are not loaded, they are loaded in the background, for the next lookups.
+     * @return The Suggestions objects of the indexes, or null if they are not loaded yet
+     */
+    private static List<Suggestions> getLoadedSuggestions() {
+        List<Suggestions> loaded = suggestions;
+        if (loaded == null) {
+            synchronized (App.class) {
+                if (loadingSuggestions) {
+                    return null;
+                }
+                loadingSuggestions = true;
+            }
+            backgroundExecutor.execute(() -> {
+                try {
+                    getSuggestions();
+                } finally {
+                    synchronized (App.class) {
+                        loadingSuggestions = false;
+                    }
+                }
+            });
+        }
+        return loaded;
+    }
+
+    /**
+     * This method returns the table of the similar songs of the songs-lyrics index, and opens it on the first call.
+     * @return The SimilarSongs object, or null if the job of the similar songs was not run on the index
+     */
+    private static synchronized SimilarSongs getSimilarSongs() {
+        if (similarSongs == null) {
+            try {
+                similarSongs = SimilarSongs.open(indexDir);
+            } catch (IOException e) {
+                System.err.println("No similar songs for the index " + indexDir + " : " + e);
+            }
+        }
+        return similarSongs;
+    }
+
+    private static synchronized void resetSimilarSongs() {
+        similarSongs = null;
+    }
+
+    /**
+     * This method returns the start of the name that is being typed at the end of a query, which is
+     * after the last parenthesis, quotation mark or boolean operator.
+     * @param query The text of the query
+     * @return The index of the first character of the name
+     */
+    static int suggestionStart(String query) {
+        int start = Math.max(query.lastIndexOf('('), query.lastIndexOf('"')) + 1;
+        for (String operator : new String[]{" AND ", " OR ", " NOT "}) {
+            int operatorStart = query.lastIndexOf(operator);
+            if (operatorStart >= 0) {
+                start = Math.max(start, operatorStart + operator.length());
+            }
+        }
+        while (start < query.length() && query.charAt(start) == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * This method closes the Searcher objects and the live indexer, if they were opened. <br>
+     * The live indexer commits the scraped lyrics when it is closed.
+     */
+    private static synchronized void closeSearchers() {
+        try {
+            if (songLyricsSearcher != null) {
+                songLyricsSearcher.close();
+            }
+            if (liveIndexer != null) {
+                liveIndexer.close();
+            }
+            if (albumsSearcher != null) {
+                albumsSearcher.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing the indexes");
+        }
+        liveIndexer = null;
+        songLyricsSearcher = null;
+        albumsSearcher = null;
+        songLyricsCache = null;
+        albumsCache = null;
+        resetSuggestions();
+        resetSimilarSongs();
+    }
+
+    /**
+     * This method adds the scraped lyrics of a song to the songs-lyrics index with the live indexer, and waits
+     * until the song can be searched, without a rebuild of the index. <br>
+     * If the song is already in the index, its document is replaced. The lyrics are committed when the live
+     * indexer is closed. <br>
+     * @param lyrics The scraped lyrics
+     * @return True if the song can be searched, false if the wait timed out
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private static boolean indexScrapedLyrics(Lyrics lyrics) throws IOException, InterruptedException {
+        LiveSongLyricsIndexer indexer = getLiveIndexer();
+        long generation = indexer.indexLyrics(lyrics);
+        if (!indexer.waitForSearchable(generation, 10 * Searcher.DEFAULT_REFRESH_INTERVAL_MS)) {
+            return false;
         }
-        return null;
+        numOfSongsLyricsDocs = "Number of Songs-Lyrics Docs : " + getSongLyricsSearcher().getTotalNumberOfDocuments();
+        // The first pages of the cache do not have the new song
+        synchronized (App.class) {
+            songLyricsCache = null;
+        }
+        return true;
     }
 
     /**
@@ -160,21 +723,18 @@ public class App extends Application {
 
     /**
      * This method displays the hits of the search.
-     * @param hits The hits of the search
-     * @param searcher The Searcher object, for the searching of the index(either songs-lyrics or albums searcher)
+     * @param results The results of the search, with the documents of the hits
      * @param topK The number of hits to be returned
      * @param type The type of the searcher(songs-lyrics or albums)
      */
-    private static void displayHits(TopDocs hits, Searcher searcher, int topK, String type) {
-        System.out.println(hits.totalHits + " documents found.");
+    private static void displayHits(SearchResults results, int topK, String type) {
+        System.out.println(results.getTotalHits() + " documents found.");
         System.out.println("topK = " + topK);
         int topkCounter = 0;
-        for (ScoreDoc scoreDoc : hits.scoreDocs) {
+        for (Document doc : results.getDocuments()) {
             System.out.println("----------------------------------------");
             System.out.println("Hit " + ++topkCounter);
             System.out.println("----------------------------------------");
-            Document doc = null;
-            doc = searcher.getDocument(scoreDoc);
             switch (type) {
                 case SONGS:
                     System.out.println(doc.get(LuceneConstants.SONGS_SINGER_NAME) + " : " +
@@ -284,8 +844,21 @@ public class App extends Application {
 
         Button exitButt = new Button("Exit");
 
+        // The indexes are built in the background, so the window stays responsive and the build can be cancelled
+        // Like at startup, only the indexes whose csv files, schema or options changed are updated or rebuilt,
+        // unless a rebuild from scratch is asked
+        Button buildIndexesButt = new Button("Build indexes");
+        CheckBox rebuildCheck = new CheckBox("Rebuild from scratch");
+        Button cancelIndexingButt = new Button("Cancel");
+        cancelIndexingButt.setDisable(true);
+        ProgressBar indexingProgress = new ProgressBar(0);
+        indexingProgress.setVisible(false);
+        Label indexingStatus = new Label();
+        HBox indexingPane = new HBox(5, buildIndexesButt, rebuildCheck, cancelIndexingButt, indexingProgress);
+        indexingPane.setAlignment(Pos.CENTER);
+
         VBox mainPane = new VBox(5);
-        mainPane.getChildren().addAll(topPane, msLabel, noSLDocs, noADocs ,exitButt);
+        mainPane.getChildren().addAll(topPane, indexingPane, indexingStatus, idxCrtd, msLabel, noSLDocs, noADocs ,exitButt);
         mainPane.setAlignment(Pos.CENTER);
 
 
@@ -300,6 +873,51 @@ public class App extends Application {
             openBooleanModelDialog();
         }));
 
+        vectorSpaceModelButt.setOnAction((e->{
+            openQueryDialog(RankingModel.VECTOR_SPACE);
+        }));
+
+        buildIndexesButt.setOnAction((e->{
+            Task<Void> indexing = createIndexesTask(rebuildCheck.isSelected());
+            indexingProgress.progressProperty().bind(indexing.progressProperty());
+            indexingStatus.textProperty().bind(indexing.messageProperty());
+            indexingProgress.setVisible(true);
+            buildIndexesButt.setDisable(true);
+            rebuildCheck.setDisable(true);
+            cancelIndexingButt.setDisable(false);
+            cancelIndexingButt.setOnAction((ce->{
+                indexing.cancel();
+                ce.consume();
+            }));
+            // The task has finished (succeeded, failed or cancelled) when it is no longer running
+            indexing.runningProperty().addListener((observable, wasRunning, running) -> {
+                if (!running) {
+                    buildIndexesButt.setDisable(false);
+                    rebuildCheck.setDisable(false);
+                    cancelIndexingButt.setDisable(true);
+                    indexingProgress.setVisible(false);
+                    indexingStatus.textProperty().unbind();
+                    if (indexing.isCancelled()) {
+                        indexingStatus.setText("Indexing cancelled");
+                    } else if (indexing.getException() != null) {
+                        indexingStatus.setText("Error creating the indexes : " + indexing.getException().getMessage());
+                    } else {
+                        msLabel.setText(indexingTime);
+                        idxCrtd.setText(didIndexesCreated);
+                    }
+                }
+            });
+            Thread indexingThread = new Thread(indexing, "indexing");
+            indexingThread.setDaemon(true);
+            indexingThread.start();
+            e.consume();
+        }));
+
+        exitButt.setOnAction((e->{
+            stage.close();
+            e.consume();
+        }));
+
         Scene scene = new Scene(mainPane, 350, 250);
         stage.setScene(scene);
 //        stage.setTitle("FALSE search engine");
@@ -308,6 +926,96 @@ public class App extends Application {
 
     }
 
+    @Override
+    public void stop() {
+        closeSearchers();
+    }
+
+    /**
+     * This method creates the pane of the hits of a search, with a table that is filled while the hits are fetched,
+     * the progress of the search, and a button that cancels the search. <br>
+     * The table is virtualized, so only the visible rows are drawn, whatever the number of the hits. <br>
+     * A sidebar shows the facet counts of the hits, and a double click on a facet value searches again
+     * with only the hits of this value. <br>
+     * @param service The SearchService, whose hits are shown
+     * @param fields The stored fields of the columns of the table
+     * @return The pane of the hits
+     */
+    private VBox createResultsPane(SearchService service, String[] fields) {
+        return createResultsPane(service, fields, null);
+    }
+
+    /**
+     * This method creates the pane of the hits of a search, like createResultsPane, and calls an action
+     * when a hit is selected in the table. <br>
+     * @param onSelected The action on the document of the selected hit, or null for no action
+     */
+    private VBox createResultsPane(SearchService service, String[] fields, Consumer<Document> onSelected) {
+        TableView<Document> table = new TableView<>(service.getHits());
+        if (onSelected != null) {
+            table.getSelectionModel().selectedItemProperty().addListener((observable, oldHit, hit) -> {
+                if (hit != null) {
+                    onSelected.accept(hit);
+                }
+            });
+        }
+        for (String field : fields) {
+            TableColumn<Document, String> column = new TableColumn<>(field);
+            column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().get(field)));
+            table.getColumns().add(column);
+        }
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        ProgressBar progress = new ProgressBar();
+        progress.progressProperty().bind(service.progressProperty());
+        progress.visibleProperty().bind(service.runningProperty());
+
+        Button cancelButt = new Button("Cancel");
+        cancelButt.disableProperty().bind(service.runningProperty().not());
+        cancelButt.setOnAction((e->{
+            service.cancel();
+            e.consume();
+        }));
+
+        Label status = new Label();
+        status.textProperty().bind(service.messageProperty());
+
+        service.setOnFailed((e->{
+            alert = new Alert(AlertType.ERROR, "Error searching the index : " + service.getException().getMessage());
+            alert.show();
+        }));
+
+        // The facet counts of the hits, and the filters of the search
+        ListView<SearchService.FacetValue> facets = new ListView<>(service.getFacets());
+        facets.setPrefWidth(200);
+        Label filters = new Label();
+        Button clearFiltersButt = new Button("Clear filters");
+        clearFiltersButt.setDisable(true);
+        facets.setOnMouseClicked((e->{
+            SearchService.FacetValue facetValue = facets.getSelectionModel().getSelectedItem();
+            if (e.getClickCount() == 2 && facetValue != null) {
+                service.drillDown(facetValue);
+                filters.setText(service.getDrillDowns().toString());
+                clearFiltersButt.setDisable(false);
+                service.restart();
+            }
+        }));
+        clearFiltersButt.setOnAction((e->{
+            service.clearDrillDowns();
+            filters.setText("");
+            clearFiltersButt.setDisable(true);
+            if (service.hasSearch()) {
+                service.restart();
+            }
+            e.consume();
+        }));
+        VBox sidebar = new VBox(5, facets, filters, clearFiltersButt);
+
+        HBox statusPane = new HBox(5, progress, cancelButt, status);
+        statusPane.setAlignment(Pos.CENTER_LEFT);
+        return new VBox(5, new HBox(5, table, sidebar), statusPane);
+    }
+
     public void openOtherQueriesDialog() {
         Stage dialogStage = new Stage();
         dialogStage.initModality(Modality.APPLICATION_MODAL);
@@ -316,10 +1024,12 @@ public class App extends Application {
 
         Button choice1  = new Button("Search songs");
         Button choice2  = new Button("Search albums");
+        Button choice3  = new Button("Scrape lyrics");
+        Button choice4  = new Button("Search lyrics lines");
         Button exitButt = new Button("Exit");
         exitButt.setAlignment(Pos.BASELINE_LEFT);
 
-        VBox vb         = new VBox(3,choice1, choice2, exitButt);
+        VBox vb         = new VBox(3,choice1, choice2, choice3, choice4, exitButt);
         vb.setAlignment(Pos.CENTER);
 
 
@@ -342,7 +1052,142 @@ public class App extends Application {
             e.consume();
         }));
 
+        choice3.setOnAction((e->{
+            openScrapeDialog();
+            e.consume();
+        }));
+
+        choice4.setOnAction((e->{
+            openLinesDialog();
+            e.consume();
+        }));
+
+
+        dialogStage.showAndWait();
+    }
+
+    /**
+     * This method opens the dialog of the scraping of the lyrics of a song, which are added to the songs-lyrics
+     * index by the live indexer, and can be searched as soon as they are indexed. <br>
+     * The lyrics are fetched and indexed in the background, so the window stays responsive. <br>
+     */
+    private void openScrapeDialog() {
+        Stage dialogStage = new Stage();
+        dialogStage.initModality(Modality.APPLICATION_MODAL);
+        dialogStage.setTitle("Scrape lyrics");
+
+        TextField artistTf = new TextField();
+        artistTf.setPromptText("Artist (e.g. Taylor Swift)");
+        TextField songTf = new TextField();
+        songTf.setPromptText("Song (e.g. Lover)");
+        Label status = new Label();
+
+        Button scrapeButt = new Button("Scrape");
+        Button exitButt = new Button("Exit");
+
+        VBox vb = new VBox(5, artistTf, songTf, new HBox(5, scrapeButt, exitButt), status);
+        vb.setAlignment(Pos.CENTER);
+        vb.setPadding(new Insets(15));
+
+        scrapeButt.setOnAction((e->{
+            String artist = artistTf.getText().trim();
+            String songName = songTf.getText().trim();
+            if (artist.isEmpty() || songName.isEmpty()) {
+                status.setText("Insert the artist and the song");
+                return;
+            }
+            Task<String> scraping = new Task<String>() {
+                @Override
+                protected String call() throws Exception {
+                    WebScrapping webScrapping = new WebScrapping(artist, songName);
+                    String lyricsText = webScrapping.getLyrics();
+                    if (lyricsText == null || lyricsText.trim().isEmpty()) {
+                        return "No lyrics found for " + artist + " - " + songName;
+                    }
+                    if (!indexScrapedLyrics(new Lyrics(artist, songName, webScrapping.getSongHref(), lyricsText))) {
+                        return "The lyrics are indexed, but they can not be searched yet";
+                    }
+                    return "The lyrics are indexed. " + numOfSongsLyricsDocs;
+                }
+            };
+            status.textProperty().bind(scraping.valueProperty());
+            scrapeButt.disableProperty().bind(scraping.runningProperty());
+            scraping.setOnFailed((fe->{
+                status.textProperty().unbind();
+                status.setText("Error scraping the lyrics : " + scraping.getException().getMessage());
+            }));
+            Thread scrapingThread = new Thread(scraping, "scraping");
+            scrapingThread.setDaemon(true);
+            scrapingThread.start();
+            e.consume();
+        }));
+
+        exitButt.setOnAction((e->{
+            dialogStage.close();
+            e.consume();
+        }));
+
+        Scene dialogScene = new Scene(vb, 350, 200);
+        dialogStage.setScene(dialogScene);
+        dialogStage.showAndWait();
+    }
+
+    /**
+     * This method opens the dialog of the search of the lyrics lines, which shows the top songs with their
+     * best line for the query (Searcher.searchLines). <br>
+     * The lines are only indexed with -Dindexer.lines=true, otherwise there are no hits. <br>
+     */
+    private void openLinesDialog() {
+        Stage dialogStage = new Stage();
+        dialogStage.initModality(Modality.APPLICATION_MODAL);
+        dialogStage.setTitle("Search lyrics lines");
+
+        TextField tf = new TextField();
+        tf.setPromptText("Insert your query here (e.g. love me tonight)");
+
+        ListView<LineHit> linesList = new ListView<>();
+        linesList.setPlaceholder(new Label("No lines (index with -Dindexer.lines=true)"));
+        Label status = new Label();
+
+        Button searchButt = new Button("Search");
+        Button exitButt = new Button("Exit");
+
+        VBox vb = new VBox(10, tf, searchButt, linesList, status, exitButt);
+        vb.setAlignment(Pos.CENTER);
+        vb.setPadding(new Insets(15));
+
+        searchButt.setOnAction((e->{
+            String query = tf.getText();
+            long startTime = System.nanoTime();
+            Task<List<LineHit>> search = new Task<List<LineHit>>() {
+                @Override
+                protected List<LineHit> call() throws Exception {
+                    return getSongLyricsSearcher().searchLines(query, TOP_K);
+                }
+            };
+            search.setOnSucceeded((se->{
+                linesList.getItems().setAll(search.getValue());
+                status.setText(String.format(Locale.ROOT, "%d songs found in %.0f ms", search.getValue().size(),
+                        (System.nanoTime() - startTime) / 1e6));
+            }));
+            search.setOnFailed((fe->{
+                alert = new Alert(AlertType.ERROR, "Error searching the lines : " + search.getException().getMessage());
+                alert.show();
+            }));
+            searchButt.disableProperty().bind(search.runningProperty());
+            Thread searchThread = new Thread(search, "lines-search");
+            searchThread.setDaemon(true);
+            searchThread.start();
+            e.consume();
+        }));
+
+        exitButt.setOnAction((e->{
+            dialogStage.close();
+            e.consume();
+        }));
 
+        Scene dialogScene = new Scene(vb, 600, 500);
+        dialogStage.setScene(dialogScene);
         dialogStage.showAndWait();
     }
 
@@ -361,20 +1206,60 @@ public class App extends Application {
         HBox hb = new HBox(10, l, choices);
         hb.setAlignment(Pos.CENTER);
 
+        TextField tf = new TextField();
+        tf.setPromptText("Insert your query here");
+
+        // An optional query in the albums index, which keeps only the songs of the singers with a matching album
+        TextField albumsTf = new TextField();
+        albumsTf.setPromptText("Only singers with albums like (e.g. albumsAlbumYear:[1990 TO 1999])");
+
+        // Only the best song of each cluster of near-duplicate lyrics (if the index has the clusters),
+        // for the searches without an albums query
+        CheckBox collapseCb = new CheckBox("Hide near-duplicate lyrics");
+
         Button selectButt = new Button("Select");
         Button exitButt = new Button("Exit");
 
-        VBox vb = new VBox(10, hb, selectButt, exitButt);
+        // The similar songs of the selected hit, from the table of the similar songs of the index
+        ListView<String> similarList = new ListView<>();
+        similarList.setPrefHeight(100);
+        similarList.setPlaceholder(new Label("Select a song to see its similar songs"));
+
+        SearchService searchService = new SearchService(backgroundExecutor);
+        VBox resultsPane = createResultsPane(searchService, SongsTableFields,
+                hit -> showSimilarSongs(hit.get(LuceneConstants.SONGS_SONG_HREF), similarList));
+
+        VBox vb = new VBox(10, hb, tf, albumsTf, collapseCb, selectButt, resultsPane, similarList, exitButt);
         vb.setAlignment(Pos.CENTER);
 
 
-        Scene dialogScene = new Scene(vb,350, 250);
+        Scene dialogScene = new Scene(vb,600, 500);
         dialogStage.setScene(dialogScene);
 
 
         selectButt.setOnAction((e->{
-             System.out.println("Selected item: " + choices.getSelectionModel().getSelectedItem()
-             + "\nTODO:: get selected items");
+            String field = choices.getSelectionModel().getSelectedItem();
+            String query = tf.getText();
+            // Search in the background, and load only the fields of the table
+            String albumsQuery = albumsTf.getText();
+            if (albumsQuery.trim().isEmpty() && collapseCb.isSelected()) {
+                // The clusters of the hits of the earlier pages of this search, without the facets
+                Set<Long> seenClusters = new HashSet<>();
+                searchService.setSearch((drillDowns, after, pageSize) -> getSongLyricsSearcher().searchCollapsed(
+                        query, field, after, pageSize, SongsTableFieldSet, seenClusters), TOP_K);
+            } else if (albumsQuery.trim().isEmpty()) {
+                searchService.setSearch((drillDowns, after, pageSize) -> cacheFirstPage(getSongLyricsCache(),
+                        Arrays.asList("songsFacets", field, CachingSearcher.normalize(query), drillDowns, pageSize),
+                        after, () -> getSongLyricsSearcher().searchFacets(query, field, drillDowns, after, pageSize,
+                                SongsTableFieldSet)), TOP_K);
+            } else {
+                // The songs and the albums are joined on the singer in one query, without the facets
+                searchService.setSearch((drillDowns, after, pageSize) -> getSongLyricsSearcher().searchJoin(query,
+                        field, getAlbumsSearcher(), albumsQuery, LuceneConstants.ALBUMS_ALBUM_NAME, after, pageSize,
+                        SongsTableFieldSet), TOP_K);
+            }
+            searchService.restart();
+            e.consume();
         }));
 
         exitButt.setOnAction((e->{
@@ -382,10 +1267,64 @@ public class App extends Application {
             e.consume();
         }));
 
+        dialogStage.setOnHidden((e->searchService.cancel()));
+
 
         dialogStage.showAndWait();
     }
 
+    /**
+     * This method shows the similar songs of a song in a list. <br>
+     * The table of the similar songs and the searcher may have to be opened, and the names of the songs are
+     * read from the index, so the lookup runs in the background, and only the list is changed in the
+     * JavaFX thread. <br>
+     * @param songHref The href of the song, or null if it was not loaded
+     * @param similarList The list of the similar songs
+     */
+    private void showSimilarSongs(String songHref, ListView<String> similarList) {
+        similarList.getItems().clear();
+        if (songHref == null) {
+            similarList.setPlaceholder(new Label("No similar songs"));
+            return;
+        }
+        similarList.setPlaceholder(new Label("Loading the similar songs..."));
+        Task<List<String>> lookup = new Task<List<String>>() {
+            @Override
+            protected List<String> call() throws IOException {
+                SimilarSongs table = getSimilarSongs();
+                if (table == null) {
+                    return null;
+                }
+                List<String> names = new ArrayList<>();
+                for (Document song : getSongLyricsSearcher().similarSongs(songHref, table, SongsTableFieldSet)) {
+                    names.add(song.get(LuceneConstants.SONGS_SONG_NAME) + " - "
+                            + song.get(LuceneConstants.SONGS_SINGER_NAME));
+                }
+                return names;
+            }
+        };
+        // Only the lookup of the last selected song is shown, if the selection changed in the meantime
+        similarList.setUserData(lookup);
+        lookup.setOnSucceeded(event -> {
+            if (similarList.getUserData() != lookup) {
+                return;
+            }
+            if (lookup.getValue() == null) {
+                similarList.setPlaceholder(new Label("No similar songs (index with -Dindexer.termVectors=true)"));
+            } else {
+                similarList.getItems().setAll(lookup.getValue());
+                similarList.setPlaceholder(new Label("No similar songs"));
+            }
+        });
+        lookup.setOnFailed(event -> {
+            if (similarList.getUserData() == lookup) {
+                similarList.setPlaceholder(new Label("Error reading the similar songs : "
+                        + lookup.getException().getMessage()));
+            }
+        });
+        backgroundExecutor.execute(lookup);
+    }
+
     private void openSearchAlbumDialog() {
         Stage dialogStage = new Stage();
         dialogStage.initModality(Modality.APPLICATION_MODAL);
@@ -402,16 +1341,74 @@ public class App extends Application {
 
         HBox hb = new HBox(10, l, cb);
 
+        TextField tf = new TextField();
+        tf.setPromptText("Insert your query here");
+
+        // The range of the years, which is searched in the points of the album year
+        TextField fromYearTf = new TextField();
+        fromYearTf.setPromptText("From year");
+        fromYearTf.setPrefColumnCount(6);
+        TextField toYearTf = new TextField();
+        toYearTf.setPromptText("To year");
+        toYearTf.setPrefColumnCount(6);
+        CheckBox sortByYearCb = new CheckBox("Sort by year");
+        HBox yearsPane = new HBox(10, fromYearTf, toYearTf, sortByYearCb);
+        yearsPane.setAlignment(Pos.CENTER);
+
+        Button searchButt = new Button("Search");
 
-        Scene dialogScene = new Scene(hb, 350, 350);
+        SearchService searchService = new SearchService(backgroundExecutor);
+        VBox resultsPane = createResultsPane(searchService, AlbumsTableFields);
+
+        VBox vb = new VBox(10, hb, tf, yearsPane, searchButt, resultsPane, exitButt);
+        vb.setAlignment(Pos.CENTER);
+
+
+        Scene dialogScene = new Scene(vb, 600, 500);
         dialogStage.setScene(dialogScene);
 
 
+        searchButt.setOnAction((e->{
+            // The items of the ComboBox are in the order of the AlbumsFields
+            String field = AlbumsFields[cb.getSelectionModel().getSelectedIndex()];
+            String query = tf.getText();
+            boolean sortByYear = sortByYearCb.isSelected();
+            if (fromYearTf.getText().trim().isEmpty() && toYearTf.getText().trim().isEmpty() && !sortByYear) {
+                searchService.setSearch((drillDowns, after, pageSize) -> cacheFirstPage(getAlbumsCache(),
+                        Arrays.asList("albumsFacets", field, CachingSearcher.normalize(query), drillDowns, pageSize),
+                        after, () -> getAlbumsSearcher().searchFacets(query, field, drillDowns, after, pageSize,
+                                AlbumsTableFieldSet)), TOP_K);
+            } else {
+                int fromYear;
+                int toYear;
+                try {
+                    // An empty year is an open end of the range
+                    fromYear = fromYearTf.getText().trim().isEmpty() ? Integer.MIN_VALUE
+                            : Integer.parseInt(fromYearTf.getText().trim());
+                    toYear = toYearTf.getText().trim().isEmpty() ? Integer.MAX_VALUE
+                            : Integer.parseInt(toYearTf.getText().trim());
+                } catch (NumberFormatException ex) {
+                    alert = new Alert(AlertType.ERROR, "Please enter a valid year");
+                    alert.show();
+                    return;
+                }
+                // The year range is searched without the facets
+                searchService.setSearch((drillDowns, after, pageSize) -> cacheFirstPage(getAlbumsCache(),
+                        Arrays.asList("albumsYearRange", field, CachingSearcher.normalize(query), fromYear, toYear,
+                                sortByYear, pageSize), after, () -> getAlbumsSearcher().searchYearRange(query, field,
+                                fromYear, toYear, sortByYear, after, pageSize, AlbumsTableFieldSet)), TOP_K);
+            }
+            searchService.restart();
+            e.consume();
+        }));
+
         exitButt.setOnAction((e->{
             dialogStage.close();
             e.consume();
         }));
 
+        dialogStage.setOnHidden((e->searchService.cancel()));
+
 
         dialogStage.showAndWait();
     }
@@ -433,9 +1430,20 @@ public class App extends Application {
         dialogStage.showAndWait();
     }
     public void openBooleanModelDialog() {
+        openQueryDialog(RankingModel.BOOLEAN);
+    }
+
+    /**
+     * This method opens the dialog of the queries in all the song-lyrics fields, with the buttons of the
+     * boolean operators. <br>
+     * The ranking model can be changed for each query, and by default the hits are only counted as far as
+     * needed for the page, so that a broad query does not score all its matches. <br>
+     * @param rankingModel The ranking model that is selected when the dialog opens
+     */
+    public void openQueryDialog(RankingModel rankingModel) {
         Stage dialogStage = new Stage();
         dialogStage.initModality(Modality.APPLICATION_MODAL);
-        dialogStage.setTitle("Boolean Model");
+        dialogStage.setTitle(rankingModel.toString());
 
 
 //        Label dummyLabel = new Label();
@@ -467,7 +1475,18 @@ public class App extends Application {
         HBox vb = new HBox(2, quotationMarksButt);
         vb.setAlignment(Pos.CENTER);
 
-        VBox mainPane = new VBox(tf, gp, vb, proccedButt);
+        ComboBox<RankingModel> modelChoices = new ComboBox<>();
+        modelChoices.getItems().addAll(RankingModel.values());
+        modelChoices.getSelectionModel().select(rankingModel);
+        // The exact count of the hits and the facets need all the matches, so they are optional
+        CheckBox exactCountCb = new CheckBox("Count all the hits (with facets)");
+        HBox optionsPane = new HBox(10, modelChoices, exactCountCb);
+        optionsPane.setAlignment(Pos.CENTER);
+
+        SearchService searchService = new SearchService(backgroundExecutor);
+        VBox resultsPane = createResultsPane(searchService, SongsTableFields);
+
+        VBox mainPane = new VBox(tf, gp, vb, optionsPane, proccedButt, resultsPane, exitButt);
         mainPane.setAlignment(Pos.CENTER);
 
 
@@ -506,17 +1525,74 @@ public class App extends Application {
             e.consume();
         }));
 
+        // The autocomplete of the names, from the FST of the suggestions instead of a search of the index,
+        // so it is fast enough for every keystroke
+        // The suggestions are loaded in the background when the dialog opens, and there is no autocomplete
+        // until they are loaded
+        getLoadedSuggestions();
+        ContextMenu suggestionsMenu = new ContextMenu();
         tf.textProperty().addListener((observable, oldValue, newValue) -> {
-
+            int start = suggestionStart(newValue);
+            String prefix = newValue.substring(start);
+            List<String> names = new ArrayList<>();
+            List<Suggestions> loadedSuggestions = getLoadedSuggestions();
+            if (prefix.length() >= MIN_SUGGESTION_PREFIX && loadedSuggestions != null) {
+                try {
+                    names = Suggestions.lookup(loadedSuggestions, prefix, SUGGESTIONS);
+                } catch (IOException e) {
+                    System.err.println("Error looking up the suggestions : " + e);
+                }
+            }
+            if (names.isEmpty()) {
+                suggestionsMenu.hide();
+                return;
+            }
+            String before = newValue.substring(0, start);
+            // The name is searched as a phrase, unless the user already opened one
+            boolean inPhrase = before.chars().filter(c -> c == '"').count() % 2 == 1;
+            List<MenuItem> items = new ArrayList<>();
+            for (String name : names) {
+                MenuItem item = new MenuItem(name);
+                item.setOnAction(event -> {
+                    tf.setText(before + (inPhrase ? "" : "\"") + name + "\" ");
+                    tf.positionCaret(tf.getText().length());
+                });
+                items.add(item);
+            }
+            suggestionsMenu.getItems().setAll(items);
+            if (!suggestionsMenu.isShowing()) {
+                suggestionsMenu.show(tf, Side.BOTTOM, 0, 0);
+            }
         });
 
+        proccedButt.setOnAction((e->{
+            String query = tf.getText();
+            RankingModel model = modelChoices.getSelectionModel().getSelectedItem();
+            // The boolean query is searched in all the song-lyrics fields, in the background
+            if (exactCountCb.isSelected()) {
+                searchService.setSearch((drillDowns, after, pageSize) -> cacheFirstPage(getSongLyricsCache(),
+                        Arrays.asList("allFieldsFacets", CachingSearcher.normalize(query), model, drillDowns, pageSize),
+                        after, () -> getSongLyricsSearcher().searchFacets(query, SongLyricsFieldBoosts, drillDowns,
+                                after, pageSize, SongsTableFieldSet, model)), TOP_K);
+            } else {
+                searchService.setSearch((drillDowns, after, pageSize) -> cacheFirstPage(getSongLyricsCache(),
+                        Arrays.asList("allFields", CachingSearcher.normalize(query), model, pageSize), after,
+                        () -> getSongLyricsSearcher().searchAfter(query, SongLyricsFieldBoosts, after, pageSize,
+                                SongsTableFieldSet, model, false)), TOP_K);
+            }
+            searchService.restart();
+            e.consume();
+        }));
+
         exitButt.setOnAction((e->{
             dialogStage.close();
             e.consume();
         }));
 
+        dialogStage.setOnHidden((e->searchService.cancel()));
 
-        Scene dialogScene = new Scene(mainPane, 350, 350);
+
+        Scene dialogScene = new Scene(mainPane, 600, 600);
         dialogStage.setScene(dialogScene);
 
         proccedButt.requestFocus();
@@ -525,96 +1601,22 @@ public class App extends Application {
     }
 
     public static void main(String[] args) {
-        String artist   = "Taylor Swift";
-        String songName = "Lover";
-        String  result  = "";
-        WebScrapping webScrapping = new WebScrapping(artist, songName);
-        result = webScrapping.getLyrics();
-        if (result == null){
-            System.err.println("Error in finding Lyrics");
-        } else System.out.println(result);
-
-        //        launch();
-//        // Get the current time, for the calculation of the indexing time
-//        long startTime = System.currentTimeMillis();
-//
-//        // Get the songs, albums and lyrics information and store them in memory
-//        Songs[] songs = getRecords(currentPath + "\\Data\\songs.csv", SONGS);
-//        if (songs == null) {
-//            System.out.println("Error creating the songs objects");
-//            System.exit(1);
-//        }
-//
-//        Albums[] albums = getRecords(currentPath + "\\Data\\albums.csv", ALBUMS);
-//        if (albums == null) {
-//            System.out.println("Error creating the albums objects");
-//            System.exit(1);
-//        }
-//
-//        Lyrics[] lyrics = getRecords(currentPath + "\\Data\\lyrics.csv", LYRICS);
-//        if (lyrics == null) {
-//            System.out.println("Error creating the lyrics objects");
-//            System.exit(1);
-//        }
-//
-//        // ------------------- Lucene Setup -------------------
-//
-//        // Delete all files in the Index directory, if any.
-//        deleteFiles(indexDir);
-//        // Delete all files in the AlbumsIndex directory, if any.
-//        deleteFiles(albumsIndexDir);
-//
-//        // ------------------- Create the indexes -------------------
-//
-//        AlbumsIndexer albumsIndexer = new AlbumsIndexer(albumsIndexDir);
-//        try {
-//            albumsIndexer.indexAlbumsFile(albums);
-//        } catch (IOException e) {
-//            System.err.println("Error indexing the albums.csv file");
-//            System.exit(1);
-//        }
-//        try {
-//            albumsIndexer.close();
-//        } catch (IOException e) {
-//            System.err.println("Error closing the IndexWriter object");
-//            System.exit(1);
-//        }
-//        SongLyricsIndexer songAndLyricsIndexer = new SongLyricsIndexer(indexDir);
-//        try {
-//            songAndLyricsIndexer.indexSongLyricsFile(songs, lyrics);
-//        } catch (IOException e) {
-//            System.err.println("Error indexing the songs.csv and lyrics.csv files");
-//            System.exit(1);
-//        }
-//        try {
-//            songAndLyricsIndexer.close();
-//        } catch (IOException e) {
-//            System.err.println("Error closing the IndexWriter object");
-//            System.exit(1);
-//        }
-////        System.out.println("Indexes created successfully");
-//        didIndexesCreated = "Indexes created successfully";
-//
-//        long endTime = System.currentTimeMillis();
-//
-//        indexingTime = "Indexing completed in : " + (endTime - startTime) + " ms";
-//
-//
-//        // ------------------- Search the index -------------------
-//
-//        // Create the Searcher object, for the searching of the songs-lyrics index
-//        Searcher songLyricsSearcher = new Searcher(indexDir);
-//        // Display the total number of documents in the index
-////        System.out.println("Number of Songs-Lyrics Docs : " + songLyricsSearcher.getTotalNumberOfDocuments());
-//        numOfSongsLyricsDocs = "Number of Songs-Lyrics Docs : " + songLyricsSearcher.getTotalNumberOfDocuments();
-//        // Create the Searcher object, for the searching of the albums index
-//        Searcher albumsSearcher = new Searcher(albumsIndexDir);
-//        // Display the total number of documents in the index
-////        System.out.println("Number of Albums Docs : " + albumsSearcher.getTotalNumberOfDocuments());
-//        numOfAlbumDocs = "Number of Albums Docs : " + albumsSearcher.getTotalNumberOfDocuments();
-//
-//
-//        // Create the Scanner object, for the user input
-//        Scanner scanner = new Scanner(System.in);
+        // Expose the indexing and query metrics through JMX, and print them periodically if asked
+        Metrics.get().register();
+        long metricsDumpIntervalMs = Long.getLong("metrics.dumpIntervalMs", 0);
+        if (metricsDumpIntervalMs > 0) {
+            Metrics.get().startDump(metricsDumpIntervalMs);
+        }
+        // ------------------- Create the indexes -------------------
+        // Reuse the existing indexes, unless their csv files or their schema changed
+        openOrCreateIndexes();
+        try {
+            numOfSongsLyricsDocs = "Number of Songs-Lyrics Docs : " + getSongLyricsSearcher().getTotalNumberOfDocuments();
+            numOfAlbumDocs = "Number of Albums Docs : " + getAlbumsSearcher().getTotalNumberOfDocuments();
+        } catch (IOException e) {
+            System.err.println("Error opening the indexes");
+            System.exit(1);
+        }
+        launch();
     }
 }
@@ -97,29 +97,7 @@ public class CSVFileFilter implements FileFilter {
             csvReader.readNext();
             int i = 0;
             while ((line = csvReader.readNext()) != null) {
-                // singer_name is the third column of the lyrics.csv file
-                String singerName = line[2];
-                // Remove the word Lyrics from the singer name
-                singerName = singerName.replace(" Lyrics", "");
-                // Remove anything that is inside the parenthesis
-                singerName = singerName.replaceAll("\\(.*?\\) ?", "");
-                // Remove anything that is after a & symbol (keep only the first singer)
-                singerName = singerName.replaceAll(" &.*", "");
-                // Remove anything that is after a (comma), symbol (keep only the first singer)
-                singerName = singerName.replaceAll(",.*", "");
-                // Remove white spaces from the beginning and the end of the string
-                singerName = singerName.trim();
-                // song_name is the fourth column of the lyrics.csv file
-                String songName = line[3];
-                // song_href is the second column of the lyrics.csv file
-                String songHref = line[1];
-                // Create the Lyrics object
-                lyrics[i] = new Lyrics(singerName, songName, songHref);
-                // Add each row of the lyrics to the lyricsList of the Lyrics object
-                String[] lyricsRows = line[4].split("\n");
-                for (String lyricsRow : lyricsRows) {
-                    lyrics[i].lyricsList.add(lyricsRow);
-                }
+                lyrics[i] = toLyrics(line);
                 i++;
             }
         } catch (CsvValidationException | IOException e) {
@@ -143,16 +121,7 @@ public class CSVFileFilter implements FileFilter {
             csvReader.readNext();
             int i = 0;
             while ((line = csvReader.readNext()) != null) {
-                // singer_name is the third column of the songs.csv file
-                String singerName = line[2];
-                // Remove the word Lyrics from the singer name
-                singerName = singerName.replace(" Lyrics", "");
-                // song_name is the fourth column of the songs.csv file
-                String songName = line[3];
-                // song_href is the fifth column of the songs.csv file
-                String songHref = line[4];
-                // Create the Songs object
-                songs[i] = new Songs(singerName, songName, songHref);
+                songs[i] = toSongs(line);
                 i++;
             }
         } catch (CsvValidationException | IOException e) {
@@ -176,18 +145,7 @@ public class CSVFileFilter implements FileFilter {
             csvReader.readNext();
             int i = 0;
             while ((line = csvReader.readNext()) != null) {
-                // singer_name is the third column of the songs.csv file
-                String singerName = line[2];
-                // Remove the word Lyrics from the singer name
-                singerName = singerName.replace(" Lyrics", "");
-                // album_name is the fourth column of the songs.csv file
-                String albumName = line[3];
-                // album_type is the fifth column of the songs.csv file
-                String albumType = line[4];
-                // album_year is the sixth column of the songs.csv file
-                String albumYear = line[5];
-                // Create the Albums object
-                albums[i] = new Albums(singerName, albumName, albumType, albumYear);
+                albums[i] = toAlbums(line);
                 i++;
             }
         } catch (CsvValidationException | IOException e) {
@@ -196,7 +154,123 @@ public class CSVFileFilter implements FileFilter {
         }
         return albums;
     }
-}
 
+    /**
+     * This method opens a stream of the Songs records of the songs.csv file. <br>
+     * The file is read once, one record at a time. <br>
+     * @param fileName The name of the file
+     * @return The CSVRecordSource of the Songs records, which must be closed by the caller
+     * @throws IOException
+     */
+    public static CSVRecordSource<Songs> openSongs(String fileName) throws IOException {
+        return new CSVRecordSource<>(fileName, CSVFileFilter::toSongs);
+    }
+
+    /**
+     * This method opens a stream of the Albums records of the albums.csv file. <br>
+     * The file is read once, one record at a time. <br>
+     * @param fileName The name of the file
+     * @return The CSVRecordSource of the Albums records, which must be closed by the caller
+     * @throws IOException
+     */
+    public static CSVRecordSource<Albums> openAlbums(String fileName) throws IOException {
+        return new CSVRecordSource<>(fileName, CSVFileFilter::toAlbums);
+    }
+
+    /**
+     * This method opens a stream of the Lyrics records of the lyrics.csv file. <br>
+     * The file is read once, one record at a time, so there is no need to count the records first. <br>
+     * @param fileName The name of the file
+     * @return The CSVRecordSource of the Lyrics records, which must be closed by the caller
+     * @throws IOException
+     */
+    public static CSVRecordSource<Lyrics> openLyrics(String fileName) throws IOException {
+        return new CSVRecordSource<>(fileName, CSVFileFilter::toLyrics);
+    }
 
+    /**
+     * This method opens a stream of the Songs records of the songs.csv file, which is parsed in parallel. <br>
+     * The records are the same as the records of openSongs, in the same order. <br>
+     * @param fileName The name of the file
+     * @return The MappedCSVSource of the Songs records, which must be closed by the caller
+     * @throws IOException
+     */
+    public static MappedCSVSource<Songs> mapSongs(String fileName) throws IOException {
+        return new MappedCSVSource<>(fileName, CSVFileFilter::toSongs);
+    }
 
+    /**
+     * This method opens a stream of the Albums records of the albums.csv file, which is parsed in parallel. <br>
+     * The records are the same as the records of openAlbums, in the same order. <br>
+     * @param fileName The name of the file
+     * @return The MappedCSVSource of the Albums records, which must be closed by the caller
+     * @throws IOException
+     */
+    public static MappedCSVSource<Albums> mapAlbums(String fileName) throws IOException {
+        return new MappedCSVSource<>(fileName, CSVFileFilter::toAlbums);
+    }
+
+    /**
+     * This method opens a stream of the Lyrics records of the lyrics.csv file, which is parsed in parallel. <br>
+     * The records are the same as the records of openLyrics, in the same order. <br>
+     * @param fileName The name of the file
+     * @return The MappedCSVSource of the Lyrics records, which must be closed by the caller
+     * @throws IOException
+     */
+    public static MappedCSVSource<Lyrics> mapLyrics(String fileName) throws IOException {
+        return new MappedCSVSource<>(fileName, CSVFileFilter::toLyrics);
+    }
+
+    /**
+     * This method creates a Lyrics object from a line of the lyrics.csv file.
+     * @param line The columns of the line
+     * @return The Lyrics object
+     */
+    static Lyrics toLyrics(String[] line) {
+        // singer_name is the third column of the lyrics.csv file
+        // Remove the word Lyrics from the singer name
+        // The other differences from the singer names of the songs.csv file (featured singers etc.)
+        // are handled by the key of the join
+        String singerName = CanonicalNames.cleanSingerName(line[2]);
+        // song_name is the fourth column of the lyrics.csv file
+        String songName = line[3];
+        // song_href is the second column of the lyrics.csv file
+        String songHref = line[1];
+        // Create the Lyrics object, with the text of the lyrics (the fifth column), which has one row per line
+        return new Lyrics(singerName, songName, songHref, line[4]);
+    }
+
+    /**
+     * This method creates a Songs object from a line of the songs.csv file.
+     * @param line The columns of the line
+     * @return The Songs object
+     */
+    static Songs toSongs(String[] line) {
+        // singer_name is the third column of the songs.csv file
+        // Remove the word Lyrics from the singer name
+        String singerName = CanonicalNames.cleanSingerName(line[2]);
+        // song_name is the fourth column of the songs.csv file
+        String songName = line[3];
+        // song_href is the fifth column of the songs.csv file
+        String songHref = line[4];
+        return new Songs(singerName, songName, songHref);
+    }
+
+    /**
+     * This method creates an Albums object from a line of the albums.csv file.
+     * @param line The columns of the line
+     * @return The Albums object
+     */
+    static Albums toAlbums(String[] line) {
+        // singer_name is the third column of the albums.csv file
+        // Remove the word Lyrics from the singer name
+        String singerName = CanonicalNames.cleanSingerName(line[2]);
+        // album_name is the fourth column of the albums.csv file
+        String albumName = line[3];
+        // album_type is the fifth column of the albums.csv file
+        String albumType = line[4];
+        // album_year is the sixth column of the albums.csv file
+        String albumYear = line[5];
+        return new Albums(singerName, albumName, albumType, albumYear);
+    }
+}
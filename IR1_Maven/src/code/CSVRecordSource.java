@@ -0,0 +1,79 @@
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * CSVRecordSource.java <br>
+ * This class streams the records of a csv file, as typed objects (Songs, Albums or Lyrics). <br>
+ * The file is read exactly once, one record at a time, so that the records can be fed
+ * straight into the indexers, without keeping all of them in memory. <br>
+ * @param <T> The type of the records (Songs, Albums or Lyrics)
+ * @see CSVFileFilter#openSongs(String fileName)
+ * @see CSVFileFilter#openAlbums(String fileName)
+ * @see CSVFileFilter#openLyrics(String fileName)
+ * @see MappedCSVSource
+ */
+public class CSVRecordSource<T> implements Iterator<T>, Closeable {
+    private final String fileName;
+    private final CSVReader csvReader;
+    private final Function<String[], T> rowMapper;
+    private String[] nextLine;
+
+    /**
+     * Constructor of the class. <br>
+     * It opens the file and skips the first line, because it contains the headers of the columns. <br>
+     * @param fileName The name of the file
+     * @param rowMapper The function that creates the record object from a line of the file
+     * @throws IOException
+     */
+    public CSVRecordSource(String fileName, Function<String[], T> rowMapper) throws IOException {
+        this.fileName = fileName;
+        this.rowMapper = rowMapper;
+        // The csv files are UTF-8, whatever the default charset of the platform is
+        this.csvReader = new CSVReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8));
+        // Skip first line, because it contains the headers of the columns
+        readNextLine();
+        readNextLine();
+    }
+
+    private void readNextLine() {
+        try {
+            nextLine = csvReader.readNext();
+        } catch (CsvValidationException | IOException e) {
+            System.out.println("Error reading the " + fileName + " file");
+            System.exit(1);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextLine != null;
+    }
+
+    @Override
+    public T next() {
+        if (nextLine == null) {
+            throw new NoSuchElementException();
+        }
+        T record = rowMapper.apply(nextLine);
+        readNextLine();
+        return record;
+    }
+
+    /**
+     * This method closes the underlying csv reader. <br>
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        csvReader.close();
+    }
+}
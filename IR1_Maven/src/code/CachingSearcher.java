@@ -0,0 +1,243 @@
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.queryparser.classic.ParseException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * CachingSearcher.java <br>
+ * This class is a cache of search results, in front of a Searcher. <br>
+ * The results are cached per the parameters of the search (e.g. the method, the field, the normalized query,
+ * the page size, the filters and the ranking model), in least recently used order,
+ * and the cache is bounded both by the number of results and by their estimated size in bytes. <br>
+ * The GUI caches the first page of its searches, which is what a repeated query paints first. <br>
+ * The cache is emptied when the Searcher picks up a new version of the index, so that
+ * it never returns results of an old version. <br>
+ * @see Searcher
+ */
+public class CachingSearcher {
+    // Rough sizes of the objects of a cached result, for the estimation of its size in bytes
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+    private static final long HIT_OVERHEAD_BYTES = 64;
+
+    private final Searcher searcher;
+    private final int maxEntries;
+    private final long maxBytes;
+    // The access order LinkedHashMap keeps the least recently used entry first
+    private final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // The version of the index of the cached results
+    private long cachedIndexVersion = -1;
+    private long cachedBytes;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long invalidationCount;
+
+    /**
+     * Constructor of the class.
+     * @param searcher The Searcher object, whose results are cached
+     * @param maxEntries The maximum number of cached results
+     * @param maxBytes The maximum estimated size of the cached results in bytes
+     */
+    public CachingSearcher(Searcher searcher, int maxEntries, long maxBytes) {
+        this.searcher = searcher;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * This method searches the index, like Searcher.search, but returns the cached results if there are any. <br>
+     * @param searchQuery The query for the searching of the index
+     * @param field The field of the index, on which the searching will be based on (SONGS_SINGER_NAME etc.)
+     * @param topK The number of the top documents that will be returned
+     * @return The SearchResults object, which contains the topK documents
+     * @throws IOException
+     * @throws ParseException
+     * @see Searcher#search(String searchQuery, String field, int topK)
+     */
+    public SearchResults search(String searchQuery, String field, int topK) throws IOException, ParseException {
+        String query = normalize(searchQuery);
+        return search(Arrays.asList("search", field, query, topK), () -> searcher.search(query, field, topK));
+    }
+
+    /**
+     * This method returns the cached results of a search of the Searcher, or runs the search and caches its
+     * results. <br>
+     * The search must only depend on the parameters of the key and on the index of the Searcher,
+     * e.g. not on another index or on a state that the search changes. <br>
+     * @param parameters The parameters of the search, which identify its results (the query normalized with
+     * normalize), with equals and hashCode
+     * @param search The search of the Searcher
+     * @return The SearchResults object
+     * @throws IOException
+     * @throws ParseException
+     */
+    public SearchResults search(List<?> parameters, Search search) throws IOException, ParseException {
+        CacheKey key = new CacheKey(parameters);
+        long indexVersion = searcher.getIndexVersion();
+        synchronized (this) {
+            invalidateIfChanged(indexVersion);
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                hitCount++;
+                return entry.results;
+            }
+            missCount++;
+        }
+        // Search outside of the lock, so that the misses do not block the hits of other threads
+        SearchResults results = search.search();
+        long currentIndexVersion = searcher.getIndexVersion();
+        synchronized (this) {
+            invalidateIfChanged(currentIndexVersion);
+            // Cache only the results of the current version, which may have changed during the search
+            if (results.getIndexVersion() == cachedIndexVersion) {
+                put(key, results);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * This method normalizes the query, so that queries that differ only in their whitespace share a result. <br>
+     * The case is kept, because the operators (AND, OR, NOT) and the field names are case sensitive. <br>
+     * @param searchQuery The query
+     * @return The query, trimmed and with each run of whitespace replaced by a single space
+     */
+    static String normalize(String searchQuery) {
+        StringBuilder normalized = new StringBuilder(searchQuery.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < searchQuery.length(); i++) {
+            char c = searchQuery.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    private void invalidateIfChanged(long indexVersion) {
+        // Any other version is a change, since a rebuilt or reopened index does not continue the versions
+        if (indexVersion != cachedIndexVersion) {
+            if (!entries.isEmpty()) {
+                invalidationCount++;
+            }
+            entries.clear();
+            cachedBytes = 0;
+            cachedIndexVersion = indexVersion;
+        }
+    }
+
+    private void put(CacheKey key, SearchResults results) {
+        CacheEntry entry = new CacheEntry(results, estimateBytes(key, results));
+        CacheEntry previous = entries.put(key, entry);
+        if (previous != null) {
+            cachedBytes -= previous.bytes;
+        }
+        cachedBytes += entry.bytes;
+        // Evict the least recently used results, until the cache is within its bounds
+        Iterator<CacheEntry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || cachedBytes > maxBytes) && eldest.hasNext()) {
+            cachedBytes -= eldest.next().bytes;
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * This method estimates the size of a cached result in bytes, from the size of its stored fields.
+     */
+    private static long estimateBytes(CacheKey key, SearchResults results) {
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * key.parameters.toString().length();
+        for (Document document : results.getDocuments()) {
+            bytes += HIT_OVERHEAD_BYTES;
+            for (IndexableField field : document.getFields()) {
+                String value = field.stringValue();
+                bytes += HIT_OVERHEAD_BYTES + (value == null ? 0 : 2L * value.length());
+            }
+        }
+        return bytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getSizeInBytes() {
+        return cachedBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Cache hits : " + hitCount + ", misses : " + missCount + ", evictions : " + evictionCount +
+                ", invalidations : " + invalidationCount + ", entries : " + entries.size() +
+                ", bytes : " + cachedBytes;
+    }
+
+    /**
+     * The key of a cached result.
+     */
+    private static class CacheKey {
+        private final List<?> parameters;
+
+        private CacheKey(List<?> parameters) {
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CacheKey && parameters.equals(((CacheKey) o).parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return parameters.hashCode();
+        }
+    }
+
+    /**
+     * A search of the Searcher, whose results are cached.
+     */
+    public interface Search {
+        SearchResults search() throws IOException, ParseException;
+    }
+
+    /**
+     * A cached result, and its estimated size in bytes.
+     */
+    private static class CacheEntry {
+        private final SearchResults results;
+        private final long bytes;
+
+        private CacheEntry(SearchResults results, long bytes) {
+            this.results = results;
+            this.bytes = bytes;
+        }
+    }
+}
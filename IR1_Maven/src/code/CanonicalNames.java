@@ -0,0 +1,328 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CanonicalNames.java <br>
+ * This class is the one place where the names of the singers and of the songs are cleaned and normalized. <br>
+ * It is used by the CSV loaders (cleanSingerName), by the join of the songs with the lyrics (joinKey),
+ * and by the building of the URLs of the lyrics pages (urlSlug). <br>
+ * The keys are built in a single pass over the characters, without regular expressions:
+ * <ul>
+ *     <li>letters and digits are lowercased, and the accented Latin-1 letters lose their accents</li>
+ *     <li>apostrophes are dropped, and every other run of characters becomes one space</li>
+ *     <li>for the singers, the text in parentheses is dropped, only the first singer is kept
+ *     (the text after a &amp;, a comma or a "feat." is dropped), and a trailing "Lyrics" is dropped</li>
+ * </ul>
+ * So "Beyonc&eacute; (feat. Jay-Z) Lyrics" and "Beyonce &amp; Jay Z" have the same singer key "beyonce". <br>
+ * The join of the songs with the albums (singerKey) keeps all the singers, so that a band like
+ * "Earth, Wind &amp; Fire" is not joined with the singer "Earth". <br>
+ * The singers that have really different names (e.g. "Prince" and "The Artist Formerly Known As Prince")
+ * are mapped to one key by an alias dictionary, which is stored in a tab separated file
+ * (one "variant TAB canonical name" per line). The default aliases are read from the file of the
+ * names.aliases system property. <br>
+ * @see CSVFileFilter
+ * @see SongLyricsJoin#joinKey(String, String)
+ * @see WebScrapping#prepareURL(String)
+ */
+public class CanonicalNames {
+    public static final String ALIASES_FILE_PROPERTY = "names.aliases";
+
+    // The folded characters of U+00C0 to U+00FF (a space for the characters that are not letters)
+    private static final String LATIN_1_FOLDING = "aaaaaaaceeeeiiiidnooooo ouuuuyts" + "aaaaaaaceeeeiiiidnooooo ouuuuyty";
+    // The result of foldChar for the characters that are dropped, without splitting the words
+    private static final char DROPPED = '\u0000';
+    // The result of foldChar for the characters that split the words
+    private static final char SEPARATOR = ' ';
+
+    private static volatile CanonicalNames defaultNames;
+
+    // The singer key of each variant, and the singer key of its canonical name
+    private final Map<String, String> artistAliases = new ConcurrentHashMap<>();
+
+    /**
+     * This method returns the CanonicalNames object with the aliases of the names.aliases file. <br>
+     * If the system property is not set, or the file can not be read, there are no aliases. <br>
+     * @return The shared CanonicalNames object
+     */
+    public static CanonicalNames getDefault() {
+        CanonicalNames names = defaultNames;
+        if (names == null) {
+            synchronized (CanonicalNames.class) {
+                names = defaultNames;
+                if (names == null) {
+                    names = new CanonicalNames();
+                    String aliasesFile = System.getProperty(ALIASES_FILE_PROPERTY);
+                    if (aliasesFile != null) {
+                        try {
+                            names.loadAliases(Paths.get(aliasesFile));
+                        } catch (IOException e) {
+                            System.out.println("Error reading the aliases file " + aliasesFile);
+                        }
+                    }
+                    defaultNames = names;
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * This method reads the aliases of a tab separated file. <br>
+     * The empty lines and the lines that start with # are skipped. <br>
+     * @param file The aliases file
+     * @throws IOException
+     */
+    public void loadAliases(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (line.isEmpty() || line.charAt(0) == '#' || tab < 0) {
+                    continue;
+                }
+                addArtistAlias(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+    }
+
+    /**
+     * This method writes the aliases to a tab separated file, sorted by the variant. <br>
+     * The variants and the canonical names are written as their singer keys. <br>
+     * @param file The aliases file
+     * @throws IOException
+     */
+    public void saveAliases(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("# variant\tcanonical name");
+            writer.newLine();
+            for (Map.Entry<String, String> alias : new TreeMap<>(artistAliases).entrySet()) {
+                writer.write(alias.getKey() + '\t' + alias.getValue());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * This method maps a variant of the name of a singer to its canonical name.
+     * @param variant The variant (e.g. "The Artist Formerly Known As Prince")
+     * @param canonicalName The canonical name (e.g. "Prince")
+     */
+    public void addArtistAlias(String variant, String canonicalName) {
+        String variantKey = fold(variant, true, true);
+        String canonicalKey = fold(canonicalName, true, true);
+        if (!variantKey.equals(canonicalKey)) {
+            artistAliases.put(variantKey, canonicalKey);
+        }
+    }
+
+    public int getAliasCount() {
+        return artistAliases.size();
+    }
+
+    /**
+     * This method returns the key of a singer, for the comparison of the singer names of different sources.
+     * @param singerName The name of the singer
+     * @return The key of the singer, after the aliases
+     */
+    public String artistKey(String singerName) {
+        String key = fold(singerName, true, true);
+        String alias = artistAliases.get(key);
+        return alias == null ? key : alias;
+    }
+
+    /**
+     * This method returns the key of all the singers of a singer name, for the join of the songs with the
+     * albums of the same singers (LuceneConstants.SINGER_KEY). <br>
+     * It is folded like artistKey, but the singers after a &amp;, a comma or a "feat." are kept, since the
+     * first singer alone may be another singer (e.g. "Earth, Wind &amp; Fire" and "Earth"). <br>
+     * @param singerName The name of the singer
+     * @return The key of the singers, after the aliases
+     */
+    public String singerKey(String singerName) {
+        String key = fold(singerName, true, false);
+        // The aliases are keyed by the first singer, so they only apply to the names of one singer
+        String alias = artistAliases.get(key);
+        return alias == null ? key : alias;
+    }
+
+    /**
+     * This method returns the key of a song name, for the comparison of the song names of different sources.
+     * @param songName The name of the song
+     * @return The key of the song name
+     */
+    public String songKey(String songName) {
+        return fold(songName, false, false);
+    }
+
+    /**
+     * This method returns the key of the join of the songs with the lyrics. <br>
+     * The separator is a character that can not appear in the keys. <br>
+     * @param singerName The name of the singer
+     * @param songName The name of the song
+     * @return The key of the (singer name, song name) pair
+     */
+    public String joinKey(String singerName, String songName) {
+        return artistKey(singerName) + '\u0000' + songKey(songName);
+    }
+
+    /**
+     * This method cleans the name of a singer of a csv file, for its display and its storage in the index. <br>
+     * It removes the word " Lyrics", that the csv files add to the singer names, and the white spaces
+     * at the beginning and the end of the name. The other differences of the names are handled by the keys. <br>
+     * @param singerName The name of the singer, as it is in the csv file
+     * @return The cleaned name of the singer
+     */
+    public static String cleanSingerName(String singerName) {
+        int lyrics = singerName.indexOf(" Lyrics");
+        if (lyrics < 0) {
+            return singerName.trim();
+        }
+        StringBuilder cleaned = new StringBuilder(singerName.length());
+        int start = 0;
+        while (lyrics >= 0) {
+            cleaned.append(singerName, start, lyrics);
+            start = lyrics + " Lyrics".length();
+            lyrics = singerName.indexOf(" Lyrics", start);
+        }
+        cleaned.append(singerName, start, singerName.length());
+        return cleaned.toString().trim();
+    }
+
+    /**
+     * This method returns the part of the URL of a lyrics page for a singer or song name. <br>
+     * It keeps only the ASCII letters and digits, '_' and '-', in lowercase. <br>
+     * @param name The name of the singer or of the song (e.g. "Taylor Swift")
+     * @return The part of the URL (e.g. "taylorswift"), or null if the name is null
+     */
+    public static String urlSlug(String name) {
+        if (name == null) {
+            return null;
+        }
+        char[] slug = new char[name.length()];
+        int length = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '-') {
+                slug[length++] = c;
+            } else if (c >= 'A' && c <= 'Z') {
+                slug[length++] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return new String(slug, 0, length);
+    }
+
+    /**
+     * This method folds a name into its key, in a single pass.
+     * @param name The name
+     * @param artist True for the rules of the singer names
+     * @param firstSinger True to keep only the first singer of a singer name
+     * @return The key
+     */
+    private static String fold(String name, boolean artist, boolean firstSinger) {
+        char[] key = new char[name.length()];
+        int length = 0;
+        // The start of the last word of the key
+        int wordStart = 0;
+        boolean pendingSeparator = false;
+        int parentheses = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (artist) {
+                if (c == '(' || c == '[') {
+                    parentheses++;
+                    pendingSeparator = length > 0;
+                    continue;
+                }
+                if (c == ')' || c == ']') {
+                    parentheses = Math.max(0, parentheses - 1);
+                    pendingSeparator = length > 0;
+                    continue;
+                }
+                if (parentheses > 0) {
+                    continue;
+                }
+                // Keep only the first singer
+                if (firstSinger && (c == '&' || c == ',')) {
+                    break;
+                }
+            }
+            char folded = foldChar(c);
+            if (folded == DROPPED) {
+                continue;
+            }
+            if (folded == SEPARATOR) {
+                if (firstSinger && isFeaturing(key, wordStart, length)) {
+                    // Keep only the first singer
+                    length = wordStart;
+                    break;
+                }
+                pendingSeparator = length > 0;
+                continue;
+            }
+            if (pendingSeparator) {
+                key[length++] = SEPARATOR;
+                wordStart = length;
+                pendingSeparator = false;
+            }
+            key[length++] = folded;
+        }
+        if ((firstSinger && isFeaturing(key, wordStart, length)) || (artist && isWord(key, wordStart, length, "lyrics"))) {
+            length = wordStart;
+        }
+        // Remove the separator before a dropped word
+        if (length > 0 && key[length - 1] == SEPARATOR) {
+            length--;
+        }
+        if (artist && length == 0 && !name.isEmpty()) {
+            // The whole name was dropped (e.g. it is in parentheses), so it is folded without the singer rules
+            return fold(name, false, false);
+        }
+        return new String(key, 0, length);
+    }
+
+    private static char foldChar(char c) {
+        if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+            return c;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        if (c == '\'' || c == '\u2019' || c == '.') {
+            // "Don't" and "Dont", "Mr. Big" and "Mr Big", "feat." and "feat" have the same key
+            return DROPPED;
+        }
+        if (c < 0xC0) {
+            return SEPARATOR;
+        }
+        if (c <= 0xFF) {
+            return LATIN_1_FOLDING.charAt(c - 0xC0);
+        }
+        return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : SEPARATOR;
+    }
+
+    private static boolean isFeaturing(char[] key, int wordStart, int length) {
+        return isWord(key, wordStart, length, "feat") || isWord(key, wordStart, length, "ft")
+                || isWord(key, wordStart, length, "featuring");
+    }
+
+    private static boolean isWord(char[] key, int wordStart, int length, String word) {
+        if (length - wordStart != word.length() || wordStart == 0) {
+            // The first word is never dropped
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (key[wordStart + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
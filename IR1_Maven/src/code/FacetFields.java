@@ -0,0 +1,65 @@
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * FacetFields.java <br>
+ * This class contains the facets of the indexes, which count the hits of a search by singer, album type and
+ * decade, for the sidebar of the results. <br>
+ * The facets are SortedSetDocValues fields, so they are counted from the doc values of the hits in the same pass
+ * as the search, without loading the stored documents, and they need no taxonomy index. <br>
+ * @see Searcher#searchFacets(String, String, java.util.Map, org.apache.lucene.search.ScoreDoc, int, java.util.Set)
+ */
+public class FacetFields {
+    // The dimensions of the facets
+    public static final String SINGER = "singer";
+    public static final String ALBUM_TYPE = "albumType";
+    public static final String DECADE = "decade";
+
+    // The configuration of the facets, which is the same for the indexers and the searchers
+    // All the dimensions are single-valued and flat, which is the default configuration
+    public static final FacetsConfig CONFIG = new FacetsConfig();
+
+    private FacetFields() {
+    }
+
+    /**
+     * This method adds a facet value to a document, unless the value is empty.
+     * @param document The document
+     * @param dimension The dimension of the facet (SINGER etc.)
+     * @param value The value of the facet
+     */
+    public static void addFacet(Document document, String dimension, String value) {
+        // A facet value can not be empty
+        if (value != null && !value.isEmpty()) {
+            document.add(new SortedSetDocValuesFacetField(dimension, value));
+        }
+    }
+
+    /**
+     * This method translates the facet fields of a document into the doc values that are indexed. <br>
+     * It must be called on each document with facets, before it is added to the index. <br>
+     * @param document The document, with its facet fields
+     * @return The document that is added to the index
+     */
+    public static Document build(Document document) {
+        try {
+            return CONFIG.build(document);
+        } catch (IOException e) {
+            // Only the taxonomy facets write to a taxonomy index, the SortedSetDocValues facets never do
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * This method returns the decade of a year, as the value of the DECADE facet.
+     * @param year The year (e.g. 1994)
+     * @return The decade (e.g. "1990s")
+     */
+    public static String decade(int year) {
+        return (year - Math.floorMod(year, 10)) + "s";
+    }
+}
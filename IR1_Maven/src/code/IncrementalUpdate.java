@@ -0,0 +1,155 @@
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * IncrementalUpdate.java <br>
+ * This class applies only the changes of the records to an existing index, instead of rebuilding it. <br>
+ * Each document of the index has a unique key and the hash of its content. For each record: <br>
+ * - if its key is not in the index, the document is added <br>
+ * - if its key is in the index with a different hash, the document is replaced <br>
+ * - if its key is in the index with the same hash, nothing is done <br>
+ * In the end, the documents whose keys were not seen in the records are deleted. <br>
+ * The documents that are not from the records (e.g. the scraped songs of the live indexer) are kept as they are :
+ * a record with the same key is skipped, and they are not deleted. <br>
+ * @see MyIndexer#startIncrementalUpdate(String keyField)
+ */
+public class IncrementalUpdate {
+    private final IndexWriter writer;
+    private final IndexingPipeline pipeline;
+    private final String keyField;
+    // The key and the content hash of each document that was in the index before the update
+    private final Map<String, String> indexedHashes;
+    // The keys of the documents that are not from the records, which are not compared, replaced or deleted
+    private final Set<String> keptKeys;
+    private final Set<String> seenKeys = new HashSet<>();
+
+    private int added;
+    private int changed;
+    private int unchanged;
+    private int deleted;
+    private int duplicates;
+    private int kept;
+
+    public IncrementalUpdate(IndexWriter writer, IndexingPipeline pipeline, String keyField,
+                             Map<String, String> indexedHashes) {
+        this(writer, pipeline, keyField, indexedHashes, Collections.emptySet());
+    }
+
+    public IncrementalUpdate(IndexWriter writer, IndexingPipeline pipeline, String keyField,
+                             Map<String, String> indexedHashes, Set<String> keptKeys) {
+        this.writer = writer;
+        this.pipeline = pipeline;
+        this.keyField = keyField;
+        this.indexedHashes = indexedHashes;
+        this.keptKeys = keptKeys;
+    }
+
+    /**
+     * This method applies a record to the index. <br>
+     * The document is created only if it has to be added or replaced. <br>
+     * @param key The unique key of the record
+     * @param contentHash The hash of the content of the record
+     * @param document Creates the document of the record
+     * @throws IOException
+     */
+    public void apply(String key, String contentHash, Supplier<Document> document) throws IOException {
+        applyBlock(key, contentHash, () -> Collections.singletonList(document.get()));
+    }
+
+    /**
+     * This method applies a record to the index, as a block of documents (e.g. a song and its lines). <br>
+     * All the documents of the block must have the key, so that the whole block is replaced or deleted. <br>
+     * The block is created only if it has to be added or replaced. <br>
+     * @param key The unique key of the record
+     * @param contentHash The hash of the content of the record
+     * @param block Creates the documents of the record, with the parent document last
+     * @throws IOException
+     * @see IndexingPipeline#submitBlock(Term, List)
+     */
+    public void applyBlock(String key, String contentHash, Supplier<List<Document>> block) throws IOException {
+        if (!seenKeys.add(key)) {
+            // The key is unique in the index, so only the first record with this key is kept,
+            // like when the index is built (AlbumsIndexer.indexAlbums and SongLyricsJoin.join)
+            duplicates++;
+            return;
+        }
+        if (keptKeys.contains(key)) {
+            // The document that is not from the records is newer than the record (e.g. its lyrics were scraped)
+            kept++;
+            return;
+        }
+        String indexedHash = indexedHashes.get(key);
+        if (indexedHash == null) {
+            added++;
+            pipeline.submitBlock(null, block.get());
+        } else if (!indexedHash.equals(contentHash)) {
+            changed++;
+            pipeline.submitBlock(new Term(keyField, key), block.get());
+        } else {
+            unchanged++;
+        }
+    }
+
+    /**
+     * This method waits for the added and replaced documents, and deletes the documents
+     * whose keys were not seen in the records. <br>
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        pipeline.finish();
+        for (String key : indexedHashes.keySet()) {
+            if (!seenKeys.contains(key)) {
+                writer.deleteDocuments(new Term(keyField, key));
+                deleted++;
+            }
+        }
+    }
+
+    /**
+     * This method stops the update after a failure or a cancellation, without deleting any documents. <br>
+     * @see IndexingPipeline#abort()
+     */
+    public void abort() {
+        pipeline.abort();
+    }
+
+    public int getAdded() {
+        return added;
+    }
+
+    public int getChanged() {
+        return changed;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return The number of the records that were skipped, because the index has a document with the same key
+     * that is not from the records
+     */
+    public int getKept() {
+        return kept;
+    }
+
+    @Override
+    public String toString() {
+        return "Added : " + added + ", changed : " + changed + ", unchanged : " + unchanged +
+                ", deleted : " + deleted + ", duplicate keys : " + duplicates + ", kept (not from the records) : "
+                + keptKeys.size();
+    }
+}
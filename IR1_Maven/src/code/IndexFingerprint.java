@@ -0,0 +1,157 @@
+import org.apache.lucene.index.IndexNotFoundException;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * IndexFingerprint.java <br>
+ * This class describes what an index was built from : the size and the last modification time of each
+ * source csv file, the schema version of the documents, and the options of the indexer. <br>
+ * The fingerprint is stored in the user data of the commit of the index, so that at startup an existing index
+ * is reused if it was built from the same files with the same schema, instead of being rebuilt. <br>
+ * The size and the modification time are read without reading the files, so the check takes a few
+ * milliseconds, whatever the size of the csv files. <br>
+ * @see MyIndexer#setCommitUserData(Map)
+ * @see LuceneConstants#SCHEMA_VERSION
+ */
+public class IndexFingerprint {
+    private static final String SCHEMA_VERSION_KEY = "schemaVersion";
+    private static final String SOURCE_PREFIX = "source:";
+    private static final String OPTION_PREFIX = "option:";
+
+    // Sorted, so that the differences are always reported in the same order
+    private final Map<String, String> values = new TreeMap<>();
+
+    private IndexFingerprint() {
+        values.put(SCHEMA_VERSION_KEY, Integer.toString(LuceneConstants.SCHEMA_VERSION));
+    }
+
+    /**
+     * This method creates the fingerprint of the source files of an index, with the current schema version.
+     * @param sourceFiles The csv files of the index
+     * @return The IndexFingerprint object
+     * @throws IOException If a source file can not be read
+     */
+    public static IndexFingerprint of(String... sourceFiles) throws IOException {
+        IndexFingerprint fingerprint = new IndexFingerprint();
+        for (String sourceFile : sourceFiles) {
+            Path path = Paths.get(sourceFile);
+            // Only the name of the file, so that the index is still valid if the project directory is moved
+            fingerprint.values.put(SOURCE_PREFIX + path.getFileName(),
+                    Files.size(path) + "@" + Files.getLastModifiedTime(path).toMillis());
+        }
+        return fingerprint;
+    }
+
+    /**
+     * This method adds an option of the indexer, which changes the documents of the index (e.g. the catch-all field).
+     * @param name The name of the option
+     * @param value The value of the option
+     * @return This IndexFingerprint object
+     */
+    public IndexFingerprint withOption(String name, String value) {
+        values.put(OPTION_PREFIX + name, value);
+        return this;
+    }
+
+    /**
+     * This method returns the fingerprint as the user data of a commit.
+     * @return The keys and the values of the fingerprint
+     */
+    public Map<String, String> toUserData() {
+        return new TreeMap<>(values);
+    }
+
+    /**
+     * This method compares the fingerprint with the user data of the last commit of an index.
+     * @param indexDir The directory of the index
+     * @return null if the index was built from the same sources with the same schema,
+     * otherwise the reason why the index must be rebuilt
+     */
+    public String findChange(String indexDir) {
+        Map<String, String> userData;
+        try {
+            userData = readUserData(indexDir);
+        } catch (IndexNotFoundException e) {
+            return "there is no index";
+        } catch (IOException e) {
+            return "the index can not be read (" + e.getMessage() + ")";
+        }
+        String indexedVersion = userData.get(SCHEMA_VERSION_KEY);
+        if (!values.get(SCHEMA_VERSION_KEY).equals(indexedVersion)) {
+            return "the schema version changed from " + indexedVersion + " to " + values.get(SCHEMA_VERSION_KEY);
+        }
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (!entry.getValue().equals(userData.get(entry.getKey()))) {
+                return entry.getKey() + " changed";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method checks whether an index can be updated incrementally to this fingerprint, which is when
+     * only its source files changed : the documents of the index have the same schema and the same options,
+     * so the records that did not change keep their documents.
+     * @param indexDir The directory of the index
+     * @return True if the index exists with the same schema version and the same options
+     */
+    public boolean canUpdate(String indexDir) {
+        Map<String, String> userData;
+        try {
+            userData = readUserData(indexDir);
+        } catch (IOException e) {
+            return false;
+        }
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (!entry.getKey().startsWith(SOURCE_PREFIX) && !entry.getValue().equals(userData.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method returns the options of the indexer of an index, from the user data of its commit.
+     * @param userData The user data of the commit of the index
+     * @return The values of the options, by their names (empty for an index without a fingerprint)
+     * @see #withOption(String, String)
+     */
+    public static Map<String, String> options(Iterable<Map.Entry<String, String>> userData) {
+        Map<String, String> options = new HashMap<>();
+        if (userData != null) {
+            for (Map.Entry<String, String> entry : userData) {
+                if (entry.getKey().startsWith(OPTION_PREFIX)) {
+                    options.put(entry.getKey().substring(OPTION_PREFIX.length()), entry.getValue());
+                }
+            }
+        }
+        return options;
+    }
+
+    /**
+     * This method reads the user data of the last commit of an index.
+     * @param indexDir The directory of the index
+     * @return The user data of the commit
+     * @throws IOException If there is no index, or it can not be read
+     */
+    private static Map<String, String> readUserData(String indexDir) throws IOException {
+        try (Directory directory = FSDirectory.open(Paths.get(indexDir))) {
+            // Only the segments file of the last commit is read, the index itself is not opened
+            return SegmentInfos.readLatestCommit(directory).getUserData();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
@@ -0,0 +1,66 @@
+import org.apache.lucene.index.IndexWriterConfig;
+
+/**
+ * IndexerSettings.java <br>
+ * This class is used to store the settings of the indexing pipeline of the MyIndexer subclasses. <br>
+ * It contains the number of the worker threads, the capacity of the queue between the reader of the
+ * records and the workers, and the RAM buffer and the max buffered documents of the IndexWriterConfig. <br>
+ * The default values can be overridden with the system properties indexer.threads, indexer.queueCapacity,
+ * indexer.ramBufferSizeMB and indexer.maxBufferedDocs. <br>
+ * @see MyIndexer
+ * @see IndexingPipeline
+ */
+public class IndexerSettings {
+    private final int workerThreads;
+    private final int queueCapacity;
+    private final double ramBufferSizeMB;
+    private final int maxBufferedDocs;
+
+    /**
+     * Constructor of the class. <br>
+     * @param workerThreads The number of the threads that add the documents to the index
+     * @param queueCapacity The maximum number of documents waiting for a worker (backpressure on the reader)
+     * @param ramBufferSizeMB The RAM buffer of the IndexWriter, after which the documents are flushed to disk
+     * @param maxBufferedDocs The documents after which the IndexWriter flushes,
+     *                        or IndexWriterConfig.DISABLE_AUTO_FLUSH to flush only by RAM usage
+     */
+    public IndexerSettings(int workerThreads, int queueCapacity, double ramBufferSizeMB, int maxBufferedDocs) {
+        if (workerThreads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The worker threads and the queue capacity must be at least 1");
+        }
+        this.workerThreads = workerThreads;
+        this.queueCapacity = queueCapacity;
+        this.ramBufferSizeMB = ramBufferSizeMB;
+        this.maxBufferedDocs = maxBufferedDocs;
+    }
+
+    /**
+     * This method returns the default settings. <br>
+     * By default, there is one worker per available core, and the IndexWriter uses its own default RAM buffer. <br>
+     * @return The default IndexerSettings
+     */
+    public static IndexerSettings defaults() {
+        int workerThreads = Integer.getInteger("indexer.threads", Runtime.getRuntime().availableProcessors());
+        int queueCapacity = Integer.getInteger("indexer.queueCapacity", 1000);
+        double ramBufferSizeMB = Double.parseDouble(System.getProperty("indexer.ramBufferSizeMB",
+                String.valueOf(IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB)));
+        int maxBufferedDocs = Integer.getInteger("indexer.maxBufferedDocs", IndexWriterConfig.DISABLE_AUTO_FLUSH);
+        return new IndexerSettings(workerThreads, queueCapacity, ramBufferSizeMB, maxBufferedDocs);
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public double getRamBufferSizeMB() {
+        return ramBufferSizeMB;
+    }
+
+    public int getMaxBufferedDocs() {
+        return maxBufferedDocs;
+    }
+}
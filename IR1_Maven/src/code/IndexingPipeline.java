@@ -0,0 +1,289 @@
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IndexingPipeline.java <br>
+ * This class is a producer/consumer pipeline, for the addition of documents to an index. <br>
+ * The thread that reads the records (the producer) submits the documents to a bounded queue, and a number of
+ * worker threads (the consumers) take them from the queue and add them to the IndexWriter, which is thread-safe. <br>
+ * When the queue is full, the producer waits, so that the documents in memory are never more than the
+ * capacity of the queue. <br>
+ * @see MyIndexer#startPipeline()
+ * @see IndexerSettings
+ */
+public class IndexingPipeline {
+    // Marks the end of the documents for the workers
+    private static final Operation END_OF_DOCUMENTS = new Operation(null, null);
+    // How often the producer checks for a failed worker, while it waits for space in the queue
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    private final String name;
+    private final IndexWriter writer;
+    private final BlockingQueue<Operation> queue;
+    private final Thread[] workers;
+    // The number of the documents (not of the blocks) added by each worker
+    private final long[] workerDocs;
+    private final long[] workerBusyNanos;
+    private final long[] workerWallNanos;
+    private volatile IOException failure;
+    // Whether the end of the pipeline was recorded in the metrics, by finish or by abort
+    private boolean ended;
+
+    /**
+     * Constructor of the class. <br>
+     * It starts the worker threads, which wait for documents in the queue. <br>
+     * @param name The name of the pipeline, used in the report
+     * @param writer The IndexWriter object, to which the documents are added
+     * @param settings The number of the workers and the capacity of the queue
+     */
+    public IndexingPipeline(String name, IndexWriter writer, IndexerSettings settings) {
+        this.name = name;
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        int workerThreads = settings.getWorkerThreads();
+        this.workers = new Thread[workerThreads];
+        this.workerDocs = new long[workerThreads];
+        this.workerBusyNanos = new long[workerThreads];
+        this.workerWallNanos = new long[workerThreads];
+        Metrics.get().startIndexing();
+        for (int i = 0; i < workerThreads; i++) {
+            final int workerId = i;
+            workers[i] = new Thread(() -> work(workerId), name + "-worker-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * This method is the loop of each worker. <br>
+     * It takes the documents from the queue and adds them to the index, until the end of the documents. <br>
+     * @param workerId The number of the worker
+     */
+    private void work(int workerId) {
+        long startTime = System.nanoTime();
+        try {
+            while (true) {
+                Operation operation = queue.take();
+                if (operation == END_OF_DOCUMENTS) {
+                    break;
+                }
+                long addStartTime = System.nanoTime();
+                if (operation.key == null) {
+                    writer.addDocuments(operation.documents);
+                } else {
+                    // Atomically delete the documents with the same key and add the new ones
+                    writer.updateDocuments(operation.key, operation.documents);
+                }
+                long addNanos = System.nanoTime() - addStartTime;
+                workerBusyNanos[workerId] += addNanos;
+                workerDocs[workerId] += operation.documents.size();
+                Metrics.get().recordStage(Metrics.Stage.ADD_DOCUMENT, addNanos);
+                for (Document document : operation.documents) {
+                    Metrics.get().recordDocument(textBytes(document));
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            fail(new IOException("Error adding a document to the index", e));
+        } catch (InterruptedException e) {
+            fail(new InterruptedIOException("The indexing worker was interrupted"));
+        }
+        workerWallNanos[workerId] = System.nanoTime() - startTime;
+    }
+
+    /**
+     * This method returns the size of the text of a document, in UTF-8 bytes, for the bytes indexed metric. <br>
+     * Only the string values of the fields are counted (not the doc values and the numbers). <br>
+     * @param document The document
+     * @return The number of the bytes of the text
+     */
+    private static long textBytes(Document document) {
+        long bytes = 0;
+        for (IndexableField field : document.getFields()) {
+            String value = field.stringValue();
+            if (value != null) {
+                bytes += utf8Length(value);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * This method returns the length of a string in UTF-8, without encoding it.
+     */
+    private static long utf8Length(String value) {
+        long length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x800) {
+                // 3 bytes, or 4 bytes for a surrogate pair (2 chars)
+                length += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private synchronized void fail(IOException e) {
+        // Keep only the first failure, the rest are usually caused by it
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * This method submits a document to the pipeline. <br>
+     * It waits while the queue is full. <br>
+     * @param document The document to be added to the index
+     * @throws IOException If a worker failed to add a document
+     */
+    public void submit(Document document) throws IOException {
+        submit(new Operation(null, Collections.singletonList(document)));
+    }
+
+    /**
+     * This method submits a document to the pipeline, that replaces the documents with the same key. <br>
+     * It waits while the queue is full. <br>
+     * @param key The term of the unique key of the document
+     * @param document The document to be added to the index
+     * @throws IOException If a worker failed to add a document
+     */
+    public void submit(Term key, Document document) throws IOException {
+        submit(new Operation(key, Collections.singletonList(document)));
+    }
+
+    /**
+     * This method submits a block of documents to the pipeline, that replaces the documents with the same key
+     * (or null for a new block). <br>
+     * The documents of a block are added together, with consecutive document ids, so the last document
+     * can be the parent of the others in a block-join query. <br>
+     * It waits while the queue is full. <br>
+     * @param key The term of the unique key of the block, which all its documents must have, or null
+     * @param block The documents of the block, with the parent document last
+     * @throws IOException If a worker failed to add a document
+     */
+    public void submitBlock(Term key, List<Document> block) throws IOException {
+        submit(new Operation(key, block));
+    }
+
+    private void submit(Operation operation) throws IOException {
+        try {
+            while (!queue.offer(operation, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an indexing worker");
+        }
+        checkFailure();
+    }
+
+    /**
+     * This method waits until all the submitted documents are added to the index, and stops the workers. <br>
+     * It prints the number of documents and the documents per second of each worker, and records the wall time
+     * of the pipeline in the metrics. <br>
+     * If a worker failed, the pipeline is aborted, so that all the workers are stopped before the failure is
+     * thrown, and the IndexWriter can be rolled back safely. <br>
+     * @return The total number of documents added to the index
+     * @throws IOException If a worker failed to add a document
+     */
+    public long finish() throws IOException {
+        try {
+            // One end marker for each worker
+            for (int i = 0; i < workers.length; i++) {
+                submit(END_OF_DOCUMENTS);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            checkFailure();
+        } catch (IOException e) {
+            // The end markers that were not queued are queued by abort, and the workers are joined
+            abort();
+            throw e;
+        } catch (InterruptedException e) {
+            abort();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the indexing workers");
+        }
+        endIndexing();
+        long totalDocs = 0;
+        for (int i = 0; i < workers.length; i++) {
+            totalDocs += workerDocs[i];
+            System.out.println(String.format(Locale.ROOT, "%s worker %d : %d docs, %.1f docs/sec (busy %.0f%%)",
+                    name, i + 1, workerDocs[i],
+                    workerDocs[i] / Math.max(workerWallNanos[i] / 1e9, 1e-9),
+                    100.0 * workerBusyNanos[i] / Math.max(workerWallNanos[i], 1)));
+        }
+        return totalDocs;
+    }
+
+    /**
+     * This method stops the pipeline after a failure or a cancellation of the producer. <br>
+     * The documents that are still in the queue are dropped, and the workers stop after the document that
+     * they are adding, so that the IndexWriter can be rolled back safely. <br>
+     * The workers are not interrupted, because an interrupted write closes the files of the IndexWriter. <br>
+     */
+    public void abort() {
+        queue.clear();
+        for (Thread worker : workers) {
+            // There is space in the queue, because the producer has stopped and the workers only take
+            queue.offer(END_OF_DOCUMENTS);
+        }
+        boolean interrupted = Thread.interrupted();
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        // Keep the interruption of the producer for its caller
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        endIndexing();
+    }
+
+    private void endIndexing() {
+        if (!ended) {
+            ended = true;
+            Metrics.get().endIndexing();
+        }
+    }
+
+    /**
+     * A document (or a block of documents) to be added to the index, and the key of the documents it replaces
+     * (null for a new document).
+     */
+    private static class Operation {
+        private final Term key;
+        private final List<Document> documents;
+
+        private Operation(Term key, List<Document> documents) {
+            this.key = key;
+            this.documents = documents;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JoinReport.java <br>
+ * This class is used to store the outcome of the join between the songs.csv and the lyrics.csv records. <br>
+ * It contains the number of matched songs, the number of unmatched songs and the number of orphan lyrics
+ * (lyrics that no song was matched with), together with a few samples of each miss. <br>
+ * @see SongLyricsIndexer
+ */
+public class JoinReport {
+    // Maximum number of samples kept for the unmatched songs and the orphan lyrics
+    private static final int MAX_SAMPLES = 10;
+
+    private int matchedSongs;
+    private int unmatchedSongs;
+    private int orphanLyrics;
+    private int duplicateSongs;
+    private final List<String> unmatchedSongSamples = new ArrayList<>();
+    private final List<String> orphanLyricsSamples = new ArrayList<>();
+
+    public void addMatchedSong() {
+        matchedSongs++;
+    }
+
+    public void addUnmatchedSong(String singerName, String songName) {
+        unmatchedSongs++;
+        if (unmatchedSongSamples.size() < MAX_SAMPLES) {
+            unmatchedSongSamples.add(singerName + " - " + songName);
+        }
+    }
+
+    public void addOrphanLyrics(String artistName, String songName) {
+        orphanLyrics++;
+        if (orphanLyricsSamples.size() < MAX_SAMPLES) {
+            orphanLyricsSamples.add(artistName + " - " + songName);
+        }
+    }
+
+    public void addDuplicateSong() {
+        duplicateSongs++;
+    }
+
+    public int getMatchedSongs() {
+        return matchedSongs;
+    }
+
+    public int getUnmatchedSongs() {
+        return unmatchedSongs;
+    }
+
+    public int getOrphanLyrics() {
+        return orphanLyrics;
+    }
+
+    public int getDuplicateSongs() {
+        return duplicateSongs;
+    }
+
+    public List<String> getUnmatchedSongSamples() {
+        return unmatchedSongSamples;
+    }
+
+    public List<String> getOrphanLyricsSamples() {
+        return orphanLyricsSamples;
+    }
+
+    @Override
+    public String toString() {
+        return "Matched songs : " + matchedSongs + "\n" +
+                "Unmatched songs : " + unmatchedSongs + " (samples: " + unmatchedSongSamples + ")\n" +
+                "Orphan lyrics : " + orphanLyrics + " (samples: " + orphanLyricsSamples + ")\n" +
+                "Duplicate songs : " + duplicateSongs + " (same href as an earlier song)";
+    }
+}
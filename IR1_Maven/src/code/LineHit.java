@@ -0,0 +1,60 @@
+/**
+ * LineHit.java <br>
+ * This class is a hit of the search of the lyrics lines : a song, and its best line for the query. <br>
+ * The fields are read from the stored fields of the song and of the line, so the lyrics of the song
+ * are never loaded to find the line. <br>
+ * @see Searcher#searchLines(String searchQuery, int topK)
+ */
+public class LineHit {
+    private final String songName;
+    private final String singerName;
+    private final String songHref;
+    private final int lineNumber;
+    private final String lineText;
+    private final float score;
+
+    public LineHit(String songName, String singerName, String songHref, int lineNumber, String lineText,
+                   float score) {
+        this.songName = songName;
+        this.singerName = singerName;
+        this.songHref = songHref;
+        this.lineNumber = lineNumber;
+        this.lineText = lineText;
+        this.score = score;
+    }
+
+    public String getSongName() {
+        return songName;
+    }
+
+    public String getSingerName() {
+        return singerName;
+    }
+
+    public String getSongHref() {
+        return songHref;
+    }
+
+    /**
+     * @return The number of the line in the lyrics (0 for the first line), as in Lyrics.getLine
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getLineText() {
+        return lineText;
+    }
+
+    /**
+     * @return The score of the song, which is the score of its best line
+     */
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return singerName + " - " + songName + " (line " + (lineNumber + 1) + ") : " + lineText;
+    }
+}
@@ -0,0 +1,174 @@
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LiveSongLyricsIndexer.java <br>
+ * This class adds freshly scraped lyrics to the songs-lyrics index, so that they can be searched
+ * without a rebuild of the index. <br>
+ * The IndexWriter is kept open, and the searches see the new documents through a near-real-time
+ * SearcherManager, which is reopened from the IndexWriter (without a commit) by a background thread,
+ * at most refreshIntervalMs after each change. The searches that are running keep their IndexSearcher,
+ * so they are never blocked by the reopening. <br>
+ * The documents have the same fields as the documents of the SongLyricsIndexer, with the options of the index
+ * (the catch-all field, the lines, the term vectors and the clusters of the near-duplicates), which are read from
+ * the IndexFingerprint of its commit. They are keyed by their href, so scraping a song again replaces its document. <br>
+ * The changes are committed to the disk by commit() and by close(). <br>
+ * The scraped songs are marked with their source (SONG_SOURCE), so an incremental update of the index from the
+ * csv files keeps them, instead of replacing or deleting them. A rebuild of the index drops them. <br>
+ * Only one IndexWriter can be open on an index directory, so the index must not be built or updated by
+ * another indexer while the LiveSongLyricsIndexer is open. <br>
+ * @see SongLyricsIndexer
+ * @see WebScrapping
+ */
+public class LiveSongLyricsIndexer extends SongLyricsIndexer implements Closeable {
+    // The minimum time between two reopens, when a thread waits for its change to become searchable
+    private static final double MIN_STALE_SEC = 0.025;
+
+    private final SearcherManager searcherManager;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    // Whether the index has the clusters of the near-duplicates
+    private final boolean clusters;
+
+    /**
+     * Constructor of the class. <br>
+     * The new documents become searchable at most Searcher.DEFAULT_REFRESH_INTERVAL_MS after they are added. <br>
+     * @param indexDir The directory of the index
+     * @throws IOException
+     */
+    public LiveSongLyricsIndexer(String indexDir) throws IOException {
+        this(indexDir, Searcher.DEFAULT_REFRESH_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor of the class. <br>
+     * @param indexDir The directory of the index
+     * @param refreshIntervalMs The maximum time after which the new documents become searchable
+     * @throws IOException
+     */
+    public LiveSongLyricsIndexer(String indexDir, long refreshIntervalMs) throws IOException {
+        super(indexDir);
+        // The documents must have the fields of the documents of the build, so the options of the build are
+        // read from the commit, whose user data the IndexWriter keeps for its own commits
+        Map<String, String> options = IndexFingerprint.options(writer.getLiveCommitData());
+        setIndexAllText(Boolean.parseBoolean(options.get("allText")));
+        setIndexLines(Boolean.parseBoolean(options.get("lines")));
+        setStoreTermVectors(Boolean.parseBoolean(options.get("termVectors")));
+        clusters = options.containsKey("dedup") && !"false".equals(options.get("dedup"));
+        // Open the IndexSearcher objects from the IndexWriter, so that they see the changes that are not committed
+        searcherManager = new SearcherManager(writer, null);
+        double maxStaleSec = refreshIntervalMs / 1000.0;
+        reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager, maxStaleSec,
+                Math.min(MIN_STALE_SEC, maxStaleSec));
+        reopenThread.setName("live-index-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+    }
+
+    /**
+     * This method adds the lyrics of a song to the index, or replaces the document of the song,
+     * if there is already a document with the same href. <br>
+     * It can be called by many threads at the same time. <br>
+     * @param lyrics The lyrics of the song, with the name of the singer, the name of the song and the href
+     * @return The generation of the change, for waitForSearchable
+     * @throws IOException
+     */
+    public long indexLyrics(Lyrics lyrics) throws IOException {
+        Long clusterId = clusters ? clusterOf(lyrics.getSongHref()) : null;
+        List<Document> block = getSongLyricsBlock(lyrics.getSongName(), lyrics.getArtistName(),
+                lyrics.getSongHref(), lyrics.getLyricsText(), clusterId);
+        // The song is the last document of its block
+        block.get(block.size() - 1).add(new SortedDocValuesField(LuceneConstants.SONG_SOURCE,
+                new BytesRef(LuceneConstants.SONG_SOURCE_SCRAPED)));
+        // The song and its lines (if they are indexed) replace the whole block of the song
+        return writer.updateDocuments(songKey(lyrics.getSongHref()), block);
+    }
+
+    /**
+     * This method returns the cluster of the near-duplicates of a scraped song. <br>
+     * The signatures of the build are not kept, so a song that is scraped again keeps the cluster of its
+     * document, and a new song starts its own cluster, like the first song of a cluster in the build. <br>
+     * @param songHref The href of the song
+     * @return The id of the cluster
+     * @throws IOException
+     */
+    private Long clusterOf(String songHref) throws IOException {
+        BooleanQuery query = new BooleanQuery.Builder()
+                .add(new TermQuery(songKey(songHref)), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(LuceneConstants.DOC_TYPE, LuceneConstants.DOC_TYPE_SONG)),
+                        BooleanClause.Occur.FILTER)
+                .build();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            ScoreDoc[] hits = searcher.search(query, 1).scoreDocs;
+            if (hits.length > 0) {
+                LeafReaderContext leaf = searcher.getIndexReader().leaves()
+                        .get(ReaderUtil.subIndex(hits[0].doc, searcher.getIndexReader().leaves()));
+                NumericDocValues clusterIds = DocValues.getNumeric(leaf.reader(), LuceneConstants.LYRICS_CLUSTER_ID);
+                if (clusterIds.advanceExact(hits[0].doc - leaf.docBase)) {
+                    return clusterIds.longValue();
+                }
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+        return NearDuplicates.clusterId(songHref);
+    }
+
+    /**
+     * This method waits until a change is visible to the searches.
+     * @param generation The generation of the change, returned by indexLyrics
+     * @param timeoutMs The maximum time to wait
+     * @return True if the change is visible, false if the timeout elapsed
+     * @throws InterruptedException
+     */
+    public boolean waitForSearchable(long generation, long timeoutMs) throws InterruptedException {
+        return reopenThread.waitForGeneration(generation, (int) Math.min(timeoutMs, Integer.MAX_VALUE));
+    }
+
+    /**
+     * This method returns a Searcher over the near-real-time IndexSearcher objects of this indexer. <br>
+     * The Searcher must not be used after this indexer is closed. <br>
+     * @return The Searcher object
+     */
+    public Searcher newSearcher() {
+        return new Searcher(searcherManager);
+    }
+
+    /**
+     * This method writes the changes to the disk, so that they survive a restart of the program. <br>
+     * The searches do not need the commit, they see the changes after the next reopen. <br>
+     * @throws IOException
+     */
+    public void commit() throws IOException {
+        writer.commit();
+    }
+
+    /**
+     * This method stops the reopening, and commits and closes the index.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        reopenThread.close();
+        searcherManager.close();
+        super.close();
+    }
+}
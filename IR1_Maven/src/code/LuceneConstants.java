@@ -7,7 +7,34 @@ public class LuceneConstants {
     public static final String ALBUMS_ALBUM_NAME = "albumsAlbumName";
     public static final String ALBUMS_ALBUM_TYPE = "albumsAlbumType";
     public static final String ALBUMS_ALBUM_YEAR = "albumsAlbumYear";
+    // The album year as a number (IntPoint and NumericDocValuesField), for the range queries and the sorting by year
+    public static final String ALBUMS_ALBUM_YEAR_VALUE = "albumsAlbumYearValue";
     public static final String LYRICS_LYRICS_TEXT = "songsLyrics";
+    // The unique key of the albums (singer name, album name, album year), for the incremental update
+    public static final String ALBUMS_ALBUM_KEY = "albumsAlbumKey";
+    // The hash of the content of each document, for the incremental update
+    public static final String CONTENT_HASH = "contentHash";
+    // The catch-all field of the songs (song name, singer name and lyrics), for the search in all the fields
+    public static final String SONGS_ALL_TEXT = "songsAllText";
+    // The normalized singer name (CanonicalNames.singerKey), in both indexes, for the join of the songs and the albums
+    public static final String SINGER_KEY = "singerKey";
+    // The type of the documents of the songs-lyrics index (DOC_TYPE_SONG for the songs), which marks the parents
+    // of the blocks of the lyrics lines
+    public static final String DOC_TYPE = "docType";
+    public static final String DOC_TYPE_SONG = "song";
+    // The text and the number (0 for the first line) of a lyrics line, in the child documents of the songs
+    public static final String LYRICS_LINE_TEXT = "lyricsLineText";
+    public static final String LYRICS_LINE_NUMBER = "lyricsLineNumber";
+    // The id of the cluster of the near-duplicate lyrics of a song (NumericDocValuesField), for the collapse
+    // of the duplicates in the hits
+    public static final String LYRICS_CLUSTER_ID = "lyricsClusterId";
+    // The source of the songs that are not from the csv files (SONG_SOURCE_SCRAPED for the scraped lyrics of the
+    // live indexer), which the incremental update keeps
+    public static final String SONG_SOURCE = "songSource";
+    public static final String SONG_SOURCE_SCRAPED = "scraped";
+    // The version of the fields of the documents, which is stored in the commits of the indexes
+    // Increase it when the fields change, so that the existing indexes are rebuilt at startup
+    public static final int SCHEMA_VERSION = 8;
 
 
 }
\ No newline at end of file
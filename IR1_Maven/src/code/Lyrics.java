@@ -3,24 +3,101 @@ import java.util.*;
 /**
  * Lyrics.java <br>
  * This class is used to store the information of lyrics. <br>
- * It contains the name of singer, the name of song, the href of song and the lyrics of song.
+ * It contains the name of singer, the name of song, the href of song and the lyrics of song. <br>
+ * The lyrics are kept in one string, with one row per line, and the offsets of the rows in an int array,
+ * instead of one string object per row. <br>
  */
 public class Lyrics {
-    LinkedList<String> lyricsList;
+    String lyricsText;
+    // The offset of the first character of each row in the lyricsText
+    int[] lineOffsets;
     String artistName;
     String songName;
     String songHref;
 
 
-    public Lyrics(String artistName, String songName, String songHref) {
-        lyricsList = new LinkedList<>();
+    /**
+     * Constructor of the class. <br>
+     * The text of the lyrics keeps its rows, but the empty rows at its end are removed,
+     * and each row (the last one too) ends with a \n character. <br>
+     * @param artistName The name of the singer
+     * @param songName The name of the song
+     * @param songHref The href of the song
+     * @param lyrics The text of the lyrics, with one row per line
+     */
+    public Lyrics(String artistName, String songName, String songHref, String lyrics) {
         this.artistName = artistName;
         this.songName = songName;
         this.songHref = songHref;
+        // Remove the empty rows at the end, and end the last row with a \n character
+        int end = lyrics.length();
+        while (end > 0 && lyrics.charAt(end - 1) == '\n') {
+            end--;
+        }
+        lyricsText = (end == lyrics.length() - 1) ? lyrics : lyrics.substring(0, end) + "\n";
+        // Find the offset of each row
+        int lineCount = 0;
+        for (int i = 0; i < lyricsText.length(); i++) {
+            if (lyricsText.charAt(i) == '\n') {
+                lineCount++;
+            }
+        }
+        lineOffsets = new int[lineCount];
+        int line = 0;
+        int lineStart = 0;
+        for (int i = 0; i < lyricsText.length(); i++) {
+            if (lyricsText.charAt(i) == '\n') {
+                lineOffsets[line++] = lineStart;
+                lineStart = i + 1;
+            }
+        }
     }
 
-    public LinkedList<String> getLyricsList() {
-        return lyricsList;
+    /**
+     * This method returns the text of the lyrics, with one row per line.
+     * @return The text of the lyrics
+     */
+    public String getLyricsText() {
+        return lyricsText;
+    }
+
+    /**
+     * This method returns the number of the rows of the lyrics.
+     * @return The number of the rows
+     */
+    public int getLineCount() {
+        return lineOffsets.length;
+    }
+
+    /**
+     * This method returns a row of the lyrics. <br>
+     * The string of the row is created on each call, so it is not kept in memory. <br>
+     * @param line The number of the row (0 for the first row)
+     * @return The row, without the \n character
+     */
+    public String getLine(int line) {
+        // Each row ends one character before the start of the next row (or the end of the text)
+        int lineEnd = (line + 1 < lineOffsets.length ? lineOffsets[line + 1] : lyricsText.length()) - 1;
+        return lyricsText.substring(lineOffsets[line], lineEnd);
+    }
+
+    /**
+     * This method returns the rows of the lyrics, as a read-only list. <br>
+     * The list is a view of the text, so its rows are created only when they are read. <br>
+     * @return The rows of the lyrics
+     */
+    public List<String> getLyricsList() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return getLine(index);
+            }
+
+            @Override
+            public int size() {
+                return getLineCount();
+            }
+        };
     }
 
 
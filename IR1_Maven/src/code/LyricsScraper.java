@@ -0,0 +1,229 @@
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LyricsScraper.java <br>
+ * This class fetches the lyrics of many songs, from the lyrics pages that WebScrapping fetches one at a time. <br>
+ * The pages are fetched by a bounded number of threads, and the requests to each host are limited by a
+ * TokenBucket. A request that times out or gets a 429 or 5xx response is retried, with an exponential backoff. <br>
+ * The fetched pages are stored in a PageCache, so the next runs read them from the disk instead of the network. <br>
+ * The URL of the pages is set in the ScraperSettings, so the scraper can fetch saved pages from a local server. <br>
+ * Usage: java LyricsScraper songs.csv cacheDir [indexDir] (the settings are read from the scraper.* system properties).
+ * If indexDir is given, the lyrics are added to the songs-lyrics index, with the LiveSongLyricsIndexer. <br>
+ * @see WebScrapping
+ * @see ScraperSettings
+ */
+public class LyricsScraper {
+    private final ScraperSettings settings;
+    private final PageCache cache;
+    // One rate limiter per host
+    private final Map<String, TokenBucket> rateLimiters = new ConcurrentHashMap<>();
+
+    private final AtomicInteger fetchedCount = new AtomicInteger();
+    private final AtomicInteger cachedCount = new AtomicInteger();
+    private final AtomicInteger notFoundCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicInteger retryCount = new AtomicInteger();
+
+    /**
+     * Constructor of the class.
+     * @param settings The settings of the scraper
+     * @param cache The cache of the fetched pages
+     */
+    public LyricsScraper(ScraperSettings settings, PageCache cache) {
+        this.settings = settings;
+        this.cache = cache;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 2 && args.length != 3) {
+            System.out.println("Usage: java LyricsScraper songs.csv cacheDir [indexDir]");
+            System.exit(1);
+        }
+        List<Songs> songs = new ArrayList<>();
+        try (CSVRecordSource<Songs> source = CSVFileFilter.openSongs(args[0])) {
+            source.forEachRemaining(songs::add);
+        }
+        LyricsScraper scraper = new LyricsScraper(ScraperSettings.defaults(), new PageCache(args[1]));
+        long start = System.nanoTime();
+        List<Lyrics> lyrics = scraper.scrape(songs);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("Found the lyrics of " + lyrics.size() + " of " + songs.size() + " songs in " +
+                String.format("%.1f", seconds) + " s (" + String.format("%.1f", songs.size() / seconds) +
+                " songs/s)");
+        System.out.println(scraper);
+        if (args.length == 3) {
+            // Add the lyrics to the songs-lyrics index, replacing the documents of the songs that are already in it
+            try (LiveSongLyricsIndexer liveIndexer = new LiveSongLyricsIndexer(args[2])) {
+                for (Lyrics songLyrics : lyrics) {
+                    liveIndexer.indexLyrics(songLyrics);
+                }
+            }
+            System.out.println("Indexed the lyrics of " + lyrics.size() + " songs in " + args[2]);
+        }
+    }
+
+    /**
+     * This method fetches the lyrics of the songs. <br>
+     * The songs whose page was not found, or has no lyrics, or could not be fetched after the retries,
+     * are left out of the result. <br>
+     * @param songs The songs (the singer name and the song name, and the href, which is the key of the lyrics)
+     * @return The lyrics of the songs that were found, in the order of the songs
+     * @throws InterruptedException
+     */
+    public List<Lyrics> scrape(List<Songs> songs) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(settings.getConcurrency());
+        try {
+            List<Future<Lyrics>> futures = new ArrayList<>(songs.size());
+            for (Songs song : songs) {
+                futures.add(executor.submit(() -> scrape(song.getSingerName(), song.getSongName(),
+                        song.getSongHref())));
+            }
+            List<Lyrics> lyrics = new ArrayList<>();
+            for (Future<Lyrics> future : futures) {
+                try {
+                    Lyrics songLyrics = future.get();
+                    if (songLyrics != null) {
+                        lyrics.add(songLyrics);
+                    }
+                } catch (ExecutionException e) {
+                    failedCount.incrementAndGet();
+                    System.out.println("Error scraping the lyrics : " + e.getCause());
+                }
+            }
+            return lyrics;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * This method fetches the lyrics of one song, from the cache or from the network.
+     * @param artist The name of the singer
+     * @param songName The name of the song
+     * @return The lyrics of the song, or null if they were not found
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public Lyrics scrape(String artist, String songName) throws IOException, InterruptedException {
+        return scrape(artist, songName, null);
+    }
+
+    /**
+     * This method fetches the lyrics of one song, from the cache or from the network.
+     * @param artist The name of the singer
+     * @param songName The name of the song
+     * @param songHref The href of the song in the csv files, or null if it is not known
+     * @return The lyrics of the song, keyed by the href of the song (or by the href of its page, in the
+     * relative form of the csv files, if it is not known), or null if they were not found
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public Lyrics scrape(String artist, String songName, String songHref) throws IOException, InterruptedException {
+        String artistSlug = CanonicalNames.urlSlug(artist);
+        String songSlug = CanonicalNames.urlSlug(songName);
+        String url = WebScrapping.buildURL(settings.getBaseUrl(), artistSlug, songSlug);
+        String html = cache.get(url);
+        if (html != null) {
+            cachedCount.incrementAndGet();
+        } else {
+            html = fetch(url);
+            if (html == null) {
+                return null;
+            }
+            cache.put(url, html);
+        }
+        String lyricsText = WebScrapping.parseLyrics(Jsoup.parse(html, url));
+        if (lyricsText == null) {
+            notFoundCount.incrementAndGet();
+            return null;
+        }
+        // The key does not depend on the URL of the pages, so the lyrics replace the documents of the csv files
+        return new Lyrics(artist, songName, songHref != null ? songHref : WebScrapping.songHref(artistSlug, songSlug),
+                lyricsText);
+    }
+
+    /**
+     * This method fetches a page, and retries the request if it times out or gets a 429 or 5xx response.
+     * @param url The URL of the page
+     * @return The HTML of the page, or null if the page was not found or could not be fetched
+     * @throws InterruptedException
+     */
+    private String fetch(String url) throws InterruptedException, MalformedURLException {
+        TokenBucket rateLimiter = rateLimiters.computeIfAbsent(new URL(url).getHost(),
+                host -> new TokenBucket(settings.getRequestsPerSecond(), settings.getBurst()));
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire();
+            String error;
+            try {
+                Connection.Response response = Jsoup.connect(url)
+                        .userAgent(WebScrapping.USER_AGENT)
+                        .timeout(settings.getTimeoutMs())
+                        .ignoreHttpErrors(true)
+                        .execute();
+                int status = response.statusCode();
+                if (status == 200) {
+                    fetchedCount.incrementAndGet();
+                    return response.body();
+                }
+                if (status != 429 && status < 500) {
+                    // The page does not exist, and it will not exist on a retry
+                    notFoundCount.incrementAndGet();
+                    return null;
+                }
+                error = "HTTP status " + status;
+            } catch (IOException e) {
+                error = e.toString();
+            }
+            if (attempt == settings.getMaxRetries()) {
+                failedCount.incrementAndGet();
+                System.out.println("Error fetching " + url + " after " + (attempt + 1) + " attempts : " + error);
+                return null;
+            }
+            retryCount.incrementAndGet();
+            // Exponential backoff, with a random jitter so that the threads do not retry all together
+            long backoffMs = settings.getInitialBackoffMs() << Math.min(attempt, 16);
+            Thread.sleep(backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1));
+        }
+    }
+
+    public int getFetchedCount() {
+        return fetchedCount.get();
+    }
+
+    public int getCachedCount() {
+        return cachedCount.get();
+    }
+
+    public int getNotFoundCount() {
+        return notFoundCount.get();
+    }
+
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    public int getRetryCount() {
+        return retryCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Fetched : " + fetchedCount + ", from cache : " + cachedCount + ", not found : " + notFoundCount +
+                ", failed : " + failedCount + ", retries : " + retryCount;
+    }
+}
@@ -0,0 +1,460 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * MappedCSVSource.java <br>
+ * This class streams the records of a csv file, as typed objects (Songs, Albums or Lyrics), like the
+ * CSVRecordSource, but it parses the file in parallel. <br>
+ * The file is memory-mapped with FileChannel.map, so it is read by the operating system without being copied
+ * into Java buffers. A first sequential pass finds the ends of the records (a line break outside of a quoted
+ * field), and splits the file into chunks of about chunkSize bytes that start and end on record boundaries.
+ * The chunks are then parsed by a pool of threads, and their records are returned in the order of the file. <br>
+ * Only the chunks that are parsed or waiting to be read (two per thread) are kept in memory. <br>
+ * The text is decoded as UTF-8, and the records are the same as the records of the CSVReader of OpenCSV,
+ * with its default settings : a quote in a quoted field is written as two quotes or as \", a backslash is
+ * written as \\ (a backslash before any other character is dropped), and the line breaks (\n, \r\n or \r)
+ * in a quoted field become \n. <br>
+ * @param <T> The type of the records (Songs, Albums or Lyrics)
+ * @see CSVFileFilter#mapSongs(String fileName)
+ * @see CSVFileFilter#mapAlbums(String fileName)
+ * @see CSVFileFilter#mapLyrics(String fileName)
+ * @see CSVRecordSource
+ */
+public class MappedCSVSource<T> implements Iterator<T>, Closeable {
+    // The default size of the chunks that are parsed by one thread
+    public static final long DEFAULT_CHUNK_SIZE = 8L * 1024 * 1024;
+    // The size of the part of the file that is mapped at a time by the first pass (a record must fit in it)
+    private static final long SCAN_WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private static final byte SEPARATOR = ',';
+    private static final byte QUOTE = '"';
+    private static final byte ESCAPE = '\\';
+
+    private final String fileName;
+    private final FileChannel channel;
+    private final Function<String[], T> rowMapper;
+    // The offsets of the chunks in the file, the last one is the end of the file
+    private final List<Long> chunkBoundaries = new ArrayList<>();
+    private final long recordCount;
+    private final ExecutorService executor;
+    private final int maxChunksInFlight;
+    private final Deque<Future<List<T>>> chunksInFlight = new ArrayDeque<>();
+    private int nextChunk;
+    private Iterator<T> currentChunk = Collections.emptyIterator();
+
+    /**
+     * Constructor of the class. <br>
+     * It uses one thread per available core, and chunks of DEFAULT_CHUNK_SIZE bytes. <br>
+     * @param fileName The name of the file
+     * @param rowMapper The function that creates the record object from a line of the file
+     * @throws IOException
+     */
+    public MappedCSVSource(String fileName, Function<String[], T> rowMapper) throws IOException {
+        this(fileName, rowMapper, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor of the class. <br>
+     * It opens the file, skips the first line, because it contains the headers of the columns,
+     * finds the chunks of the file, and starts the parsing of the first chunks. <br>
+     * @param fileName The name of the file
+     * @param rowMapper The function that creates the record object from a line of the file
+     * @param threads The number of the threads that parse the chunks
+     * @param chunkSize The minimum size of a chunk in bytes (a chunk ends at the first record end after it)
+     * @throws IOException
+     */
+    public MappedCSVSource(String fileName, Function<String[], T> rowMapper, int threads, long chunkSize)
+            throws IOException {
+        this.fileName = fileName;
+        this.rowMapper = rowMapper;
+        this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            this.recordCount = findChunks(chunkSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "csv-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxChunksInFlight = 2 * threads;
+        while (chunksInFlight.size() < maxChunksInFlight && submitNextChunk()) {
+            // Start the parsing of the first chunks
+        }
+    }
+
+    /**
+     * This method is the first, sequential, pass over the file. <br>
+     * It finds the end of each record, and starts a new chunk at the first record end after chunkSize bytes. <br>
+     * @param chunkSize The minimum size of a chunk in bytes
+     * @return The number of the records, without the headers
+     * @throws IOException
+     */
+    private long findChunks(long chunkSize) throws IOException {
+        long fileSize = channel.size();
+        RecordScanner scanner = new RecordScanner(false);
+        long records = 0;
+        long chunkStart = -1;
+        long windowStart = 0;
+        while (windowStart < fileSize) {
+            int windowSize = (int) Math.min(fileSize - windowStart, SCAN_WINDOW_SIZE);
+            boolean endOfFile = windowStart + windowSize == fileSize;
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            int position = 0;
+            while (position < windowSize) {
+                int recordEnd = scanner.scan(window, position, windowSize, endOfFile);
+                if (recordEnd < 0) {
+                    // The record continues after the window, so the next window starts at the record
+                    break;
+                }
+                position = recordEnd;
+                long end = windowStart + recordEnd;
+                if (chunkStart < 0) {
+                    // The first record contains the headers of the columns
+                    chunkStart = end;
+                    chunkBoundaries.add(chunkStart);
+                    continue;
+                }
+                if (scanner.hasRecord()) {
+                    records++;
+                }
+                if (end - chunkStart >= chunkSize) {
+                    chunkStart = end;
+                    chunkBoundaries.add(chunkStart);
+                }
+            }
+            if (position == 0) {
+                throw new IOException("A record of the " + fileName + " file is longer than " +
+                        SCAN_WINDOW_SIZE + " bytes");
+            }
+            windowStart += position;
+        }
+        if (chunkBoundaries.isEmpty() || chunkBoundaries.get(chunkBoundaries.size() - 1) < fileSize) {
+            chunkBoundaries.add(fileSize);
+        }
+        return records;
+    }
+
+    private boolean submitNextChunk() {
+        if (nextChunk + 1 >= chunkBoundaries.size()) {
+            return false;
+        }
+        long start = chunkBoundaries.get(nextChunk);
+        long end = chunkBoundaries.get(nextChunk + 1);
+        nextChunk++;
+        chunksInFlight.add(executor.submit(() -> parseChunk(start, end)));
+        return true;
+    }
+
+    /**
+     * This method parses the records of a chunk, and creates their objects.
+     * @param start The offset of the first record of the chunk
+     * @param end The offset after the last record of the chunk
+     * @return The objects of the records
+     * @throws IOException
+     */
+    private List<T> parseChunk(long start, long end) throws IOException {
+        int chunkLength = (int) (end - start);
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, chunkLength);
+        RecordScanner scanner = new RecordScanner(true);
+        List<T> records = new ArrayList<>();
+        int position = 0;
+        while (position < chunkLength) {
+            position = scanner.scan(chunk, position, chunkLength, true);
+            if (scanner.hasRecord()) {
+                records.add(rowMapper.apply(scanner.getFields()));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * This method returns the number of the records of the file, without the headers.
+     * @return The number of the records
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentChunk.hasNext()) {
+            Future<List<T>> chunk = chunksInFlight.poll();
+            if (chunk == null) {
+                return false;
+            }
+            try {
+                currentChunk = chunk.get().iterator();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while reading the " + fileName + " file", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    // An error of the rowMapper, as it would be thrown by the CSVRecordSource
+                    throw (RuntimeException) e.getCause();
+                }
+                System.out.println("Error reading the " + fileName + " file");
+                System.exit(1);
+            }
+            // Keep the threads busy, while the records of this chunk are read
+            submitNextChunk();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentChunk.next();
+    }
+
+    /**
+     * This method stops the parsing of the chunks and closes the file. <br>
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        channel.close();
+    }
+
+    /**
+     * This class finds the end of a record and, if it collects the fields, decodes them. <br>
+     * It follows the rules of the CSVParser of OpenCSV with its default settings, one line at a time,
+     * so that the records are exactly the same (including the quotes in the middle of a field). <br>
+     * Only the ASCII bytes (separator, quote, backslash, line breaks) have a meaning, and they never appear
+     * inside the bytes of a multi-byte UTF-8 character, so the bytes are scanned without being decoded. <br>
+     */
+    private static final class RecordScanner {
+        private final boolean collectFields;
+        private final List<String> fields = new ArrayList<>();
+        // The UTF-8 bytes of the current field
+        private byte[] field = new byte[256];
+        private int fieldLength;
+        // The buffer of the last scan, and its view for the bulk copies of the bytes
+        private ByteBuffer source;
+        private ByteBuffer view;
+        private boolean recordFound;
+
+        private RecordScanner(boolean collectFields) {
+            this.collectFields = collectFields;
+        }
+
+        /**
+         * This method scans the record that starts at a position of the buffer.
+         * @param buffer The buffer
+         * @param start The position of the record
+         * @param limit The end of the bytes of the buffer
+         * @param endOfInput True if there are no more bytes after the limit
+         * @return The position after the record (and its line break),
+         * or -1 if the record continues after the limit
+         */
+        private int scan(ByteBuffer buffer, int start, int limit, boolean endOfInput) {
+            if (collectFields && buffer != source) {
+                source = buffer;
+                view = buffer.duplicate();
+            }
+            fields.clear();
+            fieldLength = 0;
+            recordFound = true;
+            boolean inQuotes = false;
+            // Whether the current field has started (OpenCSV escapes the quotes inside a field)
+            boolean inField = false;
+            // The position of the first byte of the current line
+            int lineStart = start;
+            int position = start;
+            while (true) {
+                // Copy the bytes up to the next byte that has a meaning, at once
+                int runStart = position;
+                while (position < limit && !isSpecial(buffer.get(position))) {
+                    position++;
+                }
+                if (position > runStart) {
+                    appendRun(runStart, position - runStart);
+                    inField = true;
+                }
+                if (position >= limit) {
+                    if (!endOfInput) {
+                        return -1;
+                    }
+                    if (inQuotes) {
+                        // OpenCSV drops the unterminated quoted field at the end of the file
+                        recordFound = !fields.isEmpty();
+                    } else {
+                        endField();
+                    }
+                    return limit;
+                }
+                byte b = buffer.get(position);
+                if (b == '\n' || b == '\r') {
+                    int next = position + 1;
+                    if (b == '\r') {
+                        if (next == limit && !endOfInput) {
+                            // The \n of a \r\n may be after the limit
+                            return -1;
+                        }
+                        if (next < limit && buffer.get(next) == '\n') {
+                            next++;
+                        }
+                    }
+                    if (inQuotes) {
+                        // The quoted field continues on the next line
+                        append((byte) '\n');
+                        position = next;
+                        lineStart = next;
+                        continue;
+                    }
+                    endField();
+                    return next;
+                }
+                if (b == SEPARATOR && !inQuotes) {
+                    endField();
+                    inField = false;
+                    position++;
+                    continue;
+                }
+                if (b == SEPARATOR) {
+                    append(b);
+                    inField = true;
+                    position++;
+                    continue;
+                }
+                // A quote or a backslash, which depends on the next character of the line (-1 at the end of the line)
+                int nextByte = -1;
+                if (position + 1 < limit) {
+                    byte following = buffer.get(position + 1);
+                    if (following != '\n' && following != '\r') {
+                        nextByte = following;
+                    }
+                } else if (!endOfInput) {
+                    return -1;
+                }
+                if (b == ESCAPE) {
+                    inField = true;
+                    if (nextByte == QUOTE || nextByte == ESCAPE) {
+                        append((byte) nextByte);
+                        position += 2;
+                    } else {
+                        position++;
+                    }
+                    continue;
+                }
+                if ((inQuotes || inField) && nextByte == QUOTE) {
+                    // Two quotes are one quote
+                    append(QUOTE);
+                    position += 2;
+                } else {
+                    inQuotes = !inQuotes;
+                    // A quote in the middle of a field (e.g. a,bc"d"ef,g) is kept
+                    if (hasTwoChars(buffer, lineStart, position) && buffer.get(position - 1) != SEPARATOR
+                            && nextByte != -1 && nextByte != SEPARATOR) {
+                        if (fieldLength > 0 && isWhitespace()) {
+                            fieldLength = 0;
+                        } else {
+                            append(QUOTE);
+                        }
+                    }
+                    position++;
+                }
+                inField = !inField;
+            }
+        }
+
+        private static boolean isSpecial(byte b) {
+            return b == SEPARATOR || b == QUOTE || b == ESCAPE || b == '\n' || b == '\r';
+        }
+
+        /**
+         * This method returns whether there are at least two chars (of a Java String) before a position of a line,
+         * like the position of the quote in the String of the line of OpenCSV.
+         */
+        private static boolean hasTwoChars(ByteBuffer buffer, int lineStart, int position) {
+            int chars = 0;
+            for (int i = lineStart; i < position && chars < 2; i++) {
+                byte b = buffer.get(i);
+                if ((b & 0xC0) != 0x80) {
+                    // The first byte of a character, and a 4-byte character is a surrogate pair of 2 chars
+                    chars += (b & 0xF8) == 0xF0 ? 2 : 1;
+                }
+            }
+            return chars >= 2;
+        }
+
+        private void append(byte b) {
+            ensureCapacity(1);
+            if (collectFields) {
+                field[fieldLength] = b;
+            }
+            fieldLength++;
+        }
+
+        private void appendRun(int start, int length) {
+            ensureCapacity(length);
+            if (collectFields) {
+                view.position(start);
+                view.get(field, fieldLength, length);
+            }
+            fieldLength += length;
+        }
+
+        private void ensureCapacity(int length) {
+            if (collectFields && fieldLength + length > field.length) {
+                field = Arrays.copyOf(field, Math.max(field.length * 2, fieldLength + length));
+            }
+        }
+
+        private void endField() {
+            if (collectFields) {
+                fields.add(new String(field, 0, fieldLength, StandardCharsets.UTF_8));
+            } else {
+                fields.add(null);
+            }
+            fieldLength = 0;
+        }
+
+        private boolean isWhitespace() {
+            if (!collectFields) {
+                // Only the fields are affected, not the ends of the records
+                return false;
+            }
+            String text = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+            for (int i = 0; i < text.length(); i++) {
+                if (!Character.isWhitespace(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean hasRecord() {
+            return recordFound;
+        }
+
+        private String[] getFields() {
+            return fields.toArray(new String[0]);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics.java <br>
+ * This class collects the metrics of the indexing and of the searching, for the whole application. <br>
+ * The indexing metrics are the documents and the bytes indexed, the documents per second, the flushes and the
+ * merges of the IndexWriter objects, and the time of each stage of the indexing (parse, join, document build,
+ * addDocument). <br>
+ * The query metrics are kept for each field of the LuceneConstants : the number of the queries, the histogram
+ * of their latency (p50, p95, p99), the total hits, and the time of the loading of the stored fields. <br>
+ * The metrics are exposed as the JMX MBean IR1:type=Metrics, and they can be printed periodically
+ * (-Dmetrics.dumpIntervalMs=10000). <br>
+ * The flushes and the merges are only counted with -Dmetrics.infoStream=true, since the InfoStream that reads
+ * them makes the IndexWriter create its log messages. <br>
+ * All the methods are thread-safe, and the recording of a document or of a query never blocks. <br>
+ * @see MetricsMBean
+ * @see MetricsInfoStream
+ */
+public class Metrics implements MetricsMBean {
+    // The name of the MBean
+    public static final String OBJECT_NAME = "IR1:type=Metrics";
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    /**
+     * The stages of the indexing, whose time is measured separately.
+     */
+    public enum Stage {
+        // Reading the records from the csv files
+        PARSE,
+        // Matching the songs with their lyrics
+        JOIN,
+        // Finding the near-duplicate lyrics (NearDuplicates)
+        DEDUPLICATE,
+        // Creating the Lucene documents
+        DOCUMENT_BUILD,
+        // Adding the documents to the IndexWriter (IndexWriter.addDocument or updateDocument)
+        ADD_DOCUMENT
+    }
+
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    // The wall time during which at least one indexing pipeline was running, for the documents per second,
+    // so the concurrent pipelines are not counted twice
+    private final AtomicLong indexingNanos = new AtomicLong();
+    // The pipelines that are running, and the start of the window of time in which they run
+    private int runningPipelines;
+    private long windowStartTime;
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushMillis = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    private final AtomicLong mergeMillis = new AtomicLong();
+    private final AtomicLongArray stageNanos = new AtomicLongArray(Stage.values().length);
+    // Sorted by field, so that the report is always in the same order
+    private final Map<String, QueryMetrics> queries = new ConcurrentSkipListMap<>();
+    private volatile ScheduledExecutorService dumper;
+
+    private Metrics() {
+    }
+
+    /**
+     * This method returns the metrics of the application.
+     * @return The only Metrics object
+     */
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * This method registers the metrics to the platform MBeanServer, as IR1:type=Metrics. <br>
+     * It does nothing if they are already registered.
+     */
+    public synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            // The metrics are still recorded and dumped without JMX
+            System.out.println("Error registering the metrics MBean");
+        }
+    }
+
+    /**
+     * This method prints the report of the metrics periodically, in a background thread. <br>
+     * A second call replaces the previous interval.
+     * @param intervalMs The time between two reports
+     */
+    public synchronized void startDump(long intervalMs) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> System.out.println(getReport()), intervalMs, intervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method stops the periodic report, if it was started.
+     */
+    public synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    // ------------------- Indexing -------------------
+
+    /**
+     * This method records a document that was added to an index.
+     * @param documentBytes The size of the text of the document, in UTF-8 bytes
+     */
+    public void recordDocument(long documentBytes) {
+        documents.incrementAndGet();
+        bytes.addAndGet(documentBytes);
+    }
+
+    /**
+     * This method records the start of an indexing pipeline. <br>
+     * The indexing time is the wall time from the start of the first running pipeline until the end of the last one.
+     * @see #endIndexing()
+     */
+    public synchronized void startIndexing() {
+        if (runningPipelines++ == 0) {
+            windowStartTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * This method records the end of an indexing pipeline, after all its documents were added or it was aborted.
+     */
+    public synchronized void endIndexing() {
+        if (runningPipelines > 0 && --runningPipelines == 0) {
+            indexingNanos.addAndGet(System.nanoTime() - windowStartTime);
+        }
+    }
+
+    /**
+     * This method records a flush of the documents of an IndexWriter to a new segment.
+     * @param millis The time of the flush
+     */
+    public void recordFlush(long millis) {
+        flushes.incrementAndGet();
+        flushMillis.addAndGet(millis);
+    }
+
+    /**
+     * This method records a merge of segments of an IndexWriter.
+     * @param millis The time of the merge
+     */
+    public void recordMerge(long millis) {
+        merges.incrementAndGet();
+        mergeMillis.addAndGet(millis);
+    }
+
+    /**
+     * This method records the time of a stage of the indexing.
+     * @param stage The stage
+     * @param nanos The time in nanoseconds
+     */
+    public void recordStage(Stage stage, long nanos) {
+        stageNanos.addAndGet(stage.ordinal(), nanos);
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos.get(stage.ordinal());
+    }
+
+    /**
+     * This method wraps a stream of records, so that the time of reading each record is recorded
+     * as the PARSE stage. <br>
+     * For a parallel source, this is the time that the indexing waits for the parsed records.
+     * @param records The stream of the records
+     * @param <T> The type of the records
+     * @return The stream of the same records, which also returns the time of its own reading
+     */
+    public <T> TimedIterator<T> timeParse(Iterator<T> records) {
+        return new TimedIterator<>(records);
+    }
+
+    @Override
+    public long getDocumentsIndexed() {
+        return documents.get();
+    }
+
+    @Override
+    public synchronized double getDocumentsPerSecond() {
+        // The window of the running pipelines counts until now
+        long nanos = indexingNanos.get() + (runningPipelines > 0 ? System.nanoTime() - windowStartTime : 0);
+        return nanos == 0 ? 0 : documents.get() / (nanos / 1e9);
+    }
+
+    @Override
+    public long getBytesIndexed() {
+        return bytes.get();
+    }
+
+    @Override
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    @Override
+    public double getFlushTimeMs() {
+        return flushMillis.get();
+    }
+
+    @Override
+    public long getMergeCount() {
+        return merges.get();
+    }
+
+    @Override
+    public double getMergeTimeMs() {
+        return mergeMillis.get();
+    }
+
+    @Override
+    public String[] getStageTimesMs() {
+        Stage[] stages = Stage.values();
+        String[] times = new String[stages.length];
+        for (Stage stage : stages) {
+            times[stage.ordinal()] = String.format(Locale.ROOT, "%s=%.1f",
+                    stage.name().toLowerCase(Locale.ROOT), getStageNanos(stage) / 1e6);
+        }
+        return times;
+    }
+
+    // ------------------- Searching -------------------
+
+    /**
+     * This method returns the query metrics of a field, or of a combination of fields ("field1+field2").
+     * @param field The field of the queries
+     * @return The QueryMetrics object of the field
+     */
+    public QueryMetrics getQueryMetrics(String field) {
+        return queries.computeIfAbsent(field, f -> new QueryMetrics());
+    }
+
+    /**
+     * This method records a query.
+     * @param field The field of the query, or the fields joined with '+' for a query on many fields
+     * @param latencyNanos The time of the query, including the loading of the stored fields
+     * @param totalHits The total hits of the query
+     * @param fetchNanos The time of the loading of the stored fields of the hits
+     */
+    public void recordQuery(String field, long latencyNanos, long totalHits, long fetchNanos) {
+        getQueryMetrics(field).record(latencyNanos, totalHits, fetchNanos);
+    }
+
+    @Override
+    public String[] getQueryMetrics() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, QueryMetrics> entry : queries.entrySet()) {
+            lines.add(entry.getKey() + " : " + entry.getValue());
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    // ------------------- Report -------------------
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT,
+                "Indexing : %d docs, %.1f docs/sec, %.1f MB, flushes %d (%d ms), merges %d (%d ms)%n",
+                getDocumentsIndexed(), getDocumentsPerSecond(), getBytesIndexed() / (1024.0 * 1024.0),
+                getFlushCount(), flushMillis.get(), getMergeCount(), mergeMillis.get()));
+        report.append("Indexing stages (ms) : ").append(String.join(", ", getStageTimesMs()))
+                .append(System.lineSeparator());
+        for (String line : getQueryMetrics()) {
+            report.append("Queries ").append(line).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    @Override
+    public synchronized void reset() {
+        documents.set(0);
+        bytes.set(0);
+        indexingNanos.set(0);
+        windowStartTime = System.nanoTime();
+        flushes.set(0);
+        flushMillis.set(0);
+        merges.set(0);
+        mergeMillis.set(0);
+        for (int i = 0; i < stageNanos.length(); i++) {
+            stageNanos.set(i, 0);
+        }
+        queries.clear();
+    }
+
+    /**
+     * A stream of records, that records the time of the reading of each record as the PARSE stage.
+     * @param <T> The type of the records
+     */
+    public class TimedIterator<T> implements Iterator<T> {
+        private final Iterator<T> records;
+        private long nanos;
+
+        private TimedIterator(Iterator<T> records) {
+            this.records = records;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long startTime = System.nanoTime();
+            try {
+                return records.hasNext();
+            } finally {
+                add(System.nanoTime() - startTime);
+            }
+        }
+
+        @Override
+        public T next() {
+            long startTime = System.nanoTime();
+            try {
+                return records.next();
+            } finally {
+                add(System.nanoTime() - startTime);
+            }
+        }
+
+        private void add(long time) {
+            nanos += time;
+            recordStage(Stage.PARSE, time);
+        }
+
+        /**
+         * This method returns the time of the reading of the records of this stream only.
+         * @return The time in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * The query metrics of a field.
+     */
+    public static class QueryMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong totalHits = new AtomicLong();
+        private final AtomicLong fetchNanos = new AtomicLong();
+
+        private void record(long latencyNanos, long hits, long fetchTime) {
+            latency.record(latencyNanos);
+            totalHits.addAndGet(hits);
+            fetchNanos.addAndGet(fetchTime);
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getTotalHits() {
+            return totalHits.get();
+        }
+
+        public long getFetchNanos() {
+            return fetchNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d queries, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, %d total hits, fetch %.1f ms",
+                    getCount(), latency.getPercentile(50) / 1e6, latency.getPercentile(95) / 1e6,
+                    latency.getPercentile(99) / 1e6, getTotalHits(), getFetchNanos() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import org.apache.lucene.util.InfoStream;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MetricsInfoStream.java <br>
+ * This class reads the flushes and the merges of an IndexWriter from its InfoStream messages,
+ * and records them in the Metrics. <br>
+ * Only the messages of the flushes (DWPT) and of the merges (IW) are enabled, but the IndexWriter still creates
+ * all the messages of these components, so the InfoStream is only installed with -Dmetrics.infoStream=true. <br>
+ * @see Metrics#recordFlush(long)
+ * @see Metrics#recordMerge(long)
+ */
+public class MetricsInfoStream extends InfoStream {
+    // The system property that installs the InfoStream in the IndexWriter objects
+    public static final String ENABLED_PROPERTY = "metrics.infoStream";
+    // The message of DocumentsWriterPerThread at the end of a flush: "flush time 12.3 msec"
+    private static final Pattern FLUSH_TIME = Pattern.compile("^flush time ([0-9.]+) msec");
+    // The message of IndexWriter at the end of a merge: "merge time 123 msec for 4567 docs"
+    private static final Pattern MERGE_TIME = Pattern.compile("^merge time ([0-9.]+) msec");
+
+    private final Metrics metrics;
+
+    public MetricsInfoStream() {
+        this(Metrics.get());
+    }
+
+    public MetricsInfoStream(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void message(String component, String message) {
+        if ("DWPT".equals(component)) {
+            Matcher matcher = FLUSH_TIME.matcher(message);
+            if (matcher.find()) {
+                metrics.recordFlush(Math.round(Double.parseDouble(matcher.group(1))));
+            }
+        } else if ("IW".equals(component)) {
+            Matcher matcher = MERGE_TIME.matcher(message);
+            if (matcher.find()) {
+                metrics.recordMerge(Math.round(Double.parseDouble(matcher.group(1))));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled(String component) {
+        return "DWPT".equals(component) || "IW".equals(component);
+    }
+
+    @Override
+    public void close() {
+    }
+}
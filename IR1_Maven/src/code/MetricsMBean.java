@@ -0,0 +1,41 @@
+/**
+ * MetricsMBean.java <br>
+ * This interface is the JMX management interface of the Metrics, which is registered as IR1:type=Metrics. <br>
+ * The attributes can be watched with jconsole or any other JMX client. <br>
+ * @see Metrics
+ */
+public interface MetricsMBean {
+    long getDocumentsIndexed();
+
+    double getDocumentsPerSecond();
+
+    long getBytesIndexed();
+
+    long getFlushCount();
+
+    double getFlushTimeMs();
+
+    long getMergeCount();
+
+    double getMergeTimeMs();
+
+    /**
+     * The time of each indexing stage in milliseconds, as "stage=time" strings.
+     */
+    String[] getStageTimesMs();
+
+    /**
+     * The query metrics of each field, one line per field.
+     */
+    String[] getQueryMetrics();
+
+    /**
+     * The complete report of the metrics, as it is printed by the periodic dump.
+     */
+    String getReport();
+
+    /**
+     * This method sets all the metrics to zero.
+     */
+    void reset();
+}
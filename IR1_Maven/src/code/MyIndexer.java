@@ -1,12 +1,31 @@
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * This class is the parent class of the AlbumsIndexer and the SongLyricsIndexer classes. <br>
@@ -25,8 +44,26 @@ import java.nio.file.Paths;
  */
 public abstract class MyIndexer {
     protected IndexWriter writer;
+    protected final IndexerSettings settings;
+    private final String indexDir;
+    // The names of the documents for the autocomplete, which are stored next to the index when it is closed
+    private final Suggestions.Builder suggestions = new Suggestions.Builder();
+    // The user data of the commit of the index, e.g. the IndexFingerprint of its sources
+    private Map<String, String> commitUserData;
 
     public MyIndexer(String indexDir){
+        this(indexDir, IndexerSettings.defaults());
+    }
+
+    /**
+     * Constructor of the MyIndexer class, with the settings of the indexing pipeline. <br>
+     * The RAM buffer and the max buffered documents of the settings are passed to the IndexWriterConfig. <br>
+     * @param indexDir The directory of the index
+     * @param settings The settings of the indexing pipeline
+     */
+    public MyIndexer(String indexDir, IndexerSettings settings){
+        this.settings = settings;
+        this.indexDir = indexDir;
         // The indexDir parameter specifies the location where the index files will be stored.
         Directory indexDirectory = null;
         try {
@@ -42,6 +79,14 @@ public abstract class MyIndexer {
         Analyzer analyzer = new StandardAnalyzer();
         // Create the IndexWriterConfig object
         IndexWriterConfig iwconfig = new IndexWriterConfig(analyzer);
+        // The documents are flushed to disk when the RAM buffer or the max buffered documents is reached
+        iwconfig.setRAMBufferSizeMB(settings.getRamBufferSizeMB());
+        iwconfig.setMaxBufferedDocs(settings.getMaxBufferedDocs());
+        // Record the flushes and the merges of the IndexWriter in the metrics, only if asked, since the IndexWriter
+        // creates all the log messages of the components that the InfoStream enables
+        if (Boolean.getBoolean(MetricsInfoStream.ENABLED_PROPERTY)) {
+            iwconfig.setInfoStream(new MetricsInfoStream());
+        }
         // Create the IndexWriter object, for the creation of the index
         writer = null;
         try {
@@ -52,14 +97,170 @@ public abstract class MyIndexer {
         }
     }
 
+    /**
+     * This method starts an indexing pipeline, that adds the documents to the index
+     * from the worker threads of the settings. <br>
+     * The caller must call finish() on the pipeline, after the last document is submitted. <br>
+     * @return The IndexingPipeline object
+     * @see IndexingPipeline
+     */
+    protected IndexingPipeline startPipeline() {
+        return new IndexingPipeline(getClass().getSimpleName(), writer, settings);
+    }
+
+    /**
+     * This method starts an incremental update of the index. <br>
+     * It reads the key and the content hash of each document that is already in the index. <br>
+     * The documents that are not from the records (e.g. the scraped songs, with a SONG_SOURCE) are kept. <br>
+     * The caller must call finish() on the update, after the last record is applied. <br>
+     * @param keyField The field of the unique key of the documents
+     * @return The IncrementalUpdate object
+     * @throws IOException
+     * @see IncrementalUpdate
+     */
+    protected IncrementalUpdate startIncrementalUpdate(String keyField) throws IOException {
+        Map<String, String> indexedHashes = new HashMap<>();
+        Set<String> keptKeys = new HashSet<>();
+        // Read the doc values of the last version of the index, without a commit
+        try (DirectoryReader reader = DirectoryReader.open(writer)) {
+            for (LeafReaderContext leaf : reader.leaves()) {
+                SortedDocValues keys = DocValues.getSorted(leaf.reader(), keyField);
+                BinaryDocValues hashes = DocValues.getBinary(leaf.reader(), LuceneConstants.CONTENT_HASH);
+                SortedDocValues sources = DocValues.getSorted(leaf.reader(), LuceneConstants.SONG_SOURCE);
+                Bits liveDocs = leaf.reader().getLiveDocs();
+                for (int doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+                    // Skip the deleted documents
+                    if (liveDocs != null && !liveDocs.get(doc)) {
+                        continue;
+                    }
+                    if (!keys.advanceExact(doc)) {
+                        continue;
+                    }
+                    if (sources.advanceExact(doc)) {
+                        keptKeys.add(keys.binaryValue().utf8ToString());
+                    } else if (hashes.advanceExact(doc)) {
+                        indexedHashes.put(keys.binaryValue().utf8ToString(), hashes.binaryValue().utf8ToString());
+                    }
+                }
+            }
+        }
+        return new IncrementalUpdate(writer, startPipeline(), keyField, indexedHashes, keptKeys);
+    }
+
+    /**
+     * This method creates a document (or a block of documents), and records the time of its creation
+     * as the DOCUMENT_BUILD stage of the metrics. <br>
+     * @param document The creation of the document
+     * @return The document
+     * @see Metrics.Stage#DOCUMENT_BUILD
+     */
+    protected static <T> T buildDocument(Supplier<T> document) {
+        long startTime = System.nanoTime();
+        try {
+            return document.get();
+        } finally {
+            Metrics.get().recordStage(Metrics.Stage.DOCUMENT_BUILD, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * This method adds the normalized singer name to a document, as an indexed term and as doc values. <br>
+     * The doc values of one index give the keys of its hits, and the terms of the other index find the documents
+     * with these keys, so the songs and the albums of the same singer are joined with one query. <br>
+     * @param document The document
+     * @param singerName The singer name of the document
+     * @see Searcher#searchJoin(String, String, Searcher, String, String, org.apache.lucene.search.ScoreDoc, int, java.util.Set)
+     */
+    protected static void addSingerKey(Document document, String singerName) {
+        // All the singers of the name, so that a band is not joined with the singer of the first word of its name
+        String singerKey = CanonicalNames.getDefault().singerKey(singerName);
+        document.add(new StringField(LuceneConstants.SINGER_KEY, singerKey, Field.Store.NO));
+        document.add(new SortedDocValuesField(LuceneConstants.SINGER_KEY, new BytesRef(singerKey)));
+    }
+
+    /**
+     * This method returns the hash of the content of a record. <br>
+     * It is stored in each document, so that the incremental update finds the changed records. <br>
+     * @param values The values of the record
+     * @return The SHA-1 hash of the values, as a hex string
+     */
+    protected static String contentHash(String... values) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-1
+            throw new IllegalStateException(e);
+        }
+        for (String value : values) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            // Separate the values, so that ("ab", "c") and ("a", "bc") have different hashes
+            digest.update((byte) 0);
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * This method counts a name of a record (e.g. a song name or a singer name) for the autocomplete. <br>
+     * All the records must be counted, also the unchanged records of an incremental update,
+     * because the suggestions are rebuilt from scratch when the indexer is closed. <br>
+     * @param name The name
+     * @see Suggestions
+     */
+    protected void addSuggestion(String name) {
+        suggestions.add(name);
+    }
+
+    /**
+     * This method sets the user data of the commit of the index, which is written when the IndexWriter is closed. <br>
+     * @param commitUserData The keys and the values of the user data
+     * @see IndexFingerprint#toUserData()
+     */
+    public void setCommitUserData(Map<String, String> commitUserData) {
+        this.commitUserData = commitUserData;
+    }
+
+    /**
+     * This method discards the changes of the index since the last commit, and closes the IndexWriter object. <br>
+     * It is called when the indexing fails or is cancelled, so that the index is not left half-built. <br>
+     * @throws IOException
+     */
+    public void rollback() throws IOException {
+        // The files of the index are closed by an interrupted write, so the interruption of a cancelled indexing
+        // is kept aside until the rollback is done
+        boolean interrupted = Thread.interrupted();
+        try {
+            writer.rollback();
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * This method closes the IndexWriter object, for the creation of the index. <br>
-     * It writes the directory of the index to the disk. <br>
+     * It writes the directory of the index to the disk, and the suggestions of the names next to it. <br>
      * @throws IOException
      */
     public void close() throws IOException {
-        // Close the IndexWriter object
+        if (commitUserData != null) {
+            writer.setLiveCommitData(commitUserData.entrySet());
+        }
+        // Close the IndexWriter object, which commits the documents and the user data
         writer.close();
+        // An indexer that counted no names (e.g. the live indexer) keeps the suggestions of the last build
+        if (suggestions.size() > 0) {
+            long startTime = System.currentTimeMillis();
+            Suggestions built = suggestions.build();
+            built.store(indexDir);
+            System.out.println(getClass().getSimpleName() + " suggestions : " + suggestions.size() + " names, "
+                    + built.ramBytesUsed() / 1024 + " KB, built in " + (System.currentTimeMillis() - startTime) + " ms");
+        }
     }
 
 }
@@ -0,0 +1,323 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * NearDuplicates.java <br>
+ * This class finds the songs with almost the same lyrics (covers, remasters and re-listings), while they are
+ * indexed, and gives each song the id of its cluster of near-duplicates. <br>
+ * The lyrics are compared by the Jaccard similarity of their word shingles (WORD_SHINGLE words in a row),
+ * which is estimated by a MinHash signature of SIGNATURE_SIZE hashes. <br>
+ * The signatures are split in bands (LSH banding), and only the songs that have an identical band are compared,
+ * so the cost grows with the number of the songs and not with the number of the pairs of songs. <br>
+ * The number of the bands is chosen from the Jaccard threshold, so that a pair above the threshold is very
+ * likely to share a band. The candidates are then kept only if their estimated similarity reaches the threshold. <br>
+ * A song joins the cluster of its most similar earlier song, or starts a new cluster, whose id is a hash of
+ * its key (the song href), so the clusters of the same files have the same ids in every build. <br>
+ * If the evaluation is enabled, the word shingles of the songs are kept, and the report has the precision of the
+ * detected pairs, and the recall of a sample of the songs, compared with all the songs by their exact Jaccard
+ * similarity. <br>
+ * The methods are synchronized, because the songs are assigned one at a time, in the order of the csv files. <br>
+ * @see SongLyricsIndexer#setNearDuplicates(NearDuplicates)
+ */
+public class NearDuplicates {
+    // The number of the words of a shingle
+    public static final int WORD_SHINGLE = 3;
+    // The number of the hashes of a signature, which has many divisors, for the choice of the bands
+    public static final int SIGNATURE_SIZE = 120;
+    // The maximum number of the songs of an LSH bucket, so that very common lyrics do not make the cost quadratic
+    private static final int MAX_BUCKET_SIZE = 64;
+    // The seed of the hash functions of the signatures
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private final double threshold;
+    private final int bands;
+    private final int rows;
+    private final long[] hashSeeds = new long[SIGNATURE_SIZE];
+    // The songs of each bucket, by the band and the hash of the band
+    private final Map<Long, List<Integer>> buckets = new HashMap<>();
+    // The signature and the cluster of each song, by the number of the song
+    private final List<int[]> signatures = new ArrayList<>();
+    private final List<Long> clusters = new ArrayList<>();
+    // The evaluation : the number of the sampled songs (0 for no evaluation), the shingles of each song,
+    // and the pairs of songs that were detected (the song and the earlier song that it was matched with)
+    private final int evaluationSample;
+    private final List<long[]> shingles = new ArrayList<>();
+    private final List<int[]> detectedPairs = new ArrayList<>();
+
+    private long nanos;
+    private long candidates;
+    private int duplicates;
+    private int clusterCount;
+
+    /**
+     * Constructor of the class. <br>
+     * @param threshold The Jaccard similarity (between 0 and 1) of the lyrics of two near-duplicate songs
+     * @param evaluationSample The number of the songs whose recall is measured, or 0 for no evaluation
+     */
+    public NearDuplicates(double threshold, int evaluationSample) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("The Jaccard threshold must be in (0, 1] : " + threshold);
+        }
+        this.threshold = threshold;
+        this.evaluationSample = evaluationSample;
+        // The LSH threshold of b bands of r rows is about (1/b)^(1/r); the highest one that is not above the
+        // threshold is chosen, so that the pairs above the threshold are found, with the fewest candidates
+        int bestRows = 1;
+        for (int r = 1; r <= SIGNATURE_SIZE; r++) {
+            if (SIGNATURE_SIZE % r == 0 && Math.pow(1.0 / (SIGNATURE_SIZE / r), 1.0 / r) <= threshold) {
+                bestRows = r;
+            }
+        }
+        this.rows = bestRows;
+        this.bands = SIGNATURE_SIZE / bestRows;
+        long seed = SEED;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            seed = mix(seed + SEED);
+            hashSeeds[i] = seed;
+        }
+    }
+
+    /**
+     * This method returns the NearDuplicates of the system properties indexer.dedup (true to find the
+     * near-duplicates), indexer.dedupThreshold (the Jaccard threshold, 0.8 by default) and
+     * indexer.dedupSample (the number of the songs of the evaluation, 50 by default).
+     * @return The NearDuplicates object, or null if the near-duplicates are not found
+     */
+    public static NearDuplicates fromSystemProperties() {
+        if (!Boolean.getBoolean("indexer.dedup")) {
+            return null;
+        }
+        return new NearDuplicates(Double.parseDouble(System.getProperty("indexer.dedupThreshold", "0.8")),
+                Integer.getInteger("indexer.dedupSample", 50));
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * This method finds the cluster of the lyrics of a song, and adds the song to the buckets. <br>
+     * @param key The unique key of the song (the song href)
+     * @param lyricsText The lyrics of the song
+     * @return The id of the cluster of the song
+     */
+    public synchronized long assign(String key, String lyricsText) {
+        long startTime = System.nanoTime();
+        long[] songShingles = shingles(lyricsText);
+        int[] signature = signature(songShingles);
+        int song = signatures.size();
+        // The earlier song with the most similar signature, among the songs of the same buckets
+        int bestMatch = -1;
+        double bestSimilarity = 0;
+        long[] bandKeys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            bandKeys[band] = bandKey(signature, band);
+            List<Integer> bucket = buckets.get(bandKeys[band]);
+            if (bucket == null) {
+                continue;
+            }
+            for (int candidate : bucket) {
+                candidates++;
+                double similarity = estimatedSimilarity(signature, signatures.get(candidate));
+                if (similarity >= threshold && similarity > bestSimilarity) {
+                    bestSimilarity = similarity;
+                    bestMatch = candidate;
+                }
+            }
+        }
+        long cluster;
+        if (bestMatch >= 0) {
+            cluster = clusters.get(bestMatch);
+            duplicates++;
+            if (evaluationSample > 0) {
+                detectedPairs.add(new int[]{song, bestMatch});
+            }
+        } else {
+            cluster = clusterId(key);
+            clusterCount++;
+        }
+        for (int band = 0; band < bands; band++) {
+            List<Integer> bucket = buckets.computeIfAbsent(bandKeys[band], k -> new ArrayList<>(1));
+            if (bucket.size() < MAX_BUCKET_SIZE) {
+                bucket.add(song);
+            }
+        }
+        signatures.add(signature);
+        clusters.add(cluster);
+        if (evaluationSample > 0) {
+            shingles.add(songShingles);
+        }
+        long assignNanos = System.nanoTime() - startTime;
+        nanos += assignNanos;
+        Metrics.get().recordStage(Metrics.Stage.DEDUPLICATE, assignNanos);
+        return cluster;
+    }
+
+    /**
+     * This method returns the distinct hashes of the word shingles of a text, in ascending order. <br>
+     * The words are the runs of letters and digits, in lower case. A text with fewer words than a shingle
+     * has one shingle of all its words. <br>
+     */
+    private static long[] shingles(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        int count = Math.max(1, words.size() - WORD_SHINGLE + 1);
+        long[] hashes = new long[count];
+        for (int i = 0; i < count; i++) {
+            long hash = SEED;
+            for (int w = i; w < Math.min(words.size(), i + WORD_SHINGLE); w++) {
+                hash = mix(hash ^ words.get(w).hashCode());
+            }
+            hashes[i] = hash;
+        }
+        Arrays.sort(hashes);
+        // Remove the repeated shingles, e.g. of a repeated chorus
+        int distinct = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+        return Arrays.copyOf(hashes, distinct);
+    }
+
+    /**
+     * This method returns the MinHash signature of the shingles : for each hash function, the minimum
+     * hash of the shingles.
+     */
+    private int[] signature(long[] songShingles) {
+        int[] signature = new int[SIGNATURE_SIZE];
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            int min = Integer.MAX_VALUE;
+            for (long shingle : songShingles) {
+                int hash = (int) (mix(shingle ^ hashSeeds[i]) >>> 33);
+                if (hash < min) {
+                    min = hash;
+                }
+            }
+            signature[i] = min;
+        }
+        return signature;
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long hash = band;
+        for (int row = band * rows; row < (band + 1) * rows; row++) {
+            hash = mix(hash ^ signature[row]);
+        }
+        // The band number is kept in the key, so that the same hashes of different bands are different buckets
+        return hash * 31 + band;
+    }
+
+    /**
+     * This method returns the estimated Jaccard similarity of two songs : the fraction of their equal MinHashes.
+     */
+    private static double estimatedSimilarity(int[] signature1, int[] signature2) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (signature1[i] == signature2[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    /**
+     * This method returns the exact Jaccard similarity of two sorted sets of shingles.
+     */
+    private static double jaccard(long[] shingles1, long[] shingles2) {
+        int i = 0;
+        int j = 0;
+        int intersection = 0;
+        while (i < shingles1.length && j < shingles2.length) {
+            if (shingles1[i] == shingles2[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (shingles1[i] < shingles2[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = shingles1.length + shingles2.length - intersection;
+        return union == 0 ? 1 : (double) intersection / union;
+    }
+
+    /**
+     * This method returns the id of a new cluster, from the key of its first song (64-bit FNV-1a hash).
+     */
+    static long clusterId(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The finalizer of SplitMix64, which spreads the bits of a long.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * This method returns the report of the near-duplicates : the songs, the clusters, the duplicates,
+     * the throughput, and the precision and the recall, if the evaluation is enabled. <br>
+     * The precision is the fraction of the detected pairs whose exact similarity reaches the threshold. <br>
+     * The recall is the fraction of the pairs of the sampled songs whose exact similarity reaches the threshold,
+     * that are in the same cluster. <br>
+     * @return The report
+     */
+    public synchronized String report() {
+        int songs = signatures.size();
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "Near-duplicates (Jaccard >= %.2f, %d bands of %d rows) : %d songs, %d clusters, %d duplicates, "
+                        + "%d candidates compared, %.0f songs/sec",
+                threshold, bands, rows, songs, clusterCount, duplicates, candidates, songs / Math.max(nanos / 1e9, 1e-9)));
+        if (evaluationSample > 0 && songs > 0) {
+            int truePositives = 0;
+            for (int[] pair : detectedPairs) {
+                if (jaccard(shingles.get(pair[0]), shingles.get(pair[1])) >= threshold) {
+                    truePositives++;
+                }
+            }
+            // The sampled songs are spread evenly over the songs, and compared with all the other songs
+            int sample = Math.min(evaluationSample, songs);
+            int truePairs = 0;
+            int foundPairs = 0;
+            for (int s = 0; s < sample; s++) {
+                int song = (int) ((long) s * songs / sample);
+                for (int other = 0; other < songs; other++) {
+                    if (other != song && jaccard(shingles.get(song), shingles.get(other)) >= threshold) {
+                        truePairs++;
+                        if (clusters.get(song).equals(clusters.get(other))) {
+                            foundPairs++;
+                        }
+                    }
+                }
+            }
+            report.append(String.format(Locale.ROOT, ", precision %.3f (%d pairs), recall %.3f (%d pairs of %d songs)",
+                    detectedPairs.isEmpty() ? 1.0 : (double) truePositives / detectedPairs.size(), detectedPairs.size(),
+                    truePairs == 0 ? 1.0 : (double) foundPairs / truePairs, truePairs, sample));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * PageCache.java <br>
+ * This class is an on-disk cache of the fetched HTML pages. <br>
+ * The cache is content-addressed : each page is stored once, in the pages directory, in a file named by the
+ * SHA-256 hash of its content, and the urls directory maps the SHA-256 hash of each URL to the hash of its page.
+ * So the pages that are the same for many URLs (e.g. the "not found" page) are stored only once. <br>
+ * The files are written to a temporary file and then moved, so a page that is being written by one thread
+ * is never read half-written by another thread or by a later run. <br>
+ * @see LyricsScraper
+ */
+public class PageCache {
+    private final Path pagesDir;
+    private final Path urlsDir;
+
+    /**
+     * Constructor of the class. <br>
+     * It creates the directories of the cache, if they do not exist. <br>
+     * @param cacheDir The directory of the cache
+     * @throws IOException
+     */
+    public PageCache(String cacheDir) throws IOException {
+        pagesDir = Files.createDirectories(Paths.get(cacheDir, "pages"));
+        urlsDir = Files.createDirectories(Paths.get(cacheDir, "urls"));
+    }
+
+    /**
+     * This method returns the cached page of a URL.
+     * @param url The URL of the page
+     * @return The HTML of the page, or null if the page is not in the cache
+     * @throws IOException
+     */
+    public String get(String url) throws IOException {
+        try {
+            String contentHash = new String(Files.readAllBytes(urlsDir.resolve(sha256(url))), StandardCharsets.UTF_8);
+            return new String(Files.readAllBytes(pagesDir.resolve(contentHash + ".html")), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * This method stores the page of a URL in the cache.
+     * @param url The URL of the page
+     * @param html The HTML of the page
+     * @throws IOException
+     */
+    public void put(String url, String html) throws IOException {
+        byte[] content = html.getBytes(StandardCharsets.UTF_8);
+        String contentHash = sha256(content);
+        Path page = pagesDir.resolve(contentHash + ".html");
+        // A page with the same content is already stored
+        if (!Files.exists(page)) {
+            writeAtomically(page, content);
+        }
+        writeAtomically(urlsDir.resolve(sha256(url)), contentHash.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, content);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String sha256(String text) {
+        return sha256(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * This method returns the SHA-256 hash of the bytes, as a hex string.
+     */
+    private static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
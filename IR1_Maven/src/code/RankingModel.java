@@ -0,0 +1,54 @@
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.search.similarities.ClassicSimilarity;
+import org.apache.lucene.search.similarities.Similarity;
+
+/**
+ * RankingModel.java <br>
+ * This enum is the ranking model of a search, which is chosen for each query. <br>
+ * The models only change the scoring at search time, and the norms of the index are the same for all
+ * the similarities, so the same IndexReader is searched with any model, without a reopen or a rebuild. <br>
+ * @see Searcher#searchAfter(String, java.util.Map, org.apache.lucene.search.ScoreDoc, int, java.util.Set,
+ * RankingModel, boolean)
+ */
+public enum RankingModel {
+    // The Boolean model : the documents match or not, without a rank, so all the hits have the same score
+    // and they are returned in the order of the document ids
+    BOOLEAN("Boolean Model", new BM25Similarity()),
+    // The vector space model, with the classic TF-IDF weights and the cosine normalization of Lucene
+    VECTOR_SPACE("Vector Space Model", new ClassicSimilarity()),
+    // The probabilistic BM25 model, which is the default similarity of Lucene
+    BM25("BM25", new BM25Similarity());
+
+    private final String displayName;
+    private final Similarity similarity;
+
+    RankingModel(String displayName, Similarity similarity) {
+        this.displayName = displayName;
+        this.similarity = similarity;
+    }
+
+    /**
+     * @return The similarity of the scores of the model (the similarities are thread-safe)
+     */
+    public Similarity getSimilarity() {
+        return similarity;
+    }
+
+    /**
+     * This method returns the query of the model. <br>
+     * The Boolean model only filters the documents, so the query has a constant score, and the collector
+     * stops as soon as the first topK documents are found, unless the total hits must be exact.
+     * @param query The parsed query
+     * @return The query of the model
+     */
+    public Query toModelQuery(Query query) {
+        return this == BOOLEAN ? new ConstantScoreQuery(query) : query;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * ScraperSettings.java <br>
+ * This class is used to store the settings of the LyricsScraper. <br>
+ * It contains the URL of the lyrics pages, the number of the pages that are fetched at the same time,
+ * the rate limit of the requests to each host, the retries of a failed request and the timeout of a request. <br>
+ * The default values can be overridden with the system properties scraper.baseUrl, scraper.threads,
+ * scraper.requestsPerSecond, scraper.burst, scraper.maxRetries, scraper.backoffMs and scraper.timeoutMs. <br>
+ * @see LyricsScraper
+ */
+public class ScraperSettings {
+    private final String baseUrl;
+    private final int concurrency;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final int maxRetries;
+    private final long initialBackoffMs;
+    private final int timeoutMs;
+
+    /**
+     * Constructor of the class. <br>
+     * @param baseUrl The URL of the lyrics pages (WebScrapping.DEFAULT_BASE_URL, or a local server with saved pages)
+     * @param concurrency The maximum number of the pages that are fetched at the same time
+     * @param requestsPerSecond The maximum rate of the requests to each host
+     * @param burst The number of the requests to a host that can be sent at once, before the rate limit applies
+     * @param maxRetries The number of the retries of a request that timed out or got a 429 or 5xx response
+     * @param initialBackoffMs The wait before the first retry, which doubles on every next retry
+     * @param timeoutMs The connect and read timeout of a request
+     */
+    public ScraperSettings(String baseUrl, int concurrency, double requestsPerSecond, int burst, int maxRetries,
+                           long initialBackoffMs, int timeoutMs) {
+        if (concurrency < 1 || burst < 1) {
+            throw new IllegalArgumentException("The concurrency and the burst must be at least 1");
+        }
+        if (!(requestsPerSecond > 0)) {
+            throw new IllegalArgumentException("The requests per second must be positive");
+        }
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.concurrency = concurrency;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.maxRetries = maxRetries;
+        this.initialBackoffMs = initialBackoffMs;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * This method returns the default settings. <br>
+     * By default, the pages are fetched from WebScrapping.DEFAULT_BASE_URL, 4 at a time, with at most
+     * one request per second, so that the site does not block the scraper. <br>
+     * @return The default ScraperSettings
+     */
+    public static ScraperSettings defaults() {
+        String baseUrl = System.getProperty("scraper.baseUrl", WebScrapping.DEFAULT_BASE_URL);
+        int concurrency = Integer.getInteger("scraper.threads", 4);
+        double requestsPerSecond = Double.parseDouble(System.getProperty("scraper.requestsPerSecond", "1"));
+        int burst = Integer.getInteger("scraper.burst", 1);
+        int maxRetries = Integer.getInteger("scraper.maxRetries", 3);
+        long initialBackoffMs = Long.getLong("scraper.backoffMs", 1000);
+        int timeoutMs = Integer.getInteger("scraper.timeoutMs", 10000);
+        return new ScraperSettings(baseUrl, concurrency, requestsPerSecond, burst, maxRetries, initialBackoffMs,
+                timeoutMs);
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getInitialBackoffMs() {
+        return initialBackoffMs;
+    }
+
+    public int getTimeoutMs() {
+        return timeoutMs;
+    }
+}
@@ -0,0 +1,100 @@
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SearchResults.java <br>
+ * This class is used to store the results of a search. <br>
+ * It contains the TopDocs object of the search, and the documents of the hits, which are
+ * loaded from the same version of the index as the hits (the document ids of the hits are
+ * not valid in another version of the index). <br>
+ * It also contains the version of the index that was searched, and the facet counts of the hits,
+ * if they were asked for. <br>
+ * @see Searcher#search(String searchQuery, String field, int topK)
+ */
+public class SearchResults {
+    private final TopDocs topDocs;
+    private final Document[] documents;
+    private final long indexVersion;
+    private final List<FacetResult> facets;
+    private final ScoreDoc cursor;
+
+    public SearchResults(TopDocs topDocs, Document[] documents, long indexVersion) {
+        this(topDocs, documents, indexVersion, Collections.emptyList());
+    }
+
+    public SearchResults(TopDocs topDocs, Document[] documents, long indexVersion, List<FacetResult> facets) {
+        this(topDocs, documents, indexVersion, facets,
+                topDocs.scoreDocs.length == 0 ? null : topDocs.scoreDocs[topDocs.scoreDocs.length - 1]);
+    }
+
+    /**
+     * Constructor of the class, with the cursor of the next page, when it is not the last hit of the page
+     * (e.g. when some hits were skipped after the last hit, as duplicates).
+     */
+    public SearchResults(TopDocs topDocs, Document[] documents, long indexVersion, List<FacetResult> facets,
+                         ScoreDoc cursor) {
+        this.topDocs = topDocs;
+        this.documents = documents;
+        this.indexVersion = indexVersion;
+        this.facets = facets;
+        this.cursor = cursor;
+    }
+
+    public TopDocs getTopDocs() {
+        return topDocs;
+    }
+
+    public TotalHits getTotalHits() {
+        return topDocs.totalHits;
+    }
+
+    public ScoreDoc[] getScoreDocs() {
+        return topDocs.scoreDocs;
+    }
+
+    /**
+     * This method returns the document of a hit.
+     * @param hit The position of the hit (0 for the first hit)
+     * @return The document of the hit
+     */
+    public Document getDocument(int hit) {
+        return documents[hit];
+    }
+
+    public Document[] getDocuments() {
+        return documents;
+    }
+
+    /**
+     * This method returns the cursor of the next page of the hits, which is usually the last hit of this page.
+     * @return The last hit, or null if there are no hits
+     * @see Searcher#searchAfter(String, String, ScoreDoc, int, java.util.Set)
+     */
+    public ScoreDoc getCursor() {
+        return cursor;
+    }
+
+    /**
+     * This method returns the facet counts of the hits, one FacetResult for each dimension with hits.
+     * @return The facet counts, or an empty list if they were not computed
+     * @see Searcher#searchFacets(String, String, java.util.Map, ScoreDoc, int, java.util.Set)
+     */
+    public List<FacetResult> getFacets() {
+        return facets;
+    }
+
+    /**
+     * This method returns the version of the index that was searched.
+     * @return The version of the IndexReader of the search
+     * @see Searcher#getIndexVersion()
+     */
+    public long getIndexVersion() {
+        return indexVersion;
+    }
+}
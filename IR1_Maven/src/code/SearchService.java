@@ -0,0 +1,246 @@
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Service;
+import javafx.concurrent.Task;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TotalHits;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * SearchService.java <br>
+ * This class runs the searches of the GUI in a background thread, so that the JavaFX application thread
+ * is never blocked by Lucene. <br>
+ * The hits are fetched in pages with searchAfter, and each page is appended to the list of the hits as soon
+ * as it is loaded, so that a TableView shows the first hits before the rest of the topK are fetched. <br>
+ * The first page is small, so that it is painted quickly even when the query matches thousands of documents. <br>
+ * The progress of the service is the number of the hits fetched, out of the topK (or the total hits, if less). <br>
+ * The facet counts of the first page (if the PageQuery computes them) are shown as a list of facet values,
+ * and a facet value can be selected as a filter (drill-down) of the next searches. <br>
+ * All the pages must come from the same version of the index, since the cursor of a page is only valid in the
+ * version of its search : if the index is refreshed between two pages, the hits would be repeated or skipped,
+ * so the search starts again from the first page, at most MAX_VERSION_RESTARTS times. <br>
+ * A new search (restart) cancels the running one. <br>
+ * The executor is shared by the services of all the dialogs, so a dialog does not leave a thread behind. <br>
+ * @see Searcher#searchAfter(String, String, ScoreDoc, int, java.util.Set)
+ */
+public class SearchService extends Service<Long> {
+    // The size of the first page, which is fetched as fast as possible
+    public static final int FIRST_PAGE_SIZE = 25;
+    // The size of the next pages
+    public static final int PAGE_SIZE = 250;
+    // The number of the times that a search starts again, when the index changes between its pages
+    public static final int MAX_VERSION_RESTARTS = 3;
+
+    private final ObservableList<Document> hits = FXCollections.observableArrayList();
+    private final ObservableList<FacetValue> facets = FXCollections.observableArrayList();
+    // The facet dimension and value of each filter of the searches
+    private final Map<String, String> drillDowns = new LinkedHashMap<>();
+    private PageQuery pageQuery;
+    private int topK;
+
+    /**
+     * @param executor The executor of the searches, whose threads must be daemon threads
+     */
+    public SearchService(Executor executor) {
+        setExecutor(executor);
+    }
+
+    /**
+     * This method sets the next search. <br>
+     * It must be called on the JavaFX application thread, before start() or restart().
+     * @param pageQuery The search of one page of the hits
+     * @param topK The maximum number of the hits to be fetched
+     */
+    public void setSearch(PageQuery pageQuery, int topK) {
+        this.pageQuery = pageQuery;
+        this.topK = topK;
+    }
+
+    public boolean hasSearch() {
+        return pageQuery != null;
+    }
+
+    /**
+     * This method returns the hits of the last search, which grow while the search is running. <br>
+     * The list is only changed on the JavaFX application thread, so it can be the items of a TableView.
+     * @return The documents of the hits
+     */
+    public ObservableList<Document> getHits() {
+        return hits;
+    }
+
+    /**
+     * This method returns the facet values of the hits of the last search, with their counts. <br>
+     * The list is only changed on the JavaFX application thread.
+     * @return The facet values
+     */
+    public ObservableList<FacetValue> getFacets() {
+        return facets;
+    }
+
+    /**
+     * This method filters the next searches by a facet value, instead of any other value of its dimension. <br>
+     * It must be called on the JavaFX application thread, before restart().
+     * @param facetValue The facet value
+     */
+    public void drillDown(FacetValue facetValue) {
+        drillDowns.put(facetValue.getDimension(), facetValue.getValue());
+    }
+
+    /**
+     * This method removes the facet filters of the next searches.
+     */
+    public void clearDrillDowns() {
+        drillDowns.clear();
+    }
+
+    public Map<String, String> getDrillDowns() {
+        return Collections.unmodifiableMap(drillDowns);
+    }
+
+    @Override
+    protected Task<Long> createTask() {
+        // createTask is called on the JavaFX application thread, so the hits of the previous search are removed
+        // before the new task adds its own
+        hits.clear();
+        facets.clear();
+        PageQuery query = pageQuery;
+        int maxHits = topK;
+        Map<String, String> filters = new LinkedHashMap<>(drillDowns);
+        return new Task<Long>() {
+            @Override
+            protected Long call() throws IOException, ParseException {
+                long startTime = System.nanoTime();
+                ScoreDoc after = null;
+                int fetched = 0;
+                long totalHits = 0;
+                // The version of the index of the first page
+                long indexVersion = -1;
+                int versionRestarts = 0;
+                while (fetched < maxHits && !isCancelled()) {
+                    int pageSize = Math.min(fetched == 0 ? FIRST_PAGE_SIZE : PAGE_SIZE, maxHits - fetched);
+                    SearchResults page = query.search(filters, after, pageSize);
+                    if (isCancelled()) {
+                        break;
+                    }
+                    if (fetched == 0) {
+                        indexVersion = page.getIndexVersion();
+                    } else if (page.getIndexVersion() != indexVersion) {
+                        if (versionRestarts++ == MAX_VERSION_RESTARTS) {
+                            // The hits of the first version are kept, instead of a mix of versions
+                            updateMessage("The index changed during the search, only the first "
+                                    + fetched + " hits are shown");
+                            break;
+                        }
+                        // The cursor is not valid in the new version, so the hits are fetched again from the start
+                        Platform.runLater(() -> {
+                            if (!isCancelled()) {
+                                hits.clear();
+                                facets.clear();
+                            }
+                        });
+                        after = null;
+                        fetched = 0;
+                        continue;
+                    }
+                    totalHits = page.getTotalHits().value;
+                    // An approximate count (e.g. of a search without the exact total hits) is a lower bound
+                    boolean lowerBound = page.getTotalHits().relation == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO;
+                    Document[] documents = page.getDocuments();
+                    List<FacetValue> pageFacets = toFacetValues(page.getFacets());
+                    // Only the JavaFX application thread may change the items of the TableView
+                    Platform.runLater(() -> {
+                        if (!isCancelled()) {
+                            hits.addAll(Arrays.asList(documents));
+                            facets.addAll(pageFacets);
+                        }
+                    });
+                    fetched += documents.length;
+                    updateProgress(fetched, Math.max(1, Math.min(maxHits, totalHits)));
+                    if (fetched == documents.length) {
+                        updateMessage(String.format(Locale.ROOT, "%s%d documents found, first hits in %.0f ms",
+                                lowerBound ? "at least " : "", totalHits, (System.nanoTime() - startTime) / 1e6));
+                    }
+                    after = page.getCursor();
+                    if (documents.length < pageSize) {
+                        // There are no more hits
+                        break;
+                    }
+                }
+                updateProgress(1, 1);
+                return totalHits;
+            }
+        };
+    }
+
+    private static List<FacetValue> toFacetValues(List<FacetResult> facetResults) {
+        List<FacetValue> facetValues = new ArrayList<>();
+        for (FacetResult facetResult : facetResults) {
+            for (LabelAndValue labelAndValue : facetResult.labelValues) {
+                facetValues.add(new FacetValue(facetResult.dim, labelAndValue.label,
+                        labelAndValue.value.longValue()));
+            }
+        }
+        return facetValues;
+    }
+
+    /**
+     * A facet value of the hits, and the number of the hits with this value.
+     */
+    public static class FacetValue {
+        private final String dimension;
+        private final String value;
+        private final long count;
+
+        public FacetValue(String dimension, String value, long count) {
+            this.dimension = dimension;
+            this.value = value;
+            this.count = count;
+        }
+
+        public String getDimension() {
+            return dimension;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return dimension + " : " + value + " (" + count + ")";
+        }
+    }
+
+    /**
+     * The search of one page of the hits, e.g. a call of Searcher.searchAfter or Searcher.searchFacets.
+     */
+    public interface PageQuery {
+        /**
+         * @param drillDowns The facet dimension and value of each filter of the search, or an empty map
+         * @param after The cursor of the previous page, or null for the first page
+         * @param pageSize The number of the hits of the page
+         * @return The hits of the page
+         */
+        SearchResults search(Map<String, String> drillDowns, ScoreDoc after, int pageSize)
+                throws IOException, ParseException;
+    }
+}
@@ -1,57 +1,173 @@
+import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.facet.DrillDownQuery;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.join.BitSetProducer;
+import org.apache.lucene.search.join.JoinUtil;
+import org.apache.lucene.search.join.ParentChildrenBlockJoinQuery;
+import org.apache.lucene.search.join.QueryBitSetProducer;
+import org.apache.lucene.search.join.ScoreMode;
+import org.apache.lucene.search.join.ToParentBlockJoinQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is responsible for the searching of the index.
  * It contains methods for the searching of the index, and for the getting of the documents
- *
+ * <br>
+ * One Searcher can be shared by many threads. The IndexSearcher objects are handed out by a
+ * SearcherManager, which is refreshed periodically, so that the searches see the new commits
+ * of the index without a restart.
+ * <br>
+ * The latency, the total hits and the loading time of the stored fields of each search are recorded
+ * in the Metrics, for the field of the search.
  *
  */
-public class Searcher {
-    private IndexSearcher indexSearcher;
-    private Directory indexDirectory;
-    private IndexReader reader;
-    private Query query;
-    private QueryParser queryParser;
+public class Searcher implements Closeable {
+    // The default time between two checks for new commits of the index
+    public static final long DEFAULT_REFRESH_INTERVAL_MS = 1000;
+
+    // Create the analyzer for the tokenization of the text data
+    // No need to ignore stopwords, because if we ignore them
+    // the index will become only ~ 3MB smaller
+    // The analyzer is thread-safe, so it is shared by all the queries
+    private static final Analyzer analyzer = new StandardAnalyzer();
+    // The albums sorted by year (from the doc values), and by score for the same year
+    // The albums without a year are sorted last
+    private static final Sort YEAR_SORT;
+    static {
+        SortField year = new SortField(LuceneConstants.ALBUMS_ALBUM_YEAR_VALUE, SortField.Type.INT);
+        year.setMissingValue(Integer.MAX_VALUE);
+        YEAR_SORT = new Sort(year, SortField.FIELD_SCORE);
+    }
+    // The documents of the songs, without the documents of their lyrics lines
+    private static final Query SONGS = new TermQuery(new Term(LuceneConstants.DOC_TYPE, LuceneConstants.DOC_TYPE_SONG));
+    // The songs, which are the parents of the blocks of the lyrics lines
+    // The bit sets of the parents are cached for each segment, so they are shared by all the Searchers
+    private static final BitSetProducer SONG_PARENTS = new QueryBitSetProducer(SONGS);
+    // The stored fields of the songs and of the lines of the hits of searchLines
+    private static final Set<String> LINE_HIT_SONG_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            LuceneConstants.SONGS_SONG_NAME, LuceneConstants.SONGS_SINGER_NAME, LuceneConstants.SONGS_SONG_HREF)));
+    private static final Set<String> LINE_HIT_LINE_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            LuceneConstants.LYRICS_LINE_TEXT, LuceneConstants.LYRICS_LINE_NUMBER)));
+
+    private final Directory indexDirectory;
+    private final SearcherManager searcherManager;
+    private final ScheduledExecutorService refresher;
+    // The number of the top values of each facet dimension
+    public static final int FACET_TOP_VALUES = 10;
+    // The total hits are counted exactly up to this number, like IndexSearcher.search does
+    private static final int DEFAULT_TOTAL_HITS_THRESHOLD = 1000;
+
+    // The QueryParser is not thread-safe, so each thread has its own QueryParser for each field
+    private final ThreadLocal<Map<String, QueryParser>> queryParsers = ThreadLocal.withInitial(HashMap::new);
+    // The ordinals of the facet values of the current IndexReader, which are costly to build,
+    // so they are built once for each version of the index
+    private volatile FacetState facetState;
+
+    /**
+     * Constructor of the class
+     * It creates the directory of the index, and the SearcherManager object, which checks
+     * for new commits of the index every DEFAULT_REFRESH_INTERVAL_MS milliseconds
+     *
+     * @param indexDir The directory of the index
+     * @throws IOException
+     */
+    public Searcher(String indexDir) throws IOException {
+        this(indexDir, DEFAULT_REFRESH_INTERVAL_MS);
+    }
 
     /**
      * Constructor of the class
-     * It creates the directory of the index, the IndexReader object, and the IndexSearcher object
+     * It creates the directory of the index, and the SearcherManager object
      *
      * @param indexDir The directory of the index
+     * @param refreshIntervalMs The time between two checks for new commits of the index
+     * @throws IOException
      */
-    public Searcher(String indexDir){
+    public Searcher(String indexDir, long refreshIntervalMs) throws IOException {
         // Create the directory of the index
-        indexDirectory = null;
-        try {
-            indexDirectory = FSDirectory.open(Paths.get(indexDir));
-        } catch (IOException e) {
-            System.out.println("Error creating the directory of the index");
-            System.exit(1);
-        }
-        // Create a IndexReader object, for the reading of the index
-        reader = null;
+        indexDirectory = FSDirectory.open(Paths.get(indexDir));
+        // Create the SearcherManager object, which opens the IndexReader and the IndexSearcher objects
+        searcherManager = new SearcherManager(indexDirectory, null);
+        // Check for new commits of the index in the background
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "searcher-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor of the class
+     * It searches the IndexSearcher objects of a SearcherManager that is refreshed by its owner,
+     * e.g. the near-real-time SearcherManager of a LiveSongLyricsIndexer. <br>
+     * The SearcherManager is not closed by the close method of the Searcher, since it belongs to its owner.
+     *
+     * @param searcherManager The SearcherManager object
+     * @see LiveSongLyricsIndexer#newSearcher()
+     */
+    public Searcher(SearcherManager searcherManager) {
+        this.indexDirectory = null;
+        this.searcherManager = searcherManager;
+        this.refresher = null;
+    }
+
+    /**
+     * This method makes the next searches see the last commit of the index, if there is a new one
+     */
+    public void refresh() {
         try {
-            reader = DirectoryReader.open(indexDirectory);
+            searcherManager.maybeRefresh();
         } catch (IOException e) {
-            System.out.println("Error creating the IndexReader object");
-            System.exit(1);
+            // Keep searching the previous version of the index, and try again on the next refresh
+            System.out.println("Error refreshing the IndexSearcher object");
         }
-        // Create the IndexSearcher object, for the searching of the index
-        indexSearcher = new IndexSearcher(reader);
     }
 
     /**
@@ -59,63 +175,707 @@ public class Searcher {
      * @param searchQuery The query for the searching of the index
      * @param field The field of the index, on which the searching will be based on (SONGS_SINGER_NAME etc.)
      * @param topK The number of the top documents that will be returned
-     * @return The TopDocs object, which contains the topK documents
+     * @return The SearchResults object, which contains the topK documents
      * @throws IOException
      * @throws ParseException
      */
-    public TopDocs search(String searchQuery, String field, int topK) throws IOException,
+    public SearchResults search(String searchQuery, String field, int topK) throws IOException,
             ParseException {
-        // Create the analyzer for the tokenization of the text data
-        // No need to ignore stopwords, because if we ignore them
-        // the index will become only ~ 3MB smaller
-        StandardAnalyzer analyzer = new StandardAnalyzer();
-        // Create the QueryParser object, for the parsing of the query, with the StandardAnalyzer
-        // and the SONGS_SINGER_NAME field for the searching of the index, based on the singer name
-        queryParser = new QueryParser(field, analyzer);
-        query = null;
+        return search(searchQuery, field, topK, null);
+    }
+
+    /**
+     * This method searches the index, based on the searchQuery, the field, and the topK parameter,
+     * and loads only the requested stored fields of the documents of the hits. <br>
+     * For example, a result list needs only the song name and the singer name, and not the whole lyrics. <br>
+     * @param searchQuery The query for the searching of the index
+     * @param field The field of the index, on which the searching will be based on (SONGS_SINGER_NAME etc.)
+     * @param topK The number of the top documents that will be returned
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @return The SearchResults object, which contains the topK documents
+     * @throws IOException
+     * @throws ParseException
+     */
+    public SearchResults search(String searchQuery, String field, int topK, Set<String> fieldsToLoad)
+            throws IOException, ParseException {
+        return searchAfter(searchQuery, field, null, topK, fieldsToLoad);
+    }
+
+    /**
+     * This method returns the next page of the hits of a search. <br>
+     * The page starts after the cursor of the previous page, so each page costs as much as the first one,
+     * instead of searching again for all the hits up to the page. <br>
+     * @param searchQuery The query for the searching of the index
+     * @param field The field of the index, on which the searching will be based on (SONGS_SINGER_NAME etc.)
+     * @param after The cursor of the previous page (SearchResults.getCursor()), or null for the first page
+     * @param pageSize The number of the hits of the page
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @return The SearchResults object, which contains the hits of the page
+     * @throws IOException
+     * @throws ParseException
+     * @see SearchResults#getCursor()
+     */
+    public SearchResults searchAfter(String searchQuery, String field, ScoreDoc after, int pageSize,
+                                     Set<String> fieldsToLoad) throws IOException, ParseException {
+        // Parse the query, with the QueryParser of this thread for the field
+        Query query = getQueryParser(field).parse(searchQuery);
+        return executeSearch(query, field, after, pageSize, fieldsToLoad, null);
+    }
+
+    /**
+     * This method returns the next page of the hits of a search, ranked by a ranking model. <br>
+     * The model is chosen for each query, and the same IndexReader is searched with any model. <br>
+     * If the total hits are not exact, the hits are counted only until the page is full, and then the documents
+     * that can not score higher than the page are skipped (block-max WAND) instead of being scored, so a broad
+     * query costs about as much as a narrow one. The total hits are then a lower bound
+     * (TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO). <br>
+     * @param searchQuery The query for the searching of the index
+     * @param field The field of the index, on which the searching will be based on (SONGS_SINGER_NAME etc.)
+     * @param after The cursor of the previous page (SearchResults.getCursor()), or null for the first page
+     * @param pageSize The number of the hits of the page
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @param model The ranking model of the hits
+     * @param exactTotalHits True to count all the hits, false to count them only as far as needed
+     * @return The SearchResults object, which contains the hits of the page
+     * @throws IOException
+     * @throws ParseException
+     */
+    public SearchResults searchAfter(String searchQuery, String field, ScoreDoc after, int pageSize,
+                                     Set<String> fieldsToLoad, RankingModel model, boolean exactTotalHits)
+            throws IOException, ParseException {
+        Query query = model.toModelQuery(getQueryParser(field).parse(searchQuery));
+        return executeSearch(query, field, after, pageSize, fieldsToLoad, null, model,
+                totalHitsThreshold(pageSize, exactTotalHits));
+    }
+
+    /**
+     * This method returns the next page of the hits of a search, with only the best hit of each cluster of
+     * near-duplicate lyrics (SongLyricsIndexer.setNearDuplicates). <br>
+     * The hits are read in score order, and a hit is skipped if a better hit of its cluster was already returned,
+     * in this page or in an earlier page of the same search. The hits without a cluster are never skipped. <br>
+     * The clusters are read from the doc values of the hits, so the skipped hits are never loaded. <br>
+     * @param searchQuery The query for the searching of the index
+     * @param field The field of the index, on which the searching will be based on (SONGS_SINGER_NAME etc.)
+     * @param after The cursor of the previous page (SearchResults.getCursor()), or null for the first page
+     * @param pageSize The number of the hits of the page
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @param seenClusters The clusters of the hits of the earlier pages, which is cleared for the first page
+     * and filled with the clusters of this page
+     * @return The SearchResults object, which contains the hits of the page
+     * @throws IOException
+     * @throws ParseException
+     */
+    public SearchResults searchCollapsed(String searchQuery, String field, ScoreDoc after, int pageSize,
+                                         Set<String> fieldsToLoad, Set<Long> seenClusters)
+            throws IOException, ParseException {
+        Query query = getQueryParser(field).parse(searchQuery);
+        if (after == null) {
+            seenClusters.clear();
+        }
+        long startTime = System.nanoTime();
+        IndexSearcher indexSearcher = searcherManager.acquire();
         try {
-            query = queryParser.parse(searchQuery);
-            System.out.println(query.toString());
-        } catch (org.apache.lucene.queryparser.classic.ParseException e) {
-            System.out.println("Error creating the query");
-            System.exit(1);
-        }
-        // Search the index
-        TopDocs hits = null;
+            List<LeafReaderContext> leaves = indexSearcher.getIndexReader().leaves();
+            List<ScoreDoc> kept = new ArrayList<>(pageSize);
+            ScoreDoc cursor = after;
+            TotalHits totalHits = null;
+            // The hits are read in batches of twice the page, until the page is full or there are no more hits
+            boolean exhausted = false;
+            while (kept.size() < pageSize && !exhausted) {
+                int batchSize = 2 * pageSize;
+                TopDocs batch = cursor == null ? indexSearcher.search(query, batchSize)
+                        : indexSearcher.searchAfter(cursor, query, batchSize);
+                if (totalHits == null) {
+                    totalHits = batch.totalHits;
+                }
+                exhausted = batch.scoreDocs.length < batchSize;
+                for (ScoreDoc hit : batch.scoreDocs) {
+                    cursor = hit;
+                    LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(hit.doc, leaves));
+                    NumericDocValues clusters = DocValues.getNumeric(leaf.reader(), LuceneConstants.LYRICS_CLUSTER_ID);
+                    if (!clusters.advanceExact(hit.doc - leaf.docBase) || seenClusters.add(clusters.longValue())) {
+                        kept.add(hit);
+                        if (kept.size() == pageSize) {
+                            break;
+                        }
+                    }
+                }
+            }
+            TopDocs hits = new TopDocs(totalHits, kept.toArray(new ScoreDoc[0]));
+            long fetchStartTime = System.nanoTime();
+            Document[] documents = loadDocuments(indexSearcher, hits, fieldsToLoad);
+            long endTime = System.nanoTime();
+            Metrics.get().recordQuery(field, endTime - startTime, totalHits.value, endTime - fetchStartTime);
+            // The next page starts after the last hit that was read, also if it was skipped
+            return new SearchResults(hits, documents, getIndexVersion(indexSearcher), Collections.emptyList(),
+                    kept.isEmpty() ? null : cursor);
+        } finally {
+            searcherManager.release(indexSearcher);
+        }
+    }
+
+    /**
+     * This method searches many fields of the index with one query, based on the searchQuery,
+     * the boost of each field, and the topK parameter. <br>
+     * The terms of the query are searched in all the fields, and a document that matches in
+     * more than one field is ranked once, with the combined (boosted) score of its fields. <br>
+     * @param searchQuery The query for the searching of the index
+     * @param fieldBoosts The fields of the index (SONGS_SONG_NAME etc.) and their boosts
+     * @param topK The number of the top documents that will be returned
+     * @return The SearchResults object, which contains the topK documents
+     * @throws IOException
+     * @throws ParseException
+     */
+    public SearchResults search(String searchQuery, Map<String, Float> fieldBoosts, int topK) throws IOException,
+            ParseException {
+        return searchAfter(searchQuery, fieldBoosts, null, topK, null);
+    }
+
+    /**
+     * This method returns the next page of the hits of a search in many fields. <br>
+     * @param searchQuery The query for the searching of the index
+     * @param fieldBoosts The fields of the index (SONGS_SONG_NAME etc.) and their boosts
+     * @param after The cursor of the previous page (SearchResults.getCursor()), or null for the first page
+     * @param pageSize The number of the hits of the page
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @return The SearchResults object, which contains the hits of the page
+     * @throws IOException
+     * @throws ParseException
+     * @see #search(String, Map, int)
+     */
+    public SearchResults searchAfter(String searchQuery, Map<String, Float> fieldBoosts, ScoreDoc after, int pageSize,
+                                     Set<String> fieldsToLoad) throws IOException, ParseException {
+        // The MultiFieldQueryParser is cheap to create (the analyzer is shared), and it is not thread-safe,
+        // so each search creates its own
+        String[] fields = fieldBoosts.keySet().toArray(new String[0]);
+        Query query = new MultiFieldQueryParser(fields, analyzer, fieldBoosts).parse(searchQuery);
+        return executeSearch(query, String.join("+", fields), after, pageSize, fieldsToLoad, null);
+    }
+
+    /**
+     * This method returns the next page of the hits of a search in many fields, ranked by a ranking model. <br>
+     * @param searchQuery The query for the searching of the index
+     * @param fieldBoosts The fields of the index (SONGS_SONG_NAME etc.) and their boosts
+     * @param after The cursor of the previous page (SearchResults.getCursor()), or null for the first page
+     * @param pageSize The number of the hits of the page
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @param model The ranking model of the hits
+     * @param exactTotalHits True to count all the hits, false to count them only as far as needed
+     * @return The SearchResults object, which contains the hits of the page
+     * @throws IOException
+     * @throws ParseException
+     * @see #searchAfter(String, String, ScoreDoc, int, Set, RankingModel, boolean)
+     */
+    public SearchResults searchAfter(String searchQuery, Map<String, Float> fieldBoosts, ScoreDoc after, int pageSize,
+                                     Set<String> fieldsToLoad, RankingModel model, boolean exactTotalHits)
+            throws IOException, ParseException {
+        String[] fields = fieldBoosts.keySet().toArray(new String[0]);
+        Query query = model.toModelQuery(new MultiFieldQueryParser(fields, analyzer, fieldBoosts).parse(searchQuery));
+        return executeSearch(query, String.join("+", fields), after, pageSize, fieldsToLoad, null, model,
+                totalHitsThreshold(pageSize, exactTotalHits));
+    }
+
+    private static int totalHitsThreshold(int pageSize, boolean exactTotalHits) {
+        // The collector needs a threshold of at least the number of its hits
+        return exactTotalHits ? Integer.MAX_VALUE : pageSize;
+    }
+
+    /**
+     * This method searches the index like searchAfter, and also counts the hits by the values of each facet
+     * (singer, album type, decade) in the same pass over the hits, from the doc values of the facets. <br>
+     * The hits can be filtered by facet values (drill-down), e.g. only the hits of one singer. <br>
+     * The facet counts are the same for all the pages, so they are only computed with the first page. <br>
+     * @param searchQuery The query for the searching of the index
+     * @param field The field of the index, on which the searching will be based on (SONGS_SINGER_NAME etc.)
+     * @param drillDowns The facet dimension (FacetFields.SINGER etc.) and value of each filter, or an empty map
+     * @param after The cursor of the previous page (SearchResults.getCursor()), or null for the first page
+     * @param pageSize The number of the hits of the page
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @return The SearchResults object, which contains the hits of the page and the facet counts
+     * @throws IOException
+     * @throws ParseException
+     * @see FacetFields
+     */
+    public SearchResults searchFacets(String searchQuery, String field, Map<String, String> drillDowns,
+                                      ScoreDoc after, int pageSize, Set<String> fieldsToLoad)
+            throws IOException, ParseException {
+        Query query = getQueryParser(field).parse(searchQuery);
+        return executeFacetSearch(query, field, drillDowns, after, pageSize, fieldsToLoad, RankingModel.BM25);
+    }
+
+    /**
+     * This method searches many fields of the index like searchAfter, and also counts the hits by the values
+     * of each facet in the same pass over the hits. <br>
+     * @param searchQuery The query for the searching of the index
+     * @param fieldBoosts The fields of the index (SONGS_SONG_NAME etc.) and their boosts
+     * @param drillDowns The facet dimension (FacetFields.SINGER etc.) and value of each filter, or an empty map
+     * @param after The cursor of the previous page (SearchResults.getCursor()), or null for the first page
+     * @param pageSize The number of the hits of the page
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @return The SearchResults object, which contains the hits of the page and the facet counts
+     * @throws IOException
+     * @throws ParseException
+     * @see #searchFacets(String, String, Map, ScoreDoc, int, Set)
+     */
+    public SearchResults searchFacets(String searchQuery, Map<String, Float> fieldBoosts,
+                                      Map<String, String> drillDowns, ScoreDoc after, int pageSize,
+                                      Set<String> fieldsToLoad) throws IOException, ParseException {
+        return searchFacets(searchQuery, fieldBoosts, drillDowns, after, pageSize, fieldsToLoad, RankingModel.BM25);
+    }
+
+    /**
+     * This method searches many fields of the index like searchFacets, ranked by a ranking model. <br>
+     * The facets are counted from all the hits, so the total hits are always exact. <br>
+     * @param model The ranking model of the hits
+     * @see #searchFacets(String, Map, Map, ScoreDoc, int, Set)
+     */
+    public SearchResults searchFacets(String searchQuery, Map<String, Float> fieldBoosts,
+                                      Map<String, String> drillDowns, ScoreDoc after, int pageSize,
+                                      Set<String> fieldsToLoad, RankingModel model)
+            throws IOException, ParseException {
+        String[] fields = fieldBoosts.keySet().toArray(new String[0]);
+        Query query = model.toModelQuery(new MultiFieldQueryParser(fields, analyzer, fieldBoosts).parse(searchQuery));
+        return executeFacetSearch(query, String.join("+", fields), drillDowns, after, pageSize, fieldsToLoad, model);
+    }
+
+    /**
+     * This method searches the index with a parsed query, filtered by the drill-down facet values,
+     * and counts the facets of the hits if it is the first page.
+     */
+    private SearchResults executeFacetSearch(Query query, String metricsField, Map<String, String> drillDowns,
+                                             ScoreDoc after, int pageSize, Set<String> fieldsToLoad,
+                                             RankingModel model) throws IOException {
+        if (!drillDowns.isEmpty()) {
+            // The drill-down only filters the hits, so the scores of the hits do not change
+            DrillDownQuery drillDownQuery = new DrillDownQuery(FacetFields.CONFIG, query);
+            for (Map.Entry<String, String> drillDown : drillDowns.entrySet()) {
+                drillDownQuery.add(drillDown.getKey(), drillDown.getValue());
+            }
+            query = drillDownQuery;
+        }
+        if (after != null) {
+            return executeSearch(query, metricsField, after, pageSize, fieldsToLoad, null, model,
+                    DEFAULT_TOTAL_HITS_THRESHOLD);
+        }
+        long startTime = System.nanoTime();
+        IndexSearcher indexSearcher = searcherManager.acquire();
         try {
-            hits = indexSearcher.search(query, topK);
-        } catch (IOException e) {
-            System.out.println("Error searching the index");
-            System.exit(1);
+            // The top hits and the hits of the facets are collected in the same pass
+            FacetsCollector facetsCollector = new FacetsCollector();
+            TopDocs hits = FacetsCollector.search(withModel(indexSearcher, model), query, pageSize, facetsCollector);
+            List<FacetResult> facets = countFacets(indexSearcher.getIndexReader(), facetsCollector);
+            long fetchStartTime = System.nanoTime();
+            Document[] documents = loadDocuments(indexSearcher, hits, fieldsToLoad);
+            long endTime = System.nanoTime();
+            Metrics.get().recordQuery(metricsField, endTime - startTime, hits.totalHits.value,
+                    endTime - fetchStartTime);
+            return new SearchResults(hits, documents, getIndexVersion(indexSearcher), facets);
+        } finally {
+            searcherManager.release(indexSearcher);
+        }
+    }
+
+    /**
+     * This method returns the top values of each facet dimension of the collected hits.
+     * @param reader The IndexReader of the search
+     * @param facetsCollector The hits
+     * @return One FacetResult for each dimension with hits
+     * @throws IOException
+     */
+    private List<FacetResult> countFacets(IndexReader reader, FacetsCollector facetsCollector) throws IOException {
+        SortedSetDocValuesReaderState state = getFacetState(reader);
+        if (state == null) {
+            return Collections.emptyList();
+        }
+        Facets facets = new SortedSetDocValuesFacetCounts(state, facetsCollector);
+        List<FacetResult> results = new ArrayList<>();
+        for (FacetResult result : facets.getAllDims(FACET_TOP_VALUES)) {
+            if (result != null) {
+                results.add(result);
+            }
         }
-        // Return the TopDocs object
-        return hits;
+        return results;
     }
 
     /**
-     * This method returns the document, based on the ScoreDoc object
-     * @param scoreDoc The ScoreDoc object, which contains the document id
-     * @return The Document object, which contains the document
+     * This method returns the ordinals of the facet values of an IndexReader, and builds them only once
+     * for each version of the index.
+     * @param reader The IndexReader of the search
+     * @return The SortedSetDocValuesReaderState object, or null if the index has no facets
+     * @throws IOException
      */
-    public Document getDocument(ScoreDoc scoreDoc) {
-        // Get the document from the index
-        Document doc = null;
+    private SortedSetDocValuesReaderState getFacetState(IndexReader reader) throws IOException {
+        FacetState current = facetState;
+        if (current != null && current.reader == reader) {
+            return current.state;
+        }
+        SortedSetDocValuesReaderState state;
         try {
-            doc = indexSearcher.doc(scoreDoc.doc);
-        } catch (IOException e) {
-            System.out.println("Error getting the document");
-            System.exit(1);
+            state = new DefaultSortedSetDocValuesReaderState(reader);
+        } catch (IllegalArgumentException e) {
+            // The index was built without facets
+            state = null;
+        }
+        // Two threads may build the state of the same reader at the same time, which is only wasted work
+        facetState = new FacetState(reader, state);
+        return state;
+    }
+
+    /**
+     * This method searches the index, and keeps only the hits whose singer has a hit of a query in another index,
+     * e.g. the songs whose lyrics mention a word, by the singers with a studio album in the 1990s. <br>
+     * The two indexes are joined on the normalized singer name (SINGER_KEY) in one query : the singer keys of the
+     * hits of the other index are collected from its doc values, and then they filter the hits of this index
+     * by their indexed terms. <br>
+     * The latency depends on the hits of the other query and the number of the distinct singers, and not on the
+     * number of the hits of this index, which are never loaded to be joined. <br>
+     * @param searchQuery The query for the searching of this index
+     * @param field The default field of searchQuery (SONGS_SINGER_NAME etc.)
+     * @param fromSearcher The Searcher of the other index
+     * @param fromQuery The query in the other index (e.g. albumsAlbumType:studio AND albumsAlbumYear:[1990 TO 1999])
+     * @param fromField The default field of fromQuery (ALBUMS_ALBUM_NAME etc.)
+     * @param after The cursor of the previous page (SearchResults.getCursor()), or null for the first page
+     * @param pageSize The number of the hits of the page
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @return The SearchResults object, which contains the hits of the page
+     * @throws IOException
+     * @throws ParseException
+     */
+    public SearchResults searchJoin(String searchQuery, String field, Searcher fromSearcher, String fromQuery,
+                                    String fromField, ScoreDoc after, int pageSize, Set<String> fieldsToLoad)
+            throws IOException, ParseException {
+        Query joinQuery;
+        IndexSearcher fromIndexSearcher = fromSearcher.searcherManager.acquire();
+        try {
+            // The keys of the other index are collected when the query is created,
+            // so the other IndexSearcher is not needed by the search
+            joinQuery = JoinUtil.createJoinQuery(LuceneConstants.SINGER_KEY, false, LuceneConstants.SINGER_KEY,
+                    fromSearcher.getQueryParser(fromField).parse(fromQuery), fromIndexSearcher, ScoreMode.None);
+        } finally {
+            fromSearcher.searcherManager.release(fromIndexSearcher);
+        }
+        // The join only filters the hits, so their scores are the scores of searchQuery
+        Query query = new BooleanQuery.Builder()
+                .add(getQueryParser(field).parse(searchQuery), BooleanClause.Occur.MUST)
+                .add(joinQuery, BooleanClause.Occur.FILTER)
+                .build();
+        return executeSearch(query, field + ">" + fromField, after, pageSize, fieldsToLoad, null);
+    }
+
+    /**
+     * This method searches the albums of a range of years, and returns a page of the hits. <br>
+     * The range is searched in the BKD tree of the album year, and the sorting reads the doc values
+     * of the album year, so neither the text of the years nor the stored fields are read. <br>
+     * @param searchQuery The query in the field, or an empty query for all the albums of the years
+     * @param field The field of the index, on which the query will be based on (ALBUMS_ALBUM_NAME etc.)
+     * @param fromYear The first year of the range
+     * @param toYear The last year of the range
+     * @param sortByYear True to sort the hits by year, false to sort them by score
+     * @param after The cursor of the previous page (SearchResults.getCursor()), or null for the first page
+     * @param pageSize The number of the hits of the page
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @return The SearchResults object, which contains the hits of the page
+     * @throws IOException
+     * @throws ParseException
+     */
+    public SearchResults searchYearRange(String searchQuery, String field, int fromYear, int toYear,
+                                         boolean sortByYear, ScoreDoc after, int pageSize,
+                                         Set<String> fieldsToLoad) throws IOException, ParseException {
+        Query yearRange = yearRangeQuery(fromYear, toYear);
+        Query query = yearRange;
+        if (!searchQuery.trim().isEmpty()) {
+            // The range only filters the hits, so it does not change their scores
+            query = new BooleanQuery.Builder()
+                    .add(getQueryParser(field).parse(searchQuery), BooleanClause.Occur.MUST)
+                    .add(yearRange, BooleanClause.Occur.FILTER)
+                    .build();
+        }
+        return executeSearch(query, LuceneConstants.ALBUMS_ALBUM_YEAR_VALUE, after, pageSize, fieldsToLoad,
+                sortByYear ? YEAR_SORT : null);
+    }
+
+    /**
+     * This method returns the query of the albums of a range of years.
+     * @param fromYear The first year of the range
+     * @param toYear The last year of the range
+     * @return The range query on the points of the album year
+     */
+    public static Query yearRangeQuery(int fromYear, int toYear) {
+        return IntPoint.newRangeQuery(LuceneConstants.ALBUMS_ALBUM_YEAR_VALUE, fromYear, toYear);
+    }
+
+    /**
+     * This method searches the lyrics lines, and returns the top songs with their best line. <br>
+     * The lines are child documents of their songs (SongLyricsIndexer.setIndexLines), so the hits of the lines
+     * are rolled up to their songs with a block-join query, and each song is scored by its best line. <br>
+     * The best line of each song is then searched only in the block of the song, and only the stored fields of
+     * the song and of the line are loaded, never the lyrics of the song. <br>
+     * If the lines are not indexed, there are no hits. <br>
+     * @param searchQuery The query in the lines (e.g. "love me" or "love AND tonight")
+     * @param topK The number of the top songs that will be returned
+     * @return The LineHit objects of the top songs
+     * @throws IOException
+     * @throws ParseException
+     */
+    public List<LineHit> searchLines(String searchQuery, int topK) throws IOException, ParseException {
+        Query lineQuery = getQueryParser(LuceneConstants.LYRICS_LINE_TEXT).parse(searchQuery);
+        Query songQuery = new ToParentBlockJoinQuery(lineQuery, SONG_PARENTS, ScoreMode.Max);
+        long startTime = System.nanoTime();
+        IndexSearcher indexSearcher = searcherManager.acquire();
+        try {
+            TopDocs hits = indexSearcher.search(songQuery, topK);
+            long fetchStartTime = System.nanoTime();
+            List<LineHit> lineHits = new ArrayList<>(hits.scoreDocs.length);
+            for (ScoreDoc hit : hits.scoreDocs) {
+                // The lines of the block of the song that match the query, the best one first
+                TopDocs bestLine = indexSearcher.search(
+                        new ParentChildrenBlockJoinQuery(SONG_PARENTS, lineQuery, hit.doc), 1);
+                if (bestLine.scoreDocs.length == 0) {
+                    continue;
+                }
+                Document song = indexSearcher.doc(hit.doc, LINE_HIT_SONG_FIELDS);
+                Document line = indexSearcher.doc(bestLine.scoreDocs[0].doc, LINE_HIT_LINE_FIELDS);
+                lineHits.add(new LineHit(song.get(LuceneConstants.SONGS_SONG_NAME),
+                        song.get(LuceneConstants.SONGS_SINGER_NAME), song.get(LuceneConstants.SONGS_SONG_HREF),
+                        line.getField(LuceneConstants.LYRICS_LINE_NUMBER).numericValue().intValue(),
+                        line.get(LuceneConstants.LYRICS_LINE_TEXT), hit.score));
+            }
+            long endTime = System.nanoTime();
+            Metrics.get().recordQuery(LuceneConstants.LYRICS_LINE_TEXT, endTime - startTime, hits.totalHits.value,
+                    endTime - fetchStartTime);
+            return lineHits;
+        } finally {
+            searcherManager.release(indexSearcher);
+        }
+    }
+
+    /**
+     * This method returns the similar songs of a song, from the table of the SimilarSongsJob. <br>
+     * The similar songs are read from the row of the song in the table, so there is no search of the lyrics,
+     * and their documents are found by their hrefs in the current version of the index. <br>
+     * The songs that were deleted since the table was computed are skipped. <br>
+     * @param songHref The href of the song
+     * @param similarSongs The table of the similar songs of the index
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @return The documents of the similar songs, the most similar first, or none if the song is not in the table
+     * @throws IOException
+     */
+    public Document[] similarSongs(String songHref, SimilarSongs similarSongs, Set<String> fieldsToLoad)
+            throws IOException {
+        long startTime = System.nanoTime();
+        String[] similarHrefs = similarSongs.get(songHref);
+        IndexSearcher indexSearcher = searcherManager.acquire();
+        try {
+            long fetchStartTime = System.nanoTime();
+            List<Document> documents = new ArrayList<>(similarHrefs.length);
+            for (String similarHref : similarHrefs) {
+                // The document of the song, without the lines of its block, which have the same href
+                Query songQuery = new BooleanQuery.Builder()
+                        .add(new TermQuery(new Term(LuceneConstants.SONGS_SONG_HREF, similarHref)),
+                                BooleanClause.Occur.FILTER)
+                        .add(SONGS, BooleanClause.Occur.FILTER)
+                        .build();
+                TopDocs song = indexSearcher.search(songQuery, 1);
+                if (song.scoreDocs.length > 0) {
+                    documents.add(fieldsToLoad == null ? indexSearcher.doc(song.scoreDocs[0].doc)
+                            : indexSearcher.doc(song.scoreDocs[0].doc, fieldsToLoad));
+                }
+            }
+            long endTime = System.nanoTime();
+            Metrics.get().recordQuery(SimilarSongsJob.SIMILAR, endTime - startTime, documents.size(),
+                    endTime - fetchStartTime);
+            return documents.toArray(new Document[0]);
+        } finally {
+            searcherManager.release(indexSearcher);
+        }
+    }
+
+    /**
+     * This method searches the index with a parsed query, and loads the documents of the hits
+     * @param query The query
+     * @param metricsField The field of the query in the metrics
+     * @param after The last hit of the previous page, or null for the first page
+     * @param topK The number of the top documents that will be returned
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @param sort The sort of the hits, or null to sort them by score
+     * @return The SearchResults object, which contains the topK documents
+     * @throws IOException
+     */
+    private SearchResults executeSearch(Query query, String metricsField, ScoreDoc after, int topK,
+                                        Set<String> fieldsToLoad, Sort sort) throws IOException {
+        return executeSearch(query, metricsField, after, topK, fieldsToLoad, sort, RankingModel.BM25,
+                DEFAULT_TOTAL_HITS_THRESHOLD);
+    }
+
+    /**
+     * This method searches the index with a parsed query, like executeSearch, ranked by a ranking model. <br>
+     * @param model The ranking model of the hits
+     * @param totalHitsThreshold The number of the hits that are counted exactly, when the hits are sorted by score
+     */
+    private SearchResults executeSearch(Query query, String metricsField, ScoreDoc after, int topK,
+                                        Set<String> fieldsToLoad, Sort sort, RankingModel model,
+                                        int totalHitsThreshold) throws IOException {
+        long startTime = System.nanoTime();
+        // Search the index, and load the documents from the same IndexSearcher
+        IndexSearcher indexSearcher = searcherManager.acquire();
+        try {
+            TopDocs hits;
+            if (sort == null) {
+                // Above the threshold, the collector skips the documents that can not enter the top hits
+                TopScoreDocCollector collector = TopScoreDocCollector.create(topK, after, totalHitsThreshold);
+                withModel(indexSearcher, model).search(query, collector);
+                hits = collector.topDocs();
+            } else {
+                // The hits of a sorted search are FieldDoc objects, so their cursor is also a FieldDoc
+                hits = indexSearcher.searchAfter(after, query, topK, sort, true);
+            }
+            long fetchStartTime = System.nanoTime();
+            Document[] documents = loadDocuments(indexSearcher, hits, fieldsToLoad);
+            long endTime = System.nanoTime();
+            Metrics.get().recordQuery(metricsField, endTime - startTime, hits.totalHits.value,
+                    endTime - fetchStartTime);
+            return new SearchResults(hits, documents, getIndexVersion(indexSearcher));
+        } finally {
+            searcherManager.release(indexSearcher);
+        }
+    }
+
+    /**
+     * This method returns an IndexSearcher of the same IndexReader, with the similarity of a ranking model. <br>
+     * An IndexSearcher is cheap to create, so a search with another model does not reopen the index.
+     * @param indexSearcher The IndexSearcher of the SearcherManager, whose similarity is BM25
+     * @param model The ranking model
+     * @return The IndexSearcher of the model
+     */
+    private static IndexSearcher withModel(IndexSearcher indexSearcher, RankingModel model) {
+        if (indexSearcher.getSimilarity().getClass() == model.getSimilarity().getClass()) {
+            return indexSearcher;
+        }
+        IndexSearcher modelSearcher = new IndexSearcher(indexSearcher.getIndexReader());
+        modelSearcher.setSimilarity(model.getSimilarity());
+        return modelSearcher;
+    }
+
+    /**
+     * This method loads the documents of the hits, from the IndexSearcher of the search.
+     * @param indexSearcher The IndexSearcher of the search
+     * @param hits The hits
+     * @param fieldsToLoad The stored fields to be loaded, or null for all the stored fields
+     * @return The documents of the hits
+     * @throws IOException
+     */
+    private static Document[] loadDocuments(IndexSearcher indexSearcher, TopDocs hits, Set<String> fieldsToLoad)
+            throws IOException {
+        Document[] documents = new Document[hits.scoreDocs.length];
+        for (int i = 0; i < hits.scoreDocs.length; i++) {
+            // Only the requested fields are decompressed and loaded
+            documents[i] = fieldsToLoad == null ? indexSearcher.doc(hits.scoreDocs[i].doc)
+                    : indexSearcher.doc(hits.scoreDocs[i].doc, fieldsToLoad);
+        }
+        return documents;
+    }
+
+    /**
+     * This method returns the QueryParser of the current thread for a field
+     * @param field The default field of the QueryParser
+     * @return The QueryParser object
+     */
+    private QueryParser getQueryParser(String field) {
+        return queryParsers.get().computeIfAbsent(field, f -> new YearQueryParser(f, analyzer));
+    }
+
+    /**
+     * The facet ordinals of an IndexReader.
+     */
+    private static class FacetState {
+        private final IndexReader reader;
+        private final SortedSetDocValuesReaderState state;
+
+        private FacetState(IndexReader reader, SortedSetDocValuesReaderState state) {
+            this.reader = reader;
+            this.state = state;
+        }
+    }
+
+    /**
+     * A QueryParser that searches the ranges of the album year (e.g. albumsAlbumYear:[1990 TO 1999])
+     * in the points of the year, instead of the terms of its text.
+     */
+    private static class YearQueryParser extends QueryParser {
+        private YearQueryParser(String field, Analyzer analyzer) {
+            super(field, analyzer);
+        }
+
+        @Override
+        protected Query getRangeQuery(String field, String part1, String part2, boolean startInclusive,
+                                      boolean endInclusive) throws ParseException {
+            if (!LuceneConstants.ALBUMS_ALBUM_YEAR.equals(field)
+                    && !LuceneConstants.ALBUMS_ALBUM_YEAR_VALUE.equals(field)) {
+                return super.getRangeQuery(field, part1, part2, startInclusive, endInclusive);
+            }
+            try {
+                // An open end of the range is null ("*")
+                int fromYear = part1 == null ? Integer.MIN_VALUE
+                        : startInclusive ? Integer.parseInt(part1) : Integer.parseInt(part1) + 1;
+                int toYear = part2 == null ? Integer.MAX_VALUE
+                        : endInclusive ? Integer.parseInt(part2) : Integer.parseInt(part2) - 1;
+                return yearRangeQuery(fromYear, toYear);
+            } catch (NumberFormatException e) {
+                // Not a range of years, so it is searched in the text
+                return super.getRangeQuery(field, part1, part2, startInclusive, endInclusive);
+            }
         }
-        // Return the Document object
-        return doc;
     }
 
     /**
-     * This method returns the total number of documents of the index
+     * This method returns the version of the index that the searches currently see. <br>
+     * The version changes every time that a new commit of the index is picked up by a refresh.
+     * @return The version of the current IndexReader
+     * @throws IOException
+     */
+    public long getIndexVersion() throws IOException {
+        IndexSearcher indexSearcher = searcherManager.acquire();
+        try {
+            return getIndexVersion(indexSearcher);
+        } finally {
+            searcherManager.release(indexSearcher);
+        }
+    }
+
+    private static long getIndexVersion(IndexSearcher indexSearcher) {
+        // The SearcherManager always opens DirectoryReader objects
+        return ((DirectoryReader) indexSearcher.getIndexReader()).getVersion();
+    }
+
+    /**
+     * This method returns the total number of documents of the index. <br>
+     * In the songs-lyrics index, only the songs are counted, not the documents of their lyrics lines. <br>
      * @return The total number of documents of the index
+     * @throws IOException
      */
-    public int getTotalNumberOfDocuments() {
-        // Return the total number of documents of the index
-        return reader.numDocs();
+    public int getTotalNumberOfDocuments() throws IOException {
+        IndexSearcher indexSearcher = searcherManager.acquire();
+        try {
+            // The albums have no type, so an index without songs counts all its documents
+            int songs = indexSearcher.count(SONGS);
+            return songs > 0 ? songs : indexSearcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(indexSearcher);
+        }
+    }
+
+    /**
+     * This method stops the refreshing, and closes the SearcherManager and the directory of the index,
+     * if they were opened by this Searcher
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (refresher == null) {
+            return;
+        }
+        refresher.shutdownNow();
+        searcherManager.close();
+        indexDirectory.close();
     }
 }
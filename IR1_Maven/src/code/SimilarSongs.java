@@ -0,0 +1,152 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * SimilarSongs.java <br>
+ * This class is the table of the similar songs of each song of the songs-lyrics index, which is computed
+ * offline by the SimilarSongsJob, and stored in the SIMILAR_SONGS_FILE of the directory of the index. <br>
+ * The file has a header (the magic number, the format, the number of the songs and the number of the similar
+ * songs of each song), then a row of topN song numbers for each song, and then the hrefs of the songs, sorted,
+ * so the number of a song is the place of its href. <br>
+ * The songs are keyed by their href, not by their document ids, so the table stays valid when the index changes
+ * (e.g. the scraped lyrics of the live indexer, or an incremental update) : a new song has no similar songs,
+ * and a deleted song is skipped by the lookup of its documents, until the table is computed again. <br>
+ * The rows are memory-mapped, so only the rows that are read are loaded from the disk. <br>
+ * @see SimilarSongsJob
+ * @see Searcher#similarSongs(String, SimilarSongs, java.util.Set)
+ */
+public class SimilarSongs {
+    // The file of the table, in the directory of the index
+    public static final String SIMILAR_SONGS_FILE = "similar-songs.bin";
+    // The song number of an empty place of a row
+    public static final int NO_SONG = -1;
+    private static final int MAGIC = 0x534D5354;
+    private static final int FORMAT = 2;
+    // magic, format, number of songs, topN
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4;
+
+    private final String[] songHrefs;
+    private final int topN;
+    private final IntBuffer rows;
+
+    private SimilarSongs(String[] songHrefs, int topN, IntBuffer rows) {
+        this.songHrefs = songHrefs;
+        this.topN = topN;
+        this.rows = rows;
+    }
+
+    /**
+     * This method writes the table of the similar songs in the directory of an index. <br>
+     * The file is written next to its final name and then renamed, so a reader never sees half a file. <br>
+     * @param indexDir The directory of the index
+     * @param topN The number of the similar songs of each song
+     * @param songHrefs The hrefs of the songs, sorted and without duplicates
+     * @param table The topN song numbers (the places of their hrefs) of each song (NO_SONG for an empty place),
+     * one row after the other, in the order of the hrefs
+     * @throws IOException
+     */
+    public static void write(String indexDir, int topN, String[] songHrefs, int[] table) throws IOException {
+        if (table.length != songHrefs.length * topN) {
+            throw new IllegalArgumentException("The table must have a row of " + topN + " songs for each song");
+        }
+        Path file = Paths.get(indexDir, SIMILAR_SONGS_FILE);
+        Path tempFile = Paths.get(indexDir, SIMILAR_SONGS_FILE + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT);
+            output.writeInt(songHrefs.length);
+            output.writeInt(topN);
+            for (int song : table) {
+                output.writeInt(song);
+            }
+            for (String songHref : songHrefs) {
+                byte[] bytes = songHref.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * This method opens the table of the similar songs of an index. <br>
+     * The hrefs of the songs are read in memory, and the rows stay memory-mapped. <br>
+     * @param indexDir The directory of the index
+     * @return The SimilarSongs object
+     * @throws IOException If the index has no table, or the file is not a table of similar songs
+     */
+    public static SimilarSongs open(String indexDir) throws IOException {
+        Path file = Paths.get(indexDir, SIMILAR_SONGS_FILE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                throw new IOException("Not a similar songs file : " + file);
+            }
+            int songCount = buffer.getInt();
+            int topN = buffer.getInt();
+            long rowsEnd = HEADER_BYTES + 4L * songCount * topN;
+            if (songCount < 0 || topN <= 0 || buffer.capacity() < rowsEnd) {
+                throw new IOException("Truncated similar songs file : " + file);
+            }
+            ByteBuffer body = buffer.slice();
+            body.limit((int) (rowsEnd - HEADER_BYTES));
+            IntBuffer rows = body.asIntBuffer();
+            buffer.position((int) rowsEnd);
+            String[] songHrefs = new String[songCount];
+            try {
+                for (int i = 0; i < songCount; i++) {
+                    byte[] bytes = new byte[buffer.getInt()];
+                    buffer.get(bytes);
+                    songHrefs[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Truncated similar songs file : " + file, e);
+            }
+            return new SimilarSongs(songHrefs, topN, rows);
+        }
+    }
+
+    public int getSongCount() {
+        return songHrefs.length;
+    }
+
+    public int getTopN() {
+        return topN;
+    }
+
+    /**
+     * This method returns the similar songs of a song, the most similar first.
+     * @param songHref The href of the song
+     * @return The hrefs of the similar songs, without the empty places, or none if the song is not in the table
+     */
+    public String[] get(String songHref) {
+        int song = Arrays.binarySearch(songHrefs, songHref);
+        if (song < 0) {
+            return new String[0];
+        }
+        String[] similar = new String[topN];
+        int count = 0;
+        for (int i = 0; i < topN; i++) {
+            // The absolute get of the IntBuffer is thread-safe, since it does not move the position
+            int similarSong = rows.get(song * topN + i);
+            if (similarSong == NO_SONG) {
+                break;
+            }
+            similar[count++] = songHrefs[similarSong];
+        }
+        return Arrays.copyOf(similar, count);
+    }
+}
@@ -0,0 +1,263 @@
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiBits;
+import org.apache.lucene.index.MultiDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SimilarSongsJob.java <br>
+ * This class is the offline job that computes the similar songs of each song of the songs-lyrics index,
+ * and stores them in the SimilarSongs table of the index. <br>
+ * The lyrics must be indexed with their term vectors (SongLyricsIndexer.setStoreTermVectors). The query of a song
+ * is made of the MAX_QUERY_TERMS terms of its term vector with the highest TF-IDF weights, like MoreLikeThis,
+ * so the lyrics are not analyzed again. <br>
+ * The songs are split in chunks of CHUNK_SIZE songs, which are searched by a pool of threads. <br>
+ * The table is keyed by the hrefs of the songs, and has one row for each song (not for each document, since
+ * the lyrics lines are documents too), so it does not depend on the document ids of a version of the index. <br>
+ * Usage : SimilarSongsJob indexDir [topN] [threads] <br>
+ * @see SimilarSongs
+ */
+public class SimilarSongsJob {
+    // The field of the lookups of the similar songs in the metrics
+    public static final String SIMILAR = "similar";
+    // The default number of the similar songs of each song
+    public static final int DEFAULT_TOP_N = 10;
+    // The number of the terms of the query of a song
+    public static final int MAX_QUERY_TERMS = 25;
+    // The terms of only one song can not find another song, so they are not in the queries
+    private static final int MIN_DOC_FREQ = 2;
+    // The number of the songs that a thread takes at a time
+    private static final int CHUNK_SIZE = 1024;
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage : SimilarSongsJob indexDir [topN] [threads]");
+            System.exit(1);
+        }
+        int topN = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TOP_N;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try {
+            System.out.println(run(args[0], topN, threads));
+        } catch (IOException e) {
+            System.err.println("Error computing the similar songs of the index " + args[0] + " : " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * This method computes the similar songs of each song of the last commit of an index, and stores the
+     * table in the directory of the index. <br>
+     * Only the songs have a row (they are the documents with the doc values of the href), and the songs that
+     * have no term vectors have no similar songs.
+     * @param indexDir The directory of the songs-lyrics index
+     * @param topN The number of the similar songs of each song
+     * @param threads The number of the threads of the searches
+     * @return The report of the job
+     * @throws IOException
+     */
+    public static String run(String indexDir, int topN, int threads) throws IOException {
+        if (topN < 1 || threads < 1) {
+            throw new IllegalArgumentException("The topN and the threads must be at least 1");
+        }
+        long startTime = System.nanoTime();
+        try (Directory directory = FSDirectory.open(Paths.get(indexDir));
+             DirectoryReader reader = DirectoryReader.open(directory)) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            String[] songHrefs = songHrefs(reader);
+            int songCount = songHrefs.length;
+            // The number of the song of each document, or NO_SONG for the documents that are not songs
+            int[] docSongs = new int[reader.maxDoc()];
+            Arrays.fill(docSongs, SimilarSongs.NO_SONG);
+            // The document of each song
+            int[] songDocs = new int[songCount];
+            SortedDocValues hrefValues = MultiDocValues.getSortedValues(reader, LuceneConstants.SONGS_SONG_HREF);
+            Bits liveDocs = MultiBits.getLiveDocs(reader);
+            for (int doc = hrefValues == null ? DocIdSetIterator.NO_MORE_DOCS : hrefValues.nextDoc();
+                 doc != DocIdSetIterator.NO_MORE_DOCS; doc = hrefValues.nextDoc()) {
+                if (liveDocs == null || liveDocs.get(doc)) {
+                    int song = Arrays.binarySearch(songHrefs, hrefValues.binaryValue().utf8ToString());
+                    docSongs[doc] = song;
+                    songDocs[song] = doc;
+                }
+            }
+            int[] table = new int[songCount * topN];
+            Arrays.fill(table, SimilarSongs.NO_SONG);
+            AtomicInteger nextChunk = new AtomicInteger();
+            AtomicInteger songs = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<Void>> workers = new ArrayList<>(threads);
+                for (int i = 0; i < threads; i++) {
+                    workers.add(executor.submit(() -> {
+                        for (int start = nextChunk.getAndAdd(CHUNK_SIZE); start < songCount;
+                             start = nextChunk.getAndAdd(CHUNK_SIZE)) {
+                            for (int song = start; song < Math.min(start + CHUNK_SIZE, songCount); song++) {
+                                if (computeRow(searcher, song, songDocs[song], docSongs, topN, table)) {
+                                    songs.incrementAndGet();
+                                }
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<Void> worker : workers) {
+                    worker.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("The similar songs job was interrupted");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+            // The rows of the workers are visible here, since their futures are completed
+            SimilarSongs.write(indexDir, topN, songHrefs, table);
+            double seconds = Math.max((System.nanoTime() - startTime) / 1e9, 1e-9);
+            return String.format(Locale.ROOT, "Similar songs : top %d of %d songs with %d threads in %.1f s, "
+                    + "%.0f songs/sec, %d KB table", topN, songs.get(), threads, seconds, songs.get() / seconds,
+                    (4L * table.length) / 1024);
+        }
+    }
+
+    /**
+     * This method returns the hrefs of the songs of an index, sorted, which are the keys of the table.
+     * @param reader The IndexReader of the index
+     * @return The hrefs of the songs that are not deleted
+     * @throws IOException
+     */
+    private static String[] songHrefs(IndexReader reader) throws IOException {
+        SortedDocValues hrefValues = MultiDocValues.getSortedValues(reader, LuceneConstants.SONGS_SONG_HREF);
+        if (hrefValues == null) {
+            return new String[0];
+        }
+        Bits liveDocs = MultiBits.getLiveDocs(reader);
+        // The values of the SortedDocValues are sorted, but the deleted songs must not have a row
+        TreeSet<String> songHrefs = new TreeSet<>();
+        for (int doc = hrefValues.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = hrefValues.nextDoc()) {
+            if (liveDocs == null || liveDocs.get(doc)) {
+                songHrefs.add(hrefValues.binaryValue().utf8ToString());
+            }
+        }
+        return songHrefs.toArray(new String[0]);
+    }
+
+    /**
+     * This method computes the row of the table of a song.
+     * @param searcher The IndexSearcher of the index
+     * @param song The number of the song in the table
+     * @param doc The document id of the song
+     * @param docSongs The number of the song of each document
+     * @param topN The number of the similar songs
+     * @param table The table of the similar songs
+     * @return True if the song has term vectors
+     * @throws IOException
+     */
+    private static boolean computeRow(IndexSearcher searcher, int song, int doc, int[] docSongs, int topN,
+                                      int[] table) throws IOException {
+        Terms termVector = searcher.getIndexReader().getTermVector(doc, LuceneConstants.LYRICS_LYRICS_TEXT);
+        if (termVector == null) {
+            return false;
+        }
+        Query query = likeQuery(searcher.getIndexReader(), termVector);
+        if (query == null) {
+            return true;
+        }
+        // One more hit than topN, since the song itself is usually the first hit
+        TopScoreDocCollector collector = TopScoreDocCollector.create(topN + 1, topN + 1);
+        searcher.search(query, collector);
+        int count = 0;
+        for (ScoreDoc hit : collector.topDocs().scoreDocs) {
+            if (hit.doc != doc && docSongs[hit.doc] != SimilarSongs.NO_SONG && count < topN) {
+                table[song * topN + count++] = docSongs[hit.doc];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method returns the query of the songs like a song, from the term vector of its lyrics. <br>
+     * The weight of a term is its frequency in the song multiplied by its idf, and the boosts of the terms of
+     * the query are their weights divided by the highest weight.
+     * @param reader The IndexReader of the index
+     * @param termVector The term vector of the lyrics of the song
+     * @return The query, or null if no term of the song is in another song
+     * @throws IOException
+     */
+    private static Query likeQuery(IndexReader reader, Terms termVector) throws IOException {
+        int numDocs = reader.numDocs();
+        // The terms with the highest weights, the lowest weight at the head
+        PriorityQueue<WeightedTerm> terms = new PriorityQueue<>(MAX_QUERY_TERMS + 1,
+                (a, b) -> Float.compare(a.weight, b.weight));
+        TermsEnum termsEnum = termVector.iterator();
+        for (BytesRef text = termsEnum.next(); text != null; text = termsEnum.next()) {
+            Term term = new Term(LuceneConstants.LYRICS_LYRICS_TEXT, BytesRef.deepCopyOf(text));
+            int docFreq = reader.docFreq(term);
+            if (docFreq < MIN_DOC_FREQ) {
+                continue;
+            }
+            // The totalTermFreq of a term vector is the frequency of the term in its document
+            float idf = (float) (Math.log((numDocs + 1.0) / (docFreq + 1.0)) + 1.0);
+            terms.add(new WeightedTerm(term, termsEnum.totalTermFreq() * idf));
+            if (terms.size() > MAX_QUERY_TERMS) {
+                terms.poll();
+            }
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+        float maxWeight = 0;
+        for (WeightedTerm term : terms) {
+            maxWeight = Math.max(maxWeight, term.weight);
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (WeightedTerm term : terms) {
+            query.add(new BoostQuery(new TermQuery(term.term), term.weight / maxWeight), BooleanClause.Occur.SHOULD);
+        }
+        return query.build();
+    }
+
+    /**
+     * A term of the query of a song, and its TF-IDF weight.
+     */
+    private static class WeightedTerm {
+        private final Term term;
+        private final float weight;
+
+        private WeightedTerm(Term term, float weight) {
+            this.term = term;
+            this.weight = weight;
+        }
+    }
+}
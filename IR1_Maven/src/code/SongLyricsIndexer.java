@@ -1,69 +1,248 @@
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * This class contains the code for the creation of the index of the song and lyrics. <br>
  *
  */
 public class SongLyricsIndexer extends MyIndexer {
+    // The type of the lyrics field with the term vectors, for the similar songs (SimilarSongsJob)
+    private static final FieldType LYRICS_WITH_TERM_VECTORS = lyricsWithTermVectors();
+    // Whether the song name, the singer name and the lyrics are also indexed together in the SONGS_ALL_TEXT field
+    private boolean indexAllText;
+    // Whether each lyrics line is also indexed as a child document, in a block with the document of its song
+    private boolean indexLines;
+    // The finder of the near-duplicate lyrics, or null if the duplicates are not found
+    private NearDuplicates nearDuplicates;
+    // Whether the term vectors of the lyrics are stored
+    private boolean storeTermVectors;
+
     public SongLyricsIndexer(String indexDir){
         super(indexDir);
     }
 
+    public SongLyricsIndexer(String indexDir, IndexerSettings settings){
+        super(indexDir, settings);
+    }
+
+    /**
+     * This method sets whether the song name, the singer name and the lyrics are also indexed
+     * together in the catch-all SONGS_ALL_TEXT field, for the search in all the fields with one field. <br>
+     * It must be set before the documents are created. <br>
+     * @param indexAllText True to index the catch-all field
+     */
+    public void setIndexAllText(boolean indexAllText) {
+        this.indexAllText = indexAllText;
+    }
+
+    /**
+     * This method sets whether each line of the lyrics is also indexed as a child document of its song,
+     * for the search of the lines (Searcher.searchLines). <br>
+     * The song and its lines are added as one block, with the song last, so the hits of the lines are rolled
+     * up to their songs with a block-join query. <br>
+     * It must be set before the documents are created. <br>
+     * @param indexLines True to index the lines
+     */
+    public void setIndexLines(boolean indexLines) {
+        this.indexLines = indexLines;
+    }
+
+    /**
+     * This method sets the finder of the near-duplicate lyrics. <br>
+     * Each song is assigned to a cluster of near-duplicates before its document is created, and the id of the
+     * cluster is indexed as doc values, so the duplicates can be collapsed in the hits (Searcher.searchCollapsed). <br>
+     * It must be set before the documents are created. <br>
+     * @param nearDuplicates The NearDuplicates object, or null to not find the duplicates
+     */
+    public void setNearDuplicates(NearDuplicates nearDuplicates) {
+        this.nearDuplicates = nearDuplicates;
+    }
+
+    /**
+     * This method sets whether the term vectors of the lyrics are stored. <br>
+     * The term vectors are read by the SimilarSongsJob, which computes the similar songs of each song
+     * from its terms, without the analysis of the lyrics again. <br>
+     * It must be set before the documents are created. <br>
+     * @param storeTermVectors True to store the term vectors
+     */
+    public void setStoreTermVectors(boolean storeTermVectors) {
+        this.storeTermVectors = storeTermVectors;
+    }
+
     /**
      * This method creates the index of the song and lyrics. <br>
      * It uses the songs and lyrics arrays, that are generated from the
      * createSongsObjects and createLyricsObjects methods from CSVFileFilter class . <br>
      * @param songs The array of the songs
      * @param lyrics The array of the lyrics
+     * @return The JoinReport with the matched songs, the unmatched songs and the orphan lyrics
      * @throws IOException
      * @see CSVFileFilter
      * @see CSVFileFilter#createSongsObjects(String fileName, int numberOfRecords)
      * @see CSVFileFilter#createLyricsObjects(String fileName, int numberOfLyrics)
+     * @see #indexSongLyrics(Iterator, Iterator)
      */
-    public void indexSongLyricsFile(Songs[] songs, Lyrics[] lyrics)  throws IOException {
-        // For each song:
-        // 1. Find the lyrics of the song in the lyrics
-        // 2. Create a document and add it to the index
-        for (Songs song : songs) {
-            String songName = song.getSongName();
-            String singerName = song.getSingerName();
-            LinkedList<String> lyricsOfSong = null;
-            for (Lyrics lyric : lyrics) {
-                if (lyric.getSongName().equals(songName) &&
-                        lyric.getArtistName().equals(singerName)) {
-                    lyricsOfSong = lyric.getLyricsList();
-                    break;
-                }
-            }
-            // Check if lyrics were not found
-            if (lyricsOfSong == null) {
-                // lyrics.csv file does not always contain the same artist name for the same song
-                // So, if the lyrics were not found, continue to the next song
-                // Additionally since the number of records in the songs.csv file is  26041
-                // and the number of records in the lyrics.csv file is  25742,
-                // some songs will not be found in the lyrics.csv file
-                continue;
+    public JoinReport indexSongLyricsFile(Songs[] songs, Lyrics[] lyrics)  throws IOException {
+        return indexSongLyrics(Arrays.asList(songs).iterator(), Arrays.asList(lyrics).iterator());
+    }
+
+    /**
+     * This method creates the index of the song and lyrics, from the streams of the songs and the lyrics. <br>
+     * The songs are put in a hash table keyed on (singer name, song name), and then the lyrics
+     * are streamed one at a time, so that each lyrics record finds its songs with a single lookup. <br>
+     * Only the songs (which are small) are kept in memory, the lyrics are never kept in memory. <br>
+     * Each song is matched with the first lyrics record that has the same key. <br>
+     * @param songs The stream of the songs
+     * @param lyrics The stream of the lyrics
+     * @return The JoinReport with the matched songs, the unmatched songs and the orphan lyrics
+     * @throws IOException
+     * @see CSVFileFilter#openSongs(String fileName)
+     * @see CSVFileFilter#openLyrics(String fileName)
+     */
+    public JoinReport indexSongLyrics(Iterator<Songs> songs, Iterator<Lyrics> lyrics) throws IOException {
+        // Create a document for each matched song and submit it to the indexing pipeline
+        IndexingPipeline pipeline = startPipeline();
+        JoinReport joinReport;
+        try {
+            joinReport = timedJoin(songs, lyrics, (song, lyric) -> {
+                addSongSuggestions(song);
+                String lyricsText = lyric.getLyricsText();
+                Long clusterId = clusterOf(song, lyricsText);
+                pipeline.submitBlock(null, buildDocument(() -> getSongLyricsBlock(song.getSongName(),
+                        song.getSingerName(), song.getSongHref(), lyricsText, clusterId)));
+            });
+        } catch (IOException | RuntimeException e) {
+            // Stop the workers, e.g. when the indexing was cancelled
+            pipeline.abort();
+            throw e;
+        }
+        pipeline.finish();
+        printNearDuplicates();
+        return joinReport;
+    }
+
+    /**
+     * This method updates an existing index of the song and lyrics, from the streams of the songs and the lyrics. <br>
+     * Only the songs that were added, changed or removed since the last update are written to the index. <br>
+     * The songs are identified by their href, which is indexed as a unique key. <br>
+     * @param songs The stream of the songs
+     * @param lyrics The stream of the lyrics
+     * @return The IncrementalUpdate, with the number of the added, changed, unchanged and deleted songs
+     * @throws IOException
+     * @see IncrementalUpdate
+     */
+    public IncrementalUpdate updateSongLyrics(Iterator<Songs> songs, Iterator<Lyrics> lyrics) throws IOException {
+        IncrementalUpdate update = startIncrementalUpdate(LuceneConstants.SONGS_SONG_HREF);
+        JoinReport joinReport;
+        try {
+            joinReport = timedJoin(songs, lyrics, (song, lyric) -> {
+                String lyricsText = lyric.getLyricsText();
+                addSongSuggestions(song);
+                // The cluster is part of the hash, so a song is updated when another song changes its cluster
+                Long clusterId = clusterOf(song, lyricsText);
+                update.applyBlock(song.getSongHref(),
+                        songHash(song.getSongName(), song.getSingerName(), lyricsText, clusterId),
+                        () -> buildDocument(() -> getSongLyricsBlock(song.getSongName(), song.getSingerName(),
+                                song.getSongHref(), lyricsText, clusterId)));
+            });
+        } catch (IOException | RuntimeException e) {
+            update.abort();
+            throw e;
+        }
+        update.finish();
+        System.out.println(joinReport);
+        printNearDuplicates();
+        return update;
+    }
+
+    /**
+     * This method joins the songs with their lyrics, and records the time of the reading of the records as the
+     * PARSE stage of the metrics, and the rest of the time of the join, without the time of the handler,
+     * as the JOIN stage. <br>
+     * @param songs The stream of the songs
+     * @param lyrics The stream of the lyrics
+     * @param matchHandler The handler of each matched song
+     * @return The JoinReport of the join
+     * @throws IOException
+     */
+    private static JoinReport timedJoin(Iterator<Songs> songs, Iterator<Lyrics> lyrics,
+                                        SongLyricsJoin.MatchHandler matchHandler) throws IOException {
+        Metrics metrics = Metrics.get();
+        Metrics.TimedIterator<Songs> timedSongs = metrics.timeParse(songs);
+        Metrics.TimedIterator<Lyrics> timedLyrics = metrics.timeParse(lyrics);
+        long[] handlerNanos = new long[1];
+        long startTime = System.nanoTime();
+        JoinReport joinReport = SongLyricsJoin.join(timedSongs, timedLyrics, (song, lyric) -> {
+            long handlerStartTime = System.nanoTime();
+            try {
+                matchHandler.matched(song, lyric);
+            } finally {
+                handlerNanos[0] += System.nanoTime() - handlerStartTime;
             }
-            Document songDocument = getSongLyricsDocument(songName, singerName, lyricsOfSong);
-            writer.addDocument(songDocument);
+        });
+        metrics.recordStage(Metrics.Stage.JOIN, System.nanoTime() - startTime
+                - timedSongs.getNanos() - timedLyrics.getNanos() - handlerNanos[0]);
+        return joinReport;
+    }
+
+    private void addSongSuggestions(Songs song) {
+        addSuggestion(song.getSongName());
+        addSuggestion(song.getSingerName());
+    }
+
+    /**
+     * This method returns the id of the cluster of the near-duplicates of a song, which must be called for
+     * all the songs, in the order of the files, also the unchanged songs of an incremental update. <br>
+     * @return The id of the cluster, or null if the duplicates are not found
+     */
+    private Long clusterOf(Songs song, String lyricsText) {
+        return nearDuplicates == null ? null : nearDuplicates.assign(song.getSongHref(), lyricsText);
+    }
+
+    private void printNearDuplicates() {
+        if (nearDuplicates != null) {
+            System.out.println(nearDuplicates.report());
         }
+    }
+
+    private static String songHash(String songName, String singerName, String lyricsText) {
+        return contentHash(songName, singerName, lyricsText);
+    }
 
+    private static String songHash(String songName, String singerName, String lyricsText, Long clusterId) {
+        return clusterId == null ? songHash(songName, singerName, lyricsText)
+                : contentHash(songName, singerName, lyricsText, Long.toString(clusterId));
     }
 
     /**
      * This method creates a document for the song and the lyrics. <br>
      * @param songName
      * @param singerName
-     * @param lyricsOfSong
+     * @param songHref The href of the song, which is the unique key of the document
+     * @param lyricsText
+     * @param clusterId The id of the cluster of the near-duplicates of the song, or null if the duplicates
+     * are not found
      * @return The document(Document) for the song and the lyrics, that contains
-     * the song name, the singer name and the lyrics text
+     * the song name, the singer name, the song href and the lyrics text
      */
-    private Document getSongLyricsDocument(String songName, String singerName, LinkedList<String> lyricsOfSong) {
+    protected Document getSongLyricsDocument(String songName, String singerName, String songHref, String lyricsText,
+                                             Long clusterId) {
         // Create a document for the song and the lyrics
         Document document = new Document();
         // Add the song name to the document
@@ -73,15 +252,100 @@ public class SongLyricsIndexer extends MyIndexer {
         Field singerNameField = new TextField(LuceneConstants.SONGS_SINGER_NAME, singerName, Field.Store.YES);
         document.add(singerNameField);
         // Add the lyrics to the document
-        StringBuilder lyricsStringBuilder = new StringBuilder();
-        for (String line : lyricsOfSong) {
-            lyricsStringBuilder.append(line).append("\n");
+        Field lyricsField = storeTermVectors
+                ? new Field(LuceneConstants.LYRICS_LYRICS_TEXT, lyricsText, LYRICS_WITH_TERM_VECTORS)
+                : new TextField(LuceneConstants.LYRICS_LYRICS_TEXT, lyricsText, Field.Store.YES);
+        document.add(lyricsField);
+        // Add the catch-all field, which is only indexed, since its text is already stored in the other fields
+        if (indexAllText) {
+            document.add(new TextField(LuceneConstants.SONGS_ALL_TEXT,
+                    songName + "\n" + singerName + "\n" + lyricsText, Field.Store.NO));
+        }
+        // Add the song href, which is the unique key of the document, and the content hash, for the incremental update
+        document.add(new StringField(LuceneConstants.SONGS_SONG_HREF, songHref, Field.Store.YES));
+        document.add(new SortedDocValuesField(LuceneConstants.SONGS_SONG_HREF, new BytesRef(songHref)));
+        document.add(new BinaryDocValuesField(LuceneConstants.CONTENT_HASH,
+                new BytesRef(songHash(songName, singerName, lyricsText, clusterId))));
+        // Add the cluster of the near-duplicates, for the collapse of the duplicates in the hits
+        if (clusterId != null) {
+            document.add(new NumericDocValuesField(LuceneConstants.LYRICS_CLUSTER_ID, clusterId));
+        }
+        // Add the normalized singer name, for the join with the albums index
+        addSingerKey(document, singerName);
+        // Add the type of the document, which marks the parent of the block of the lines
+        document.add(new StringField(LuceneConstants.DOC_TYPE, LuceneConstants.DOC_TYPE_SONG, Field.Store.NO));
+        // Add the facet of the singer, for the counts of the hits by singer
+        FacetFields.addFacet(document, FacetFields.SINGER, singerName);
+        return FacetFields.build(document);
+    }
+
+    /**
+     * This method creates the documents of the song and the lyrics : the document of the song, and if the lines
+     * are indexed, a child document for each non-empty line before it. <br>
+     * Each line has the href of its song, so the whole block is replaced or deleted by the href. <br>
+     * @param songName
+     * @param singerName
+     * @param songHref The href of the song, which is the unique key of the block
+     * @param lyricsText
+     * @return The block of the documents, with the document of the song last
+     * @see #getSongLyricsDocument(String, String, String, String, Long)
+     */
+    protected List<Document> getSongLyricsBlock(String songName, String singerName, String songHref,
+                                                String lyricsText) {
+        return getSongLyricsBlock(songName, singerName, songHref, lyricsText, null);
+    }
+
+    /**
+     * This method creates the documents of the song and the lyrics, like getSongLyricsBlock, with the id of
+     * the cluster of the near-duplicates of the song. <br>
+     * @param clusterId The id of the cluster of the song, or null if the duplicates are not found
+     * @return The block of the documents, with the document of the song last
+     */
+    protected List<Document> getSongLyricsBlock(String songName, String singerName, String songHref,
+                                                String lyricsText, Long clusterId) {
+        Document song = getSongLyricsDocument(songName, singerName, songHref, lyricsText, clusterId);
+        if (!indexLines) {
+            return Collections.singletonList(song);
         }
-        String lyricsString = lyricsStringBuilder.toString();
-        Field lyricsField = new TextField(LuceneConstants.LYRICS_LYRICS_TEXT, lyricsString, Field.Store.YES);
-//        Field lyricsField = new TextField(LuceneConstants.LYRICS_LYRICS_TEXT, String.join("\n", lyricsOfSong), Field.Store.YES);
-//        document.add(lyricsField);
-        return document;
+        List<Document> block = new ArrayList<>();
+        int lineNumber = 0;
+        int lineStart = 0;
+        while (lineStart <= lyricsText.length()) {
+            int lineEnd = lyricsText.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = lyricsText.length();
+            }
+            String line = lyricsText.substring(lineStart, lineEnd).trim();
+            if (!line.isEmpty()) {
+                Document lineDocument = new Document();
+                lineDocument.add(new TextField(LuceneConstants.LYRICS_LINE_TEXT, line, Field.Store.YES));
+                lineDocument.add(new StoredField(LuceneConstants.LYRICS_LINE_NUMBER, lineNumber));
+                lineDocument.add(new StringField(LuceneConstants.SONGS_SONG_HREF, songHref, Field.Store.NO));
+                block.add(lineDocument);
+            }
+            lineNumber++;
+            lineStart = lineEnd + 1;
+        }
+        // The parent is the last document of its block
+        block.add(song);
+        return block;
+    }
+
+    /**
+     * This method returns the term of the unique key of a song, which all the documents of its block have.
+     * @param songHref The href of the song
+     * @return The Term object
+     */
+    protected static Term songKey(String songHref) {
+        return new Term(LuceneConstants.SONGS_SONG_HREF, songHref);
+    }
+
+    private static FieldType lyricsWithTermVectors() {
+        FieldType type = new FieldType(TextField.TYPE_STORED);
+        // Only the frequencies are needed for the weights of the terms, so the positions are not stored
+        type.setStoreTermVectors(true);
+        type.freeze();
+        return type;
     }
 
 }
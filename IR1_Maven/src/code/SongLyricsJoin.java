@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SongLyricsJoin.java <br>
+ * This class contains the join between the records of the songs.csv and the lyrics.csv files. <br>
+ * @see SongLyricsIndexer
+ * @see JoinReport
+ */
+public class SongLyricsJoin {
+
+    /**
+     * This method matches the songs with their lyrics. <br>
+     * The songs are put in a hash table keyed on (singer name, song name), and then the lyrics
+     * are streamed one at a time, so that each lyrics record finds its songs with a single lookup. <br>
+     * Each song is matched with the first lyrics record that has the same key. <br>
+     * The href is the unique key of a song in the index, so only the first song with an href is joined, both
+     * when the index is built and when it is updated, and the repeated songs are counted in the JoinReport. <br>
+     * @param songs The stream of the songs
+     * @param lyrics The stream of the lyrics
+     * @param matchHandler Handles each song and the lyrics it was matched with
+     * @return The JoinReport with the matched songs, the unmatched songs and the orphan lyrics
+     * @throws IOException
+     */
+    public static JoinReport join(Iterator<Songs> songs, Iterator<Lyrics> lyrics, MatchHandler matchHandler)
+            throws IOException {
+        JoinReport joinReport = new JoinReport();
+        // Build the hash table of the songs, keyed on the singer name and the song name
+        // The same song may appear more than once in the songs.csv file, so we keep a list per key
+        Map<String, List<Songs>> songsByKey = new HashMap<>();
+        Set<String> songHrefs = new HashSet<>();
+        while (songs.hasNext()) {
+            Songs song = songs.next();
+            if (!songHrefs.add(song.getSongHref())) {
+                joinReport.addDuplicateSong();
+                continue;
+            }
+            songsByKey.computeIfAbsent(joinKey(song.getSingerName(), song.getSongName()),
+                    key -> new ArrayList<>(1)).add(song);
+        }
+        // For each lyrics record, find the songs of the lyrics in the hash table
+        while (lyrics.hasNext()) {
+            Lyrics lyric = lyrics.next();
+            // Remove the songs from the hash table, so that they are matched only with the first lyrics record
+            List<Songs> songsOfLyrics = songsByKey.remove(joinKey(lyric.getArtistName(), lyric.getSongName()));
+            if (songsOfLyrics == null) {
+                // No song has this singer name and song name, or it was already matched
+                joinReport.addOrphanLyrics(lyric.getArtistName(), lyric.getSongName());
+                continue;
+            }
+            for (Songs song : songsOfLyrics) {
+                joinReport.addMatchedSong();
+                matchHandler.matched(song, lyric);
+            }
+        }
+        // The songs that are left in the hash table were not found in the lyrics
+        // lyrics.csv file does not always contain the same artist name for the same song
+        // Additionally since the number of records in the songs.csv file is  26041
+        // and the number of records in the lyrics.csv file is  25742,
+        // some songs will not be found in the lyrics.csv file
+        for (List<Songs> unmatchedSongs : songsByKey.values()) {
+            for (Songs song : unmatchedSongs) {
+                joinReport.addUnmatchedSong(song.getSingerName(), song.getSongName());
+            }
+        }
+        return joinReport;
+    }
+
+    /**
+     * This method creates the key of the join between the songs and the lyrics. <br>
+     * The singer names and the song names are normalized, so that the songs and the lyrics match
+     * even if their names are written differently (case, accents, featured singers, aliases etc.). <br>
+     * @param singerName The name of the singer
+     * @param songName The name of the song
+     * @return The key of the (singer name, song name) pair
+     * @see CanonicalNames#joinKey(String, String)
+     */
+    public static String joinKey(String singerName, String songName) {
+        return CanonicalNames.getDefault().joinKey(singerName, songName);
+    }
+
+    /**
+     * Handles a song and the lyrics it was matched with, in the join of the songs and the lyrics.
+     */
+    public interface MatchHandler {
+        void matched(Songs song, Lyrics lyrics) throws IOException;
+    }
+}
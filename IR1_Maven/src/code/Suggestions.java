@@ -0,0 +1,231 @@
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingSuggester;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suggestions.java <br>
+ * This class is the autocomplete of the song names, the singer names and the album names. <br>
+ * It is an FST of the analyzed names (AnalyzingSuggester), so a prefix is completed without a search of
+ * the index, and only the FST is kept in memory. <br>
+ * The weight of each name is the number of the documents with this name, so the most popular singers
+ * and names are suggested first. <br>
+ * The suggestions are collected while the index is built, and are stored in the SUGGESTIONS_FILE of the
+ * directory of the index, when the IndexWriter is closed. <br>
+ * The latency of the lookups is recorded in the Metrics, as the SUGGEST field. <br>
+ * @see MyIndexer#addSuggestion(String)
+ */
+public class Suggestions {
+    // The file of the suggestions, in the directory of the index
+    public static final String SUGGESTIONS_FILE = "suggestions.fst";
+    // The field of the lookups in the metrics
+    public static final String SUGGEST = "suggest";
+    // The maximum number of the names of the FST, so that its memory is bounded for any dataset
+    // The names with the lowest weights are dropped first
+    public static final int MAX_NAMES = 200_000;
+    // The names longer than this are not suggested
+    private static final int MAX_NAME_LENGTH = 100;
+
+    private final Lookup lookup;
+
+    private Suggestions(Lookup lookup) {
+        this.lookup = lookup;
+    }
+
+    /**
+     * This method returns the most popular names that start with a prefix. <br>
+     * The prefix is analyzed like the names, so it ignores the case and the punctuation. <br>
+     * It can be called by many threads at the same time. <br>
+     * @param prefix The prefix, e.g. the text typed so far
+     * @param count The maximum number of the names
+     * @return The names, the most popular first
+     * @throws IOException
+     */
+    public List<Lookup.LookupResult> lookup(String prefix, int count) throws IOException {
+        if (prefix.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        long startTime = System.nanoTime();
+        List<Lookup.LookupResult> results = lookup.lookup(prefix, false, count);
+        Metrics.get().recordQuery(SUGGEST, System.nanoTime() - startTime, results.size(), 0);
+        return results;
+    }
+
+    /**
+     * This method returns the most popular names that start with a prefix, from many Suggestions. <br>
+     * @param suggestions The Suggestions objects, e.g. of the songs-lyrics and the albums indexes
+     * @param prefix The prefix
+     * @param count The maximum number of the names
+     * @return The distinct names, the most popular first
+     * @throws IOException
+     */
+    public static List<String> lookup(List<Suggestions> suggestions, String prefix, int count) throws IOException {
+        List<Lookup.LookupResult> results = new ArrayList<>();
+        for (Suggestions suggestion : suggestions) {
+            results.addAll(suggestion.lookup(prefix, count));
+        }
+        results.sort(Comparator.comparingLong((Lookup.LookupResult result) -> result.value).reversed());
+        List<String> names = new ArrayList<>(count);
+        for (Lookup.LookupResult result : results) {
+            String name = result.key.toString();
+            if (!names.contains(name)) {
+                names.add(name);
+                if (names.size() == count) {
+                    break;
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * This method stores the suggestions in the directory of an index. <br>
+     * The file is written next to its final name and then renamed, so a reader never sees half a file. <br>
+     * @param indexDir The directory of the index
+     * @throws IOException
+     */
+    public void store(String indexDir) throws IOException {
+        Path file = Paths.get(indexDir, SUGGESTIONS_FILE);
+        Path tempFile = Paths.get(indexDir, SUGGESTIONS_FILE + ".tmp");
+        try (OutputStream output = Files.newOutputStream(tempFile)) {
+            lookup.store(output);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * This method loads the suggestions of an index.
+     * @param indexDir The directory of the index
+     * @return The Suggestions object
+     * @throws IOException If the index has no suggestions, or they can not be read
+     */
+    public static Suggestions load(String indexDir) throws IOException {
+        AnalyzingSuggester suggester = newSuggester();
+        try (InputStream input = Files.newInputStream(Paths.get(indexDir, SUGGESTIONS_FILE))) {
+            suggester.load(input);
+        }
+        return new Suggestions(suggester);
+    }
+
+    /**
+     * This method returns the memory of the FST.
+     * @return The size in bytes
+     */
+    public long ramBytesUsed() {
+        return lookup.ramBytesUsed();
+    }
+
+    private static AnalyzingSuggester newSuggester() throws IOException {
+        // The directory is only used for the temporary files of the sorting of the names, when the FST is built
+        Directory tempDir = FSDirectory.open(Paths.get(System.getProperty("java.io.tmpdir")));
+        return new AnalyzingSuggester(tempDir, "suggestions", new StandardAnalyzer());
+    }
+
+    /**
+     * This class counts the names of the documents of an index, and builds the Suggestions of the names. <br>
+     * It can be called by many threads at the same time.
+     */
+    public static class Builder {
+        private final Map<String, Long> counts = new ConcurrentHashMap<>();
+
+        /**
+         * This method counts a name of a document.
+         * @param name The name, e.g. the song name or the singer name
+         */
+        public void add(String name) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty() && trimmed.length() <= MAX_NAME_LENGTH) {
+                counts.merge(trimmed, 1L, Long::sum);
+            }
+        }
+
+        /**
+         * @return The number of the distinct names
+         */
+        public int size() {
+            return counts.size();
+        }
+
+        /**
+         * This method builds the FST of the names, with at most MAX_NAMES names.
+         * @return The Suggestions object
+         * @throws IOException
+         */
+        public Suggestions build() throws IOException {
+            List<Map.Entry<String, Long>> names = new ArrayList<>(counts.entrySet());
+            if (names.size() > MAX_NAMES) {
+                names.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+                names = names.subList(0, MAX_NAMES);
+            }
+            AnalyzingSuggester suggester = newSuggester();
+            suggester.build(new NameIterator(names.iterator()));
+            return new Suggestions(suggester);
+        }
+    }
+
+    /**
+     * The names and their counts, as the input of the suggester.
+     */
+    private static class NameIterator implements InputIterator {
+        private final Iterator<Map.Entry<String, Long>> names;
+        private long weight;
+
+        private NameIterator(Iterator<Map.Entry<String, Long>> names) {
+            this.names = names;
+        }
+
+        @Override
+        public BytesRef next() {
+            if (!names.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, Long> name = names.next();
+            weight = name.getValue();
+            return new BytesRef(name.getKey());
+        }
+
+        @Override
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public BytesRef payload() {
+            return null;
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return false;
+        }
+
+        @Override
+        public Set<BytesRef> contexts() {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts() {
+            return false;
+        }
+    }
+}
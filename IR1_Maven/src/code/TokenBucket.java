@@ -0,0 +1,49 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenBucket.java <br>
+ * This class is a token bucket rate limiter. <br>
+ * The bucket fills with tokens at a fixed rate, up to its capacity, and each request takes one token. <br>
+ * When the bucket is empty, the request reserves the next token and waits until it is added,
+ * so the waiting requests are served in the order that they arrived, without polling. <br>
+ * @see LyricsScraper
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNanosecond;
+    // The tokens in the bucket, which are negative when there are reserved tokens
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Constructor of the class. <br>
+     * The bucket starts full. <br>
+     * @param tokensPerSecond The rate at which the tokens are added
+     * @param capacity The maximum number of tokens in the bucket (the size of a burst)
+     */
+    public TokenBucket(double tokensPerSecond, double capacity) {
+        this.capacity = capacity;
+        this.tokensPerNanosecond = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * This method takes a token from the bucket, and waits until there is one if the bucket is empty.
+     * @throws InterruptedException
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNanosecond);
+            lastRefillNanos = now;
+            tokens--;
+            // The wait until the reserved token is added
+            waitNanos = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNanosecond);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
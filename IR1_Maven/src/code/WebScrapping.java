@@ -14,6 +14,12 @@ import java.io.IOException;
  * When the trim is over, it creates an URL and then proceed to make an HTTP Request. On success, it returns a String of lyrics
  */
 public class WebScrapping {
+    // The URL of the lyrics pages
+    public static final String DEFAULT_BASE_URL = "https://www.azlyrics.com/lyrics/";
+    // The path of the lyrics pages, which starts the song hrefs of the csv files (e.g. /lyrics/adele/hello.html)
+    public static final String LYRICS_PATH = "/lyrics/";
+    public static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+
     String artist       = "";
     String songName     = "";
     String textClean    = "";
@@ -26,58 +32,98 @@ public class WebScrapping {
 
 
     public static String prepareURL(String input) {
-        if (input == null) {
-            return null;
-        }
-
         // Remove whitespaces and special characters (except '-')
-        String result = input.replaceAll("[^\\w\\s-]", "").replaceAll("\\s+", "").trim();
-        result = result.toLowerCase();
-        System.out.println(result);
-        return result;
+        return CanonicalNames.urlSlug(input);
     }
 
+    /**
+     * This method fetches the lyrics page of the song, and returns its lyrics. <br>
+     * @return The lyrics, or null if the page could not be fetched or has no lyrics
+     */
     public String getLyrics(){
         try {
-            String url = "https://www.azlyrics.com/lyrics/" + this.artist + "/" + this.songName + ".html";
-            System.out.println(url);
-
+            String url = buildURL(DEFAULT_BASE_URL, this.artist, this.songName);
 
             // Fetch the HTML content of the page
             Document document = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
+                    .userAgent(USER_AGENT)
                     .get();
 
-            // Find the div with the specified class
-            Elements targetDivs = document.select(".col-xs-12.col-lg-8.text-center");
-
-            // Check if the div is found
-            if (!targetDivs.isEmpty()) {
-                Element targetDiv = targetDivs.first();
-
-                // get all children divs tht have no CSS class
-                Elements divChildrenNoClass = targetDiv.select("div:not([class])");
-
-                // the div containing the lyrics is the first such div
-                Element divContainingLyrics = divChildrenNoClass.get(0);
-
-                // the lyrics are text residing in the found div (but there are other <br> and comment tags in between)
-                String textWithNewline = divContainingLyrics.wholeText();
-
-                // need to remove unnecessary with spaces
-                this.textClean = textWithNewline.replaceAll("(?m)^[ \t]*\r?\n", "");
-                System.out.println(this.textClean);
-
-            } else {
-                System.out.println("Target div not found.");
+            String lyrics = parseLyrics(document);
+            if (lyrics == null || lyrics.trim().isEmpty()) {
+                // The page has no lyrics div
+                return null;
             }
+            this.textClean = lyrics;
 
             return this.textClean;
 
         } catch (IOException e) {
             e.printStackTrace();
         }
-//        this should not happen
+        // The page could not be fetched
         return null;
     }
+
+    /**
+     * This method returns the href of the song, in the relative form of the song hrefs of the csv files. <br>
+     * It is the unique key of the document of the song in the index, so scraping a song of the csv files
+     * replaces its document. <br>
+     * @return The href of the song (e.g. /lyrics/adele/hello.html)
+     */
+    public String getSongHref() {
+        return songHref(this.artist, this.songName);
+    }
+
+    /**
+     * This method creates the href of a song, in the relative form of the song hrefs of the csv files. <br>
+     * @param artist The artist name, already prepared with prepareURL
+     * @param songName The song name, already prepared with prepareURL
+     * @return The href of the song
+     */
+    public static String songHref(String artist, String songName) {
+        return LYRICS_PATH + artist + "/" + songName + ".html";
+    }
+
+    /**
+     * This method creates the URL of the lyrics page of a song. <br>
+     * @param baseUrl The URL of the lyrics pages (DEFAULT_BASE_URL, or a local server with saved pages)
+     * @param artist The artist name, already prepared with prepareURL
+     * @param songName The song name, already prepared with prepareURL
+     * @return The URL of the page
+     */
+    public static String buildURL(String baseUrl, String artist, String songName) {
+        return baseUrl + artist + "/" + songName + ".html";
+    }
+
+    /**
+     * This method finds the lyrics in the HTML of a lyrics page. <br>
+     * @param document The HTML document of the page
+     * @return The lyrics, without the empty lines, or null if the page has no lyrics
+     */
+    public static String parseLyrics(Document document) {
+        // Find the div with the specified class
+        Elements targetDivs = document.select(".col-xs-12.col-lg-8.text-center");
+
+        // Check if the div is found
+        if (targetDivs.isEmpty()) {
+            return null;
+        }
+        Element targetDiv = targetDivs.first();
+
+        // get all children divs tht have no CSS class
+        Elements divChildrenNoClass = targetDiv.select("div:not([class])");
+        if (divChildrenNoClass.isEmpty()) {
+            return null;
+        }
+
+        // the div containing the lyrics is the first such div
+        Element divContainingLyrics = divChildrenNoClass.get(0);
+
+        // the lyrics are text residing in the found div (but there are other <br> and comment tags in between)
+        String textWithNewline = divContainingLyrics.wholeText();
+
+        // need to remove unnecessary with spaces
+        return textWithNewline.replaceAll("(?m)^[ \t]*\r?\n", "");
+    }
 }